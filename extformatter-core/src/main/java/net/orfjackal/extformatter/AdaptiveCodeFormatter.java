@@ -21,21 +21,70 @@ import net.orfjackal.extformatter.util.*;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
+import java.util.*;
 
 /**
  * Uses alternative reformat methods if the underlying formatter does not support all methods.
+ * <p/>
+ * If the parallelism is more than 1 and many files need to be reformatted one at a time, they are
+ * reformatted concurrently, in which case the underlying formatter must be thread-safe. Likewise, when
+ * a directory tree is reformatted without {@link CodeFormatter#reformatRecursively}, the subdirectories
+ * are reformatted concurrently while the rest of the tree is still being searched. A failing file
+ * does not stop the others, but all failures are reported together with a {@link ReformatFailedException}.
+ * <p/>
+ * The {@link ExcludedFiles} are skipped when reformatting directories. Since the underlying formatter
+ * does not know about them, a directory which contains excluded files is reformatted file by file, and
+ * when there are exclusions, a directory tree is searched here instead of using
+ * {@link CodeFormatter#reformatRecursively}, so that the excluded directories are never entered.
+ * <p/>
+ * If the underlying formatter is a {@link TextFormatter}, many texts can be reformatted concurrently
+ * with {@link #reformatTexts}. If it is a {@link FileCountingCodeFormatter}, the file counts are passed
+ * on to it when a directory is given to it as a whole.
  *
  * @author Esko Luontola
  * @since 6.12.2007
  */
-public class AdaptiveCodeFormatter implements CodeFormatter {
+public class AdaptiveCodeFormatter implements FileCountingCodeFormatter, TextFormatter {
+
+    public static final int AUTOMATIC_BATCH_SIZE = 0;
+
+    // for formatters whose costs are not known
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    // keeps the memory use bounded even when one call could take any number of files
+    private static final int MAX_BATCH_SIZE = 100000;
 
     private final CodeFormatter formatter;
+    private volatile int parallelism = 1;
+    private volatile int batchSize = AUTOMATIC_BATCH_SIZE;
+    @NotNull private volatile ExcludedFiles excluded = ExcludedFiles.NONE;
 
     public AdaptiveCodeFormatter(@NotNull CodeFormatter formatter) {
         this.formatter = formatter;
     }
 
+    /**
+     * The maximum number of files which are reformatted one at a time concurrently.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    @NotNull
+    public ExcludedFiles getExcludedFiles() {
+        return excluded;
+    }
+
+    public void setExcludedFiles(@NotNull ExcludedFiles excluded) {
+        this.excluded = excluded;
+    }
+
     public boolean supportsFileType(@NotNull File file) {
         return formatter.supportsFileType(file);
     }
@@ -68,14 +117,124 @@ public class AdaptiveCodeFormatter implements CodeFormatter {
         if (formatter.supportsReformatMany()) {
             formatter.reformatMany(files);
         } else if (formatter.supportsReformatOne()) {
-            for (File file : files) {
-                formatter.reformatOne(file);
+            if (parallelism > 1 && files.length > 1) {
+                reformatOneInParallel(files);
+            } else {
+                for (File file : files) {
+                    formatter.reformatOne(file);
+                }
             }
         } else {
             throw new UnsupportedOperationException();
         }
     }
 
+    /**
+     * The maximum number of files which {@link #reformatAll} gives to one call of {@link #reformatMany},
+     * or {@link #AUTOMATIC_BATCH_SIZE}.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @param batchSize a fixed batch size, or {@link #AUTOMATIC_BATCH_SIZE} to size the batches by
+     *                  the formatter's {@link CostModel}.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 0) {
+            throw new IllegalArgumentException("batchSize: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Reformats the files in batches while iterating them, so that the files do not all need to be
+     * in memory at the same time. For example {@link FilesInTree} finds the files lazily.
+     * <p/>
+     * With {@link #AUTOMATIC_BATCH_SIZE}, if the formatter is a {@link CostModel}, a batch is ended only when
+     * adding the next file to it would cost at least as much as starting a new call for it, for example when
+     * the formatter would need to split its command line. A formatter which reads the files from a list file
+     * or stdin gets batches of {@link #MAX_BATCH_SIZE} files, so that it is started as few times as possible.
+     */
+    public void reformatAll(@NotNull Iterable<File> files) {
+        List<File> batch = new ArrayList<File>();
+        long batchLength = 0;
+        for (File file : files) {
+            long fileLength = ReformatPlanner.argumentLength(file);
+            if (!batch.isEmpty() && isFull(batch.size(), batchLength, fileLength)) {
+                reformatMany(batch.toArray(new File[batch.size()]));
+                batch.clear();
+                batchLength = 0;
+            }
+            batch.add(file);
+            batchLength += fileLength;
+        }
+        if (!batch.isEmpty()) {
+            reformatMany(batch.toArray(new File[batch.size()]));
+        }
+    }
+
+    private boolean isFull(int fileCount, long argumentLength, long nextArgumentLength) {
+        if (batchSize != AUTOMATIC_BATCH_SIZE) {
+            return fileCount >= batchSize;
+        }
+        if (fileCount >= MAX_BATCH_SIZE) {
+            return true;
+        }
+        if (!(formatter instanceof CostModel) || !formatter.supportsReformatMany()) {
+            return fileCount >= DEFAULT_BATCH_SIZE;
+        }
+        CostModel costs = (CostModel) formatter;
+        double together = costs.costOf(ReformatMethod.MANY, fileCount + 1, argumentLength + nextArgumentLength);
+        double apart = costs.costOf(ReformatMethod.MANY, fileCount, argumentLength)
+                + costs.costOf(ReformatMethod.MANY, 1, nextArgumentLength);
+        return together >= apart;
+    }
+
+    public boolean supportsReformatText() {
+        return formatter instanceof TextFormatter && ((TextFormatter) formatter).supportsReformatText();
+    }
+
+    @NotNull
+    public String reformatText(@NotNull File file, @NotNull String text) {
+        assert supportsFileType(file);
+        if (!supportsReformatText()) {
+            throw new UnsupportedOperationException();
+        }
+        return ((TextFormatter) formatter).reformatText(file, text);
+    }
+
+    /**
+     * Reformats the texts of the files, at most {@link #getParallelism} of them at the same time.
+     *
+     * @return the reformatted texts, in the same order as the files.
+     */
+    @NotNull
+    public String[] reformatTexts(@NotNull final File[] files, @NotNull final String[] texts) {
+        if (files.length != texts.length) {
+            throw new IllegalArgumentException("files: " + files.length + ", texts: " + texts.length);
+        }
+        final String[] formatted = new String[files.length];
+        List<Runnable> tasks = new ArrayList<Runnable>();
+        for (int i = 0; i < files.length; i++) {
+            final int index = i;
+            tasks.add(new Runnable() {
+                public void run() {
+                    formatted[index] = reformatText(files[index], texts[index]);
+                }
+            });
+        }
+        if (parallelism > 1 && tasks.size() > 1) {
+            throwIfFailed(files, ParallelTasks.runAll(tasks, parallelism));
+        } else {
+            for (Runnable task : tasks) {
+                task.run();
+            }
+        }
+        return formatted;
+    }
+
     public boolean supportsReformatDirectory() {
         return formatter.supportsReformatOne()
                 || formatter.supportsReformatMany()
@@ -83,14 +242,23 @@ public class AdaptiveCodeFormatter implements CodeFormatter {
     }
 
     public void reformatDirectory(@NotNull File directory) {
-        if (formatter.supportsReformatDirectory()) {
+        if (formatter.supportsReformatDirectory() && !containsExcludedFiles(directory)) {
             formatter.reformatDirectory(directory);
         } else {
-            File[] files = directory.listFiles(new FilesSupportedBy(this));
+            File[] files = directory.listFiles(new FilesSupportedBy(this, excluded));
             reformatMany(files);
         }
     }
 
+    public void reformatDirectory(@NotNull File directory, int fileCount) {
+        if (formatter instanceof FileCountingCodeFormatter
+                && formatter.supportsReformatDirectory() && !containsExcludedFiles(directory)) {
+            ((FileCountingCodeFormatter) formatter).reformatDirectory(directory, fileCount);
+        } else {
+            reformatDirectory(directory);
+        }
+    }
+
     public boolean supportsReformatRecursively() {
         return formatter.supportsReformatOne()
                 || formatter.supportsReformatMany()
@@ -99,14 +267,130 @@ public class AdaptiveCodeFormatter implements CodeFormatter {
     }
 
     public void reformatRecursively(@NotNull File directory) {
-        if (formatter.supportsReformatRecursively()) {
+        if (formatter.supportsReformatRecursively()
+                && (excluded.isEmpty() || !supportsReformatDirectory())) {
             formatter.reformatRecursively(directory);
+        } else if (parallelism > 1 && supportsReformatRecursively()) {
+            reformatRecursivelyInParallel(directory);
         } else {
-            File[] subdirs = directory.listFiles(new Directories());
+            File[] subdirs = directory.listFiles(new Directories(excluded));
             reformatDirectory(directory);
             for (File subdir : subdirs) {
                 reformatRecursively(subdir);
             }
         }
     }
+
+    public void reformatRecursively(@NotNull File directory, int fileCount) {
+        if (formatter instanceof FileCountingCodeFormatter
+                && formatter.supportsReformatRecursively()
+                && (excluded.isEmpty() || !supportsReformatDirectory())) {
+            ((FileCountingCodeFormatter) formatter).reformatRecursively(directory, fileCount);
+        } else {
+            reformatRecursively(directory);
+        }
+    }
+
+    /**
+     * Whether {@link #reformatRecursively} would search the directory tree here instead of letting
+     * the formatter do it, and the files could as well be given to {@link #reformatAll}.
+     */
+    boolean searchesDirectoryTrees() {
+        return !(formatter.supportsReformatRecursively() && (excluded.isEmpty() || !supportsReformatDirectory()))
+                && supportsReformatMany();
+    }
+
+    private void reformatRecursivelyInParallel(@NotNull File root) {
+        TaskPipeline pipeline = new TaskPipeline(parallelism);
+        List<Throwable> failures;
+        try {
+            // depth-first, so that only the siblings of the current path need to be remembered
+            LinkedList<File> directories = new LinkedList<File>();
+            directories.add(root);
+            while (!directories.isEmpty()) {
+                File directory = directories.removeFirst();
+                submitReformatOf(directory, pipeline);
+                File[] subdirs = directory.listFiles(new Directories(excluded));
+                if (subdirs != null) {
+                    directories.addAll(0, Arrays.asList(subdirs));
+                }
+            }
+        } finally {
+            failures = pipeline.awaitAll();
+        }
+        if (!failures.isEmpty()) {
+            throw new ReformatFailedException("Failed to reformat some of the files in " + root, failures);
+        }
+    }
+
+    private void submitReformatOf(@NotNull final File directory, @NotNull TaskPipeline pipeline) {
+        if (formatter.supportsReformatDirectory() && !containsExcludedFiles(directory)) {
+            pipeline.submit(new Runnable() {
+                public void run() {
+                    formatter.reformatDirectory(directory);
+                }
+            });
+            return;
+        }
+        final File[] files = directory.listFiles(new FilesSupportedBy(this, excluded));
+        if (files == null || files.length == 0) {
+            return;
+        }
+        if (formatter.supportsReformatMany()) {
+            pipeline.submit(new Runnable() {
+                public void run() {
+                    formatter.reformatMany(files);
+                }
+            });
+        } else {
+            for (final File file : files) {
+                pipeline.submit(new Runnable() {
+                    public void run() {
+                        formatter.reformatOne(file);
+                    }
+                });
+            }
+        }
+    }
+
+    private boolean containsExcludedFiles(@NotNull File directory) {
+        if (excluded.isEmpty()) {
+            return false;
+        }
+        File[] files = directory.listFiles(new FilesSupportedBy(this));
+        if (files != null) {
+            for (File file : files) {
+                if (excluded.accept(file)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void reformatOneInParallel(@NotNull File[] files) {
+        List<Runnable> tasks = new ArrayList<Runnable>();
+        for (final File file : files) {
+            tasks.add(new Runnable() {
+                public void run() {
+                    formatter.reformatOne(file);
+                }
+            });
+        }
+        throwIfFailed(files, ParallelTasks.runAll(tasks, parallelism));
+    }
+
+    private static void throwIfFailed(@NotNull File[] files, @NotNull List<Throwable> results) {
+        List<Throwable> failures = new ArrayList<Throwable>();
+        StringBuilder message = new StringBuilder("The following files could not be reformatted:");
+        for (int i = 0; i < files.length; i++) {
+            if (results.get(i) != null) {
+                failures.add(results.get(i));
+                message.append("\n").append(files[i]).append(": ").append(results.get(i));
+            }
+        }
+        if (!failures.isEmpty()) {
+            throw new ReformatFailedException(message.toString(), failures);
+        }
+    }
 }
@@ -0,0 +1,70 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * Reformats source code files without making the caller wait. Like {@link CodeFormatter}, but each
+ * reformat method returns a future which tells for each reformatted file whether it succeeded.
+ * A failure to reformat is reported in the results. The future fails if the work was cancelled, if the formatter
+ * threw an {@link Error}, or if a call failed when there were no files to report the failure for.
+ * <p/>
+ * Use {@link BackgroundCodeFormatter} to make any {@link CodeFormatter} asynchronous,
+ * and {@link BlockingCodeFormatter} to use an asynchronous formatter as a {@link CodeFormatter}.
+ *
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+public interface AsyncCodeFormatter {
+
+    boolean supportsFileType(@NotNull File file);
+
+    boolean supportsReformatOne();
+
+    @NotNull
+    Future<ReformatResult> reformatOne(@NotNull File file);
+
+    boolean supportsReformatMany();
+
+    /**
+     * @return the results in the same order as the files.
+     */
+    @NotNull
+    Future<List<ReformatResult>> reformatMany(@NotNull File... files);
+
+    boolean supportsReformatDirectory();
+
+    /**
+     * @return the results of the supported files in the directory.
+     */
+    @NotNull
+    Future<List<ReformatResult>> reformatDirectory(@NotNull File directory);
+
+    boolean supportsReformatRecursively();
+
+    /**
+     * @return the results of the supported files in the directory tree.
+     */
+    @NotNull
+    Future<List<ReformatResult>> reformatRecursively(@NotNull File directory);
+}
@@ -0,0 +1,187 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter;
+
+import org.jetbrains.annotations.*;
+
+import java.io.File;
+import java.util.concurrent.*;
+
+/**
+ * Flushes the underlying queue automatically on a background thread, so that files which are queued
+ * in quick succession are reformatted together. The queue is flushed when no files have been queued
+ * for the quiet period, or when the batch grows too big or too old, whichever happens first.
+ * <p/>
+ * Exceptions thrown by an automatic flush are passed to the uncaught exception handler of the scheduler thread.
+ *
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+public class AutoFlushingReformatQueue implements ReformatQueue {
+
+    @NotNull private final ReformatQueue queue;
+    private final long quietPeriodMillis;
+    private final int maxBatchSize;
+    private final long maxBatchAgeMillis;
+    @NotNull private final ScheduledExecutorService scheduler;
+    private final boolean ownsScheduler;
+
+    private final Object lock = new Object();
+    @Nullable private ScheduledFuture<?> scheduledFlush;
+    private int batchSize = 0;
+    private long batchStarted;
+
+    public AutoFlushingReformatQueue(@NotNull ReformatQueue queue, long quietPeriodMillis, int maxBatchSize, long maxBatchAgeMillis,
+                                     @NotNull ScheduledExecutorService scheduler) {
+        this(queue, quietPeriodMillis, maxBatchSize, maxBatchAgeMillis, scheduler, false);
+    }
+
+    public AutoFlushingReformatQueue(@NotNull ReformatQueue queue, long quietPeriodMillis, int maxBatchSize, long maxBatchAgeMillis) {
+        this(queue, quietPeriodMillis, maxBatchSize, maxBatchAgeMillis, Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, AutoFlushingReformatQueue.class.getSimpleName());
+                t.setDaemon(true);
+                return t;
+            }
+        }), true);
+    }
+
+    private AutoFlushingReformatQueue(@NotNull ReformatQueue queue, long quietPeriodMillis, int maxBatchSize, long maxBatchAgeMillis,
+                                      @NotNull ScheduledExecutorService scheduler, boolean ownsScheduler) {
+        if (quietPeriodMillis < 0 || maxBatchSize < 1 || maxBatchAgeMillis < 0) {
+            throw new IllegalArgumentException("quietPeriodMillis: " + quietPeriodMillis
+                    + ", maxBatchSize: " + maxBatchSize + ", maxBatchAgeMillis: " + maxBatchAgeMillis);
+        }
+        this.queue = queue;
+        this.quietPeriodMillis = quietPeriodMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchAgeMillis = maxBatchAgeMillis;
+        this.scheduler = scheduler;
+        this.ownsScheduler = ownsScheduler;
+    }
+
+    public boolean supportsFileType(@NotNull File file) {
+        return queue.supportsFileType(file);
+    }
+
+    public boolean supportsReformatOne() {
+        return queue.supportsReformatOne();
+    }
+
+    public void reformatOne(@NotNull File file) {
+        queue.reformatOne(file);
+        queued(1);
+    }
+
+    public boolean supportsReformatMany() {
+        return queue.supportsReformatMany();
+    }
+
+    public void reformatMany(@NotNull File... files) {
+        queue.reformatMany(files);
+        queued(files.length);
+    }
+
+    public boolean supportsReformatDirectory() {
+        return queue.supportsReformatDirectory();
+    }
+
+    public void reformatDirectory(@NotNull File directory) {
+        queue.reformatDirectory(directory);
+        queued(1);
+    }
+
+    public boolean supportsReformatRecursively() {
+        return queue.supportsReformatRecursively();
+    }
+
+    public void reformatRecursively(@NotNull File directory) {
+        queue.reformatRecursively(directory);
+        queued(1);
+    }
+
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    public int getParallelism() {
+        return queue.getParallelism();
+    }
+
+    /**
+     * Flushes the queue immediately on the calling thread.
+     */
+    public void flush() {
+        synchronized (lock) {
+            cancelScheduledFlush();
+            batchSize = 0;
+        }
+        queue.flush();
+    }
+
+    /**
+     * Stops flushing automatically. Files which are still in the queue are not flushed.
+     */
+    public void dispose() {
+        synchronized (lock) {
+            cancelScheduledFlush();
+        }
+        if (ownsScheduler) {
+            scheduler.shutdown();
+        }
+    }
+
+    private void queued(int count) {
+        synchronized (lock) {
+            long now = System.currentTimeMillis();
+            if (batchSize == 0) {
+                batchStarted = now;
+            }
+            batchSize += count;
+            long delay;
+            if (batchSize >= maxBatchSize) {
+                delay = 0;
+            } else {
+                long untilTooOld = batchStarted + maxBatchAgeMillis - now;
+                delay = Math.max(0, Math.min(quietPeriodMillis, untilTooOld));
+            }
+            cancelScheduledFlush();
+            scheduledFlush = scheduler.schedule(new Runnable() {
+                public void run() {
+                    autoFlush();
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void cancelScheduledFlush() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+    }
+
+    private void autoFlush() {
+        try {
+            flush();
+        } catch (Throwable t) {
+            Thread current = Thread.currentThread();
+            current.getUncaughtExceptionHandler().uncaughtException(current, t);
+        }
+    }
+}
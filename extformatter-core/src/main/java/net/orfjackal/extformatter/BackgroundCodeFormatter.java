@@ -0,0 +1,206 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter;
+
+import net.orfjackal.extformatter.util.*;
+import org.jetbrains.annotations.*;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Makes a {@link CodeFormatter}, for example {@link CommandLineCodeFormatter}, {@link EclipseCodeFormatter} or
+ * {@link AdaptiveCodeFormatter}, asynchronous by calling it on an executor. By default the calls are made
+ * one at a time on a background thread; if the executor runs many calls at the same time, the formatter
+ * must be thread-safe.
+ * <p/>
+ * The results are per call, not per file: a call which fails is reported as the failure of every file of
+ * the call, even of those which the formatter managed to reformat before it failed. The files of a directory
+ * are listed before the call, skipping the {@link ExcludedFiles} of an {@link AdaptiveCodeFormatter}. If a call
+ * fails when there are no files to report the failure for, for example when the directory does not exist,
+ * the future fails. An {@link Error} thrown by the formatter always fails the future.
+ * <p/>
+ * If the formatter is a {@link ReformatQueue}, such as {@link OptimizingReformatQueue}, the files are
+ * queued and the queue is flushed in the same call, so that the results are known when the future completes.
+ * Those calls are made one at a time even if the executor would allow more, so that one call does not
+ * flush the files of another.
+ *
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+public class BackgroundCodeFormatter implements AsyncCodeFormatter {
+
+    @NotNull private final CodeFormatter formatter;
+    @NotNull private final ExecutorService executor;
+
+    public BackgroundCodeFormatter(@NotNull CodeFormatter formatter) {
+        this(formatter, BlockingExecutors.newBoundedExecutor(1, BackgroundCodeFormatter.class.getSimpleName()));
+    }
+
+    public BackgroundCodeFormatter(@NotNull CodeFormatter formatter, @NotNull ExecutorService executor) {
+        this.formatter = formatter;
+        this.executor = executor;
+    }
+
+    /**
+     * Stops the executor after the calls which have already been made.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public boolean supportsFileType(@NotNull File file) {
+        return formatter.supportsFileType(file);
+    }
+
+    public boolean supportsReformatOne() {
+        return formatter.supportsReformatOne();
+    }
+
+    @NotNull
+    public Future<ReformatResult> reformatOne(@NotNull final File file) {
+        return executor.submit(new Callable<ReformatResult>() {
+            public ReformatResult call() {
+                RuntimeException failure = failureOf(new Call() {
+                    public void run(@NotNull List<File> files) {
+                        formatter.reformatOne(file);
+                    }
+                }, Collections.singletonList(file));
+                return new ReformatResult(file, failure);
+            }
+        });
+    }
+
+    public boolean supportsReformatMany() {
+        return formatter.supportsReformatMany();
+    }
+
+    @NotNull
+    public Future<List<ReformatResult>> reformatMany(@NotNull final File... files) {
+        return submit(new Callable<List<File>>() {
+            public List<File> call() {
+                return Arrays.asList(files);
+            }
+        }, new Call() {
+            public void run(@NotNull List<File> listed) {
+                formatter.reformatMany(files);
+            }
+        });
+    }
+
+    public boolean supportsReformatDirectory() {
+        return formatter.supportsReformatDirectory();
+    }
+
+    @NotNull
+    public Future<List<ReformatResult>> reformatDirectory(@NotNull final File directory) {
+        return submit(new Callable<List<File>>() {
+            public List<File> call() {
+                File[] files = directory.listFiles(new FilesSupportedBy(formatter, excludedFiles()));
+                return files == null ? Collections.<File>emptyList() : Arrays.asList(files);
+            }
+        }, new Call() {
+            public void run(@NotNull List<File> files) {
+                formatter.reformatDirectory(directory);
+            }
+        });
+    }
+
+    public boolean supportsReformatRecursively() {
+        return formatter.supportsReformatRecursively();
+    }
+
+    /**
+     * If the formatter is an {@link AdaptiveCodeFormatter} which would search the directory tree itself,
+     * it is given the files which were already found, so that the tree is searched only once.
+     */
+    @NotNull
+    public Future<List<ReformatResult>> reformatRecursively(@NotNull final File directory) {
+        return submit(new Callable<List<File>>() {
+            public List<File> call() {
+                ExcludedFiles excluded = excludedFiles();
+                List<File> files = new ArrayList<File>();
+                for (File file : new FilesInTree(directory, new FilesSupportedBy(formatter, excluded), new Directories(excluded))) {
+                    files.add(file);
+                }
+                return files;
+            }
+        }, new Call() {
+            public void run(@NotNull List<File> files) {
+                if (formatter instanceof AdaptiveCodeFormatter && ((AdaptiveCodeFormatter) formatter).searchesDirectoryTrees()) {
+                    ((AdaptiveCodeFormatter) formatter).reformatAll(files);
+                } else {
+                    formatter.reformatRecursively(directory);
+                }
+            }
+        });
+    }
+
+    @NotNull
+    private ExcludedFiles excludedFiles() {
+        return formatter instanceof AdaptiveCodeFormatter
+                ? ((AdaptiveCodeFormatter) formatter).getExcludedFiles()
+                : ExcludedFiles.NONE;
+    }
+
+    /**
+     * @param files which files the call reformats. They are found before the call, because
+     *              reformatting might change which files there are.
+     */
+    @NotNull
+    private Future<List<ReformatResult>> submit(@NotNull final Callable<List<File>> files, @NotNull final Call call) {
+        return executor.submit(new Callable<List<ReformatResult>>() {
+            public List<ReformatResult> call() throws Exception {
+                List<File> reformatted = files.call();
+                RuntimeException failure = failureOf(call, reformatted);
+                if (failure != null && reformatted.isEmpty()) {
+                    throw failure;
+                }
+                List<ReformatResult> results = new ArrayList<ReformatResult>(reformatted.size());
+                for (File file : reformatted) {
+                    results.add(new ReformatResult(file, failure));
+                }
+                return results;
+            }
+        });
+    }
+
+    @Nullable
+    private RuntimeException failureOf(@NotNull Call call, @NotNull List<File> files) {
+        try {
+            if (formatter instanceof ReformatQueue) {
+                ReformatQueue queue = (ReformatQueue) formatter;
+                synchronized (queue) {
+                    call.run(files);
+                    queue.flush();
+                }
+            } else {
+                call.run(files);
+            }
+            return null;
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    private interface Call {
+
+        void run(@NotNull List<File> files);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Uses an {@link AsyncCodeFormatter} as a {@link CodeFormatter} by waiting for each call to complete.
+ * If reformatting a file failed, its failure is rethrown; if the call had many different failures,
+ * they are all reported with a {@link ReformatFailedException}.
+ *
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+public class BlockingCodeFormatter implements CodeFormatter {
+
+    @NotNull private final AsyncCodeFormatter formatter;
+
+    public BlockingCodeFormatter(@NotNull AsyncCodeFormatter formatter) {
+        this.formatter = formatter;
+    }
+
+    public boolean supportsFileType(@NotNull File file) {
+        return formatter.supportsFileType(file);
+    }
+
+    public boolean supportsReformatOne() {
+        return formatter.supportsReformatOne();
+    }
+
+    public void reformatOne(@NotNull File file) {
+        throwIfFailed(Collections.singletonList(await(formatter.reformatOne(file))));
+    }
+
+    public boolean supportsReformatMany() {
+        return formatter.supportsReformatMany();
+    }
+
+    public void reformatMany(@NotNull File... files) {
+        throwIfFailed(await(formatter.reformatMany(files)));
+    }
+
+    public boolean supportsReformatDirectory() {
+        return formatter.supportsReformatDirectory();
+    }
+
+    public void reformatDirectory(@NotNull File directory) {
+        throwIfFailed(await(formatter.reformatDirectory(directory)));
+    }
+
+    public boolean supportsReformatRecursively() {
+        return formatter.supportsReformatRecursively();
+    }
+
+    public void reformatRecursively(@NotNull File directory) {
+        throwIfFailed(await(formatter.reformatRecursively(directory)));
+    }
+
+    @NotNull
+    private static <T> T await(@NotNull Future<T> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private static void throwIfFailed(@NotNull List<ReformatResult> results) {
+        // the files of one call share the same failure, so it is reported only once
+        Set<Throwable> failures = new LinkedHashSet<Throwable>();
+        StringBuilder message = new StringBuilder("The following files could not be reformatted:");
+        for (ReformatResult result : results) {
+            if (!result.isSuccessful()) {
+                failures.add(result.getFailure());
+                message.append("\n").append(result.getFile()).append(": ").append(result.getFailure());
+            }
+        }
+        if (failures.size() == 1) {
+            Throwable failure = failures.iterator().next();
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+        }
+        if (!failures.isEmpty()) {
+            throw new ReformatFailedException(message.toString(), new ArrayList<Throwable>(failures));
+        }
+    }
+}
@@ -21,41 +21,114 @@ import static net.orfjackal.extformatter.util.FileUtil.*;
 import net.orfjackal.extformatter.util.*;
 import org.jetbrains.annotations.*;
 
-import java.io.File;
-import java.util.Arrays;
-import java.util.regex.Matcher;
+import java.io.*;
+import java.util.*;
 
 /**
  * {@link CodeFormatter} for a generic command line tool.
+ * <p/>
+ * The commands are parsed into arguments only once, as {@link CommandTemplate}s, and the paths are given
+ * to the command as arguments of their own, so they may contain spaces.
+ * <p/>
+ * In daemon mode the files are reformatted by a long-lived {@link FormatterDaemon}, so the formatter does not
+ * need to be started for every reformat. Then the daemon should be closed with {@link #dispose} when the
+ * formatter is no more needed.
+ * <p/>
+ * If the command for reformatting one file contains {@link #STDIN_TAG}, the file's contents are piped
+ * through the command's stdin and stdout, so that the command does not need to access the file, and
+ * the formatter is also a {@link TextFormatter}. Then the command may use {@link #FILE_TAG} to know the
+ * name of the file, for example for detecting the file type.
+ * <p/>
+ * Instead of {@link #FILES_TAG}, the command for reformatting many files may contain {@link #FILES_LISTFILE_TAG},
+ * which is replaced with the path of a temporary file that lists the paths one per line (for example
+ * {@code @%FILES_LISTFILE%} for formatters which read their arguments from a file), or {@link #FILES_STDIN_TAG},
+ * in which case the paths are written to the command's stdin one per line. Then all the files are reformatted
+ * with one command, however many of them there are.
  *
  * @author Esko Luontola
  * @since 30.11.2007
  */
-public class CommandLineCodeFormatter implements CodeFormatter {
+public class CommandLineCodeFormatter implements CodeFormatter, TextFormatter, CostModel {
 
     public static final String FILE_TAG = "%FILE%";
     public static final String FILES_TAG = "%FILES%";
     public static final String DIRECTORY_TAG = "%DIRECTORY%";
+    public static final String STDIN_TAG = "%STDIN%";
+    public static final String FILES_LISTFILE_TAG = "%FILES_LISTFILE%";
+    public static final String FILES_STDIN_TAG = "%FILES_STDIN%";
+
+    // Command line tools are usually quick to start, but many of them run on a JVM
+    private static final double STARTUP_COST = 500;
+    private static final double COST_PER_FILE = 5;
+    private static final double COST_PER_ARGUMENT_CHAR = 0.001;
+    private static final double DAEMON_REQUEST_COST = 20;
 
     @NotNull private final SupportedFileTypes supportedFileTypes;
-    @Nullable private final String oneFileCommand;
-    @Nullable private final String manyFilesCommand;
-    @Nullable private final String directoryCommand;
-    @Nullable private final String recursiveCommand;
-    @NotNull private final ProcessExecutor1 executor;
+    @Nullable private final CommandTemplate oneFileCommand;
+    @Nullable private final CommandTemplate manyFilesCommand;
+    @Nullable private final CommandTemplate directoryCommand;
+    @Nullable private final CommandTemplate recursiveCommand;
+    @NotNull private final ProcessExecutor executor;
+    @NotNull private final CommandLineSplitter splitter;
+    @Nullable private final FormatterDaemon daemon;
+    @NotNull private final CostModel costs = new LinearCostModel(STARTUP_COST, COST_PER_FILE, COST_PER_ARGUMENT_CHAR);
+    @NotNull private final CostModel daemonCosts = new LinearCostModel(DAEMON_REQUEST_COST, COST_PER_FILE, 0);
+
+    private CommandLineCodeFormatter(@NotNull String[] supportedFileTypes,
+                                     @Nullable String oneFileCommand,
+                                     @Nullable String manyFilesCommand,
+                                     @Nullable String directoryCommand,
+                                     @Nullable String recursiveCommand,
+                                     @Nullable FormatterDaemon daemon,
+                                     @NotNull ProcessExecutor executor,
+                                     @NotNull CommandLineSplitter splitter) {
+        this.supportedFileTypes = new SupportedFileTypes(supportedFileTypes);
+        this.oneFileCommand = templateOf(oneFileCommand);
+        this.manyFilesCommand = templateOf(manyFilesCommand);
+        this.directoryCommand = templateOf(directoryCommand);
+        this.recursiveCommand = templateOf(recursiveCommand);
+        this.daemon = daemon;
+        this.executor = executor;
+        this.splitter = splitter;
+    }
 
     public CommandLineCodeFormatter(@NotNull String[] supportedFileTypes,
                                     @Nullable String oneFileCommand,
                                     @Nullable String manyFilesCommand,
                                     @Nullable String directoryCommand,
                                     @Nullable String recursiveCommand,
-                                    @NotNull ProcessExecutor1 executor) {
-        this.supportedFileTypes = new SupportedFileTypes(supportedFileTypes);
-        this.oneFileCommand = oneFileCommand;
-        this.manyFilesCommand = manyFilesCommand;
-        this.directoryCommand = directoryCommand;
-        this.recursiveCommand = recursiveCommand;
-        this.executor = executor;
+                                    @NotNull ProcessExecutor executor,
+                                    @NotNull CommandLineSplitter splitter) {
+        this(supportedFileTypes, oneFileCommand, manyFilesCommand, directoryCommand, recursiveCommand, null, executor, splitter);
+    }
+
+    /**
+     * Daemon mode: single files and many files are reformatted by the daemon.
+     * The directory commands are optional.
+     */
+    public CommandLineCodeFormatter(@NotNull String[] supportedFileTypes,
+                                    @NotNull FormatterDaemon daemon,
+                                    @Nullable String directoryCommand,
+                                    @Nullable String recursiveCommand) {
+        this(supportedFileTypes, daemon, directoryCommand, recursiveCommand, new ProcessExecutorImpl(), new CommandLineSplitter());
+    }
+
+    public CommandLineCodeFormatter(@NotNull String[] supportedFileTypes,
+                                    @NotNull FormatterDaemon daemon,
+                                    @Nullable String directoryCommand,
+                                    @Nullable String recursiveCommand,
+                                    @NotNull ProcessExecutor executor,
+                                    @NotNull CommandLineSplitter splitter) {
+        this(supportedFileTypes, null, null, directoryCommand, recursiveCommand, daemon, executor, splitter);
+    }
+
+    public CommandLineCodeFormatter(@NotNull String[] supportedFileTypes,
+                                    @Nullable String oneFileCommand,
+                                    @Nullable String manyFilesCommand,
+                                    @Nullable String directoryCommand,
+                                    @Nullable String recursiveCommand,
+                                    @NotNull ProcessExecutor executor) {
+        this(supportedFileTypes, oneFileCommand, manyFilesCommand, directoryCommand, recursiveCommand, executor, new CommandLineSplitter());
     }
 
     public CommandLineCodeFormatter(@NotNull String[] supportedFileTypes,
@@ -63,30 +136,109 @@ public class CommandLineCodeFormatter implements CodeFormatter {
                                     @Nullable String manyFilesCommand,
                                     @Nullable String directoryCommand,
                                     @Nullable String recursiveCommand) {
-        this(supportedFileTypes, oneFileCommand, manyFilesCommand, directoryCommand, recursiveCommand, new ProcessExecutor1Impl());
+        this(supportedFileTypes, oneFileCommand, manyFilesCommand, directoryCommand, recursiveCommand, new ProcessExecutorImpl());
     }
 
     public boolean supportsFileType(@NotNull File file) {
         return supportedFileTypes.matches(file);
     }
 
+    /**
+     * Stops the daemon, if there is one.
+     */
+    public void dispose() {
+        if (daemon != null) {
+            daemon.close();
+        }
+    }
+
     public boolean supportsReformatOne() {
-        return oneFileCommand != null;
+        return oneFileCommand != null || daemon != null;
     }
 
     public void reformatOne(@NotNull File file) {
-        if (oneFileCommand != null) {
+        if (daemon != null) {
+            daemon.format(checkedFiles(file));
+        } else if (supportsReformatText()) {
+            reformatThroughPipe(checkedFiles(file).get(0));
+        } else if (oneFileCommand != null) {
             executor.executeAndWait(parsed(oneFileCommand, file));
         }
     }
 
+    private void reformatThroughPipe(@NotNull File file) {
+        try {
+            String text = contentsOf(file);
+            String formatted = reformatText(file, text);
+            if (!formatted.equals(text)) {
+                writeContents(file, formatted);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public boolean supportsReformatText() {
+        return oneFileCommand != null && oneFileCommand.contains(STDIN_TAG) && daemon == null;
+    }
+
+    /**
+     * Pipes the text through the command for reformatting one file. This method is thread-safe.
+     */
+    @NotNull
+    public String reformatText(@NotNull File file, @NotNull String text) {
+        if (!supportsReformatText()) {
+            throw new UnsupportedOperationException();
+        }
+        assert oneFileCommand != null;
+        CommandTemplate command = oneFileCommand.without(STDIN_TAG);
+        return executor.pipe(command.with(FILE_TAG, pathOf(file)).tokens(), text);
+    }
+
     public boolean supportsReformatMany() {
-        return manyFilesCommand != null;
+        return manyFilesCommand != null || daemon != null;
     }
 
+    /**
+     * If the files do not fit in one command line, the command is executed many times,
+     * each time with as many files as fit in the command line, unless the paths are given
+     * in a list file or through stdin.
+     */
     public void reformatMany(@NotNull File... files) {
-        if (manyFilesCommand != null) {
-            executor.executeAndWait(parsed(manyFilesCommand, files));
+        if (daemon != null) {
+            daemon.format(checkedFiles(files));
+        } else if (manyFilesCommand != null && manyFilesCommand.contains(FILES_LISTFILE_TAG)) {
+            reformatWithListFile(manyFilesCommand, pathsOf(checkedFiles(files)));
+        } else if (manyFilesCommand != null && manyFilesCommand.contains(FILES_STDIN_TAG)) {
+            List<String> command = manyFilesCommand.without(FILES_STDIN_TAG).tokens();
+            executor.executeAndWait(command, pathsOf(checkedFiles(files)));
+        } else if (manyFilesCommand != null) {
+            for (List<String> command : parsed(manyFilesCommand, files)) {
+                executor.executeAndWait(command);
+            }
+        }
+    }
+
+    private void reformatWithListFile(@NotNull CommandTemplate command, @NotNull List<String> paths) {
+        File listFile = null;
+        try {
+            listFile = File.createTempFile("extformatter", ".txt");
+            Writer writer = new BufferedWriter(new FileWriter(listFile));
+            try {
+                for (String path : paths) {
+                    writer.write(path);
+                    writer.write('\n');
+                }
+            } finally {
+                writer.close();
+            }
+            executor.executeAndWait(command.with(FILES_LISTFILE_TAG, listFile.getPath()).tokens());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            if (listFile != null && !listFile.delete()) {
+                listFile.deleteOnExit();
+            }
         }
     }
 
@@ -110,27 +262,91 @@ public class CommandLineCodeFormatter implements CodeFormatter {
         }
     }
 
+    public double costOf(@NotNull ReformatMethod method, int fileCount, long argumentLength) {
+        if (daemon != null && (method == ReformatMethod.ONE || method == ReformatMethod.MANY)) {
+            return daemonCosts.costOf(method, fileCount, argumentLength);
+        }
+        double cost = costs.costOf(method, fileCount, argumentLength);
+        if (method == ReformatMethod.MANY && !pathsAreOutsideTheCommandLine()) {
+            cost += (splitter.minimumCommandLines(0, argumentLength) - 1) * STARTUP_COST;
+        }
+        return cost;
+    }
+
+    private boolean pathsAreOutsideTheCommandLine() {
+        return manyFilesCommand != null
+                && (manyFilesCommand.contains(FILES_LISTFILE_TAG) || manyFilesCommand.contains(FILES_STDIN_TAG));
+    }
+
     @NotNull
-    private String parsed(@NotNull String command, @NotNull File file) {
+    private List<String> parsed(@NotNull CommandTemplate command, @NotNull File file) {
         if (command.contains(FILE_TAG) && file.isFile()) {
             assert supportsFileType(file);
-            command = command.replaceAll(FILE_TAG, Matcher.quoteReplacement(quoted(file)));
+            return command.with(FILE_TAG, pathOf(file)).tokens();
         } else if (command.contains(DIRECTORY_TAG) && file.isDirectory()) {
-            command = command.replaceAll(DIRECTORY_TAG, Matcher.quoteReplacement(quoted(file)));
+            return command.with(DIRECTORY_TAG, pathOf(file)).tokens();
         } else {
             throw new IllegalArgumentException("command '" + command + "',  file '" + file + "'");
         }
-        return command;
     }
 
     @NotNull
-    private String parsed(@NotNull String command, @NotNull File[] files) {
-        if (command.contains(FILES_TAG) && areFiles(files)) {
-            command = command.replaceAll(FILES_TAG, Matcher.quoteReplacement(quotedListOf(files)));
-        } else {
+    private List<List<String>> parsed(@NotNull CommandTemplate command, @NotNull File[] files) {
+        if (!command.contains(FILES_TAG) || !areFiles(files)) {
             throw new IllegalArgumentException("command '" + command + "',  file '" + Arrays.toString(files) + "'");
         }
-        return command;
+        if (files.length == 0) {
+            throw new IllegalArgumentException("No files");
+        }
+        List<String> paths = pathsOf(Arrays.asList(files));
+        long fixedLength = 0;
+        for (String argument : command.argumentsWithout(FILES_TAG)) {
+            fixedLength += splitter.lengthOf(argument);
+        }
+        // the tag may be in many arguments, so each path is measured by all of the arguments it will be put into
+        List<Long> lengths = new ArrayList<Long>(paths.size());
+        for (String path : paths) {
+            long length = 0;
+            for (String argument : command.argumentsFor(FILES_TAG, Collections.singletonList(path))) {
+                length += splitter.lengthOf(argument);
+            }
+            lengths.add(length);
+        }
+        List<List<String>> commands = new ArrayList<List<String>>();
+        for (List<String> somePaths : splitter.split(fixedLength, paths, lengths)) {
+            commands.add(command.with(FILES_TAG, somePaths).tokens());
+        }
+        return commands;
+    }
+
+    @NotNull
+    private List<File> checkedFiles(@NotNull File... files) {
+        if (!areFiles(files)) {
+            throw new IllegalArgumentException("files '" + Arrays.toString(files) + "'");
+        }
+        if (files.length == 0) {
+            throw new IllegalArgumentException("No files");
+        }
+        return Arrays.asList(files);
+    }
+
+    @NotNull
+    private static List<String> pathsOf(@NotNull List<File> files) {
+        List<String> paths = new ArrayList<String>(files.size());
+        for (File file : files) {
+            paths.add(pathOf(file));
+        }
+        return paths;
+    }
+
+    @Nullable
+    private static CommandTemplate templateOf(@Nullable String command) {
+        return command == null ? null : new CommandTemplate(command);
+    }
+
+    @NotNull
+    private static String pathOf(@NotNull File file) {
+        return canonicalFile(file).getPath();
     }
 
     private boolean areFiles(@NotNull File[] files) {
@@ -17,6 +17,7 @@
 
 package net.orfjackal.extformatter;
 
+import net.orfjackal.extformatter.util.*;
 import org.jetbrains.annotations.*;
 
 /**
@@ -32,12 +33,21 @@ public class CommandLineCodeFormatterFactory implements CodeFormatterFactory<Com
     @Nullable private String manyFilesCommand;
     @Nullable private String directoryCommand;
     @Nullable private String recursiveCommand;
+    @Nullable private String daemonCommand;
+    private long maxCommandLineLength = CommandLineSplitter.defaultMaxLength();
+    @NotNull private ProcessPool processPool = new ProcessPool();
 
     @Nullable
     public CommandLineCodeFormatter newFormatter() {
+        if (daemonCommand != null) {
+            return new CommandLineCodeFormatter(supportedFileTypes,
+                    new FormatterDaemon(daemonCommand, processPool), directoryCommand, recursiveCommand,
+                    new ProcessExecutorImpl(processPool), new CommandLineSplitter(maxCommandLineLength));
+        }
         if (oneFileCommand != null || manyFilesCommand != null || directoryCommand != null || recursiveCommand != null) {
             return new CommandLineCodeFormatter(supportedFileTypes,
-                    oneFileCommand, manyFilesCommand, directoryCommand, recursiveCommand);
+                    oneFileCommand, manyFilesCommand, directoryCommand, recursiveCommand,
+                    new ProcessExecutorImpl(processPool), new CommandLineSplitter(maxCommandLineLength));
         } else {
             return null;
         }
@@ -68,6 +78,28 @@ public class CommandLineCodeFormatterFactory implements CodeFormatterFactory<Com
         this.recursiveCommand = recursiveCommand;
     }
 
+    /**
+     * Enables the daemon mode, in which the command starts a server which reformats the files.
+     * See {@link FormatterDaemon} for the protocol.
+     */
+    public void setDaemonCommand(@Nullable String daemonCommand) {
+        assert notEmpty(daemonCommand);
+        this.daemonCommand = daemonCommand;
+    }
+
+    public void setMaxCommandLineLength(long maxCommandLineLength) {
+        assert maxCommandLineLength > 0;
+        this.maxCommandLineLength = maxCommandLineLength;
+    }
+
+    /**
+     * Limits how many of the formatter's processes may run at the same time, and for how long.
+     * In the daemon mode the timeout limits how long the daemon may take to answer a request.
+     */
+    public void setProcessPool(@NotNull ProcessPool processPool) {
+        this.processPool = processPool;
+    }
+
     private static boolean notEmpty(@Nullable String s) {
         return s == null || s.length() > 0;
     }
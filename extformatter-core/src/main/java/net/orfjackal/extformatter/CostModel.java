@@ -0,0 +1,39 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Estimates how expensive it is to reformat files with a {@link CodeFormatter}'s reformat methods,
+ * so that {@link OptimizingReformatQueue} can choose the cheapest combination of method calls.
+ * A {@link CodeFormatter} may implement this interface to provide its own estimates.
+ *
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+public interface CostModel {
+
+    /**
+     * @param method         the reformat method which will be called.
+     * @param fileCount      the number of files which the call will reformat.
+     * @param argumentLength the total length of the file and directory paths given to the call.
+     * @return the estimated duration of the call in milliseconds.
+     */
+    double costOf(@NotNull ReformatMethod method, int fileCount, long argumentLength);
+}
@@ -20,7 +20,7 @@ package net.orfjackal.extformatter;
 import net.orfjackal.extformatter.util.*;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.*;
+import java.io.File;
 import java.util.*;
 
 /**
@@ -29,22 +29,35 @@ import java.util.*;
  * @author Esko Luontola
  * @since 1.12.2007
  */
-public class EclipseCodeFormatter implements CodeFormatter {
+public class EclipseCodeFormatter implements CodeFormatter, CostModel {
 
     public static final String SUPPORTED_FILE_TYPES = "*.java";
 
+    // Starting Eclipse takes many seconds, after which reformatting a file is fast
+    private static final double STARTUP_COST = 8000;
+    private static final double COST_PER_FILE = 20;
+    private static final double COST_PER_ARGUMENT_CHAR = 0.001;
+
     @NotNull private final File eclipseExecutable;
     @NotNull private final File eclipsePrefs;
-    @NotNull private final ProcessExecutor2 executor;
+    @NotNull private final ProcessExecutor executor;
+    @NotNull private final CommandLineSplitter splitter;
+    @NotNull private final CostModel costs = new LinearCostModel(STARTUP_COST, COST_PER_FILE, COST_PER_ARGUMENT_CHAR);
 
-    public EclipseCodeFormatter(@NotNull File eclipseExecutable, @NotNull File eclipsePrefs, @NotNull ProcessExecutor2 executor) {
+    public EclipseCodeFormatter(@NotNull File eclipseExecutable, @NotNull File eclipsePrefs,
+                                @NotNull ProcessExecutor executor, @NotNull CommandLineSplitter splitter) {
         this.eclipseExecutable = eclipseExecutable;
         this.eclipsePrefs = eclipsePrefs;
         this.executor = executor;
+        this.splitter = splitter;
+    }
+
+    public EclipseCodeFormatter(@NotNull File eclipseExecutable, @NotNull File eclipsePrefs, @NotNull ProcessExecutor executor) {
+        this(eclipseExecutable, eclipsePrefs, executor, new CommandLineSplitter());
     }
 
     public EclipseCodeFormatter(@NotNull File eclipseExecutable, @NotNull File eclipsePrefs) {
-        this(eclipseExecutable, eclipsePrefs, new ProcessExecutor2Impl());
+        this(eclipseExecutable, eclipsePrefs, new ProcessExecutorImpl());
     }
 
     public boolean supportsFileType(@NotNull File file) {
@@ -68,7 +81,15 @@ public class EclipseCodeFormatter implements CodeFormatter {
         for (File file : files) {
             assert supportsFileType(file);
         }
-        executor.executeAndWait(commandFor(files));
+        List<String> command = commandPrefix();
+        List<String> paths = new ArrayList<String>(files.length);
+        for (File file : files) {
+            paths.add(pathTo(file));
+        }
+        // Eclipse is slow to start, so use as few command lines as possible
+        for (List<String> someFiles : splitter.split(lengthOf(command), paths)) {
+            executor.executeAndWait(commandFor(command, someFiles));
+        }
     }
 
     public boolean supportsReformatDirectory() {
@@ -87,8 +108,37 @@ public class EclipseCodeFormatter implements CodeFormatter {
         executor.executeAndWait(commandFor(directory));
     }
 
+    public double costOf(@NotNull ReformatMethod method, int fileCount, long argumentLength) {
+        double cost = costs.costOf(method, fileCount, argumentLength);
+        if (method == ReformatMethod.MANY) {
+            cost += (splitter.minimumCommandLines(0, argumentLength) - 1) * STARTUP_COST;
+        }
+        return cost;
+    }
+
     @NotNull
-    private String[] commandFor(@NotNull File... files) {
+    private List<String> commandFor(@NotNull File file) {
+        return commandFor(commandPrefix(), Collections.singletonList(pathTo(file)));
+    }
+
+    @NotNull
+    private static List<String> commandFor(@NotNull List<String> commandPrefix, @NotNull List<String> paths) {
+        List<String> command = new ArrayList<String>(commandPrefix.size() + paths.size());
+        command.addAll(commandPrefix);
+        command.addAll(paths);
+        return command;
+    }
+
+    private long lengthOf(@NotNull List<String> arguments) {
+        long length = 0;
+        for (String argument : arguments) {
+            length += splitter.lengthOf(argument);
+        }
+        return length;
+    }
+
+    @NotNull
+    private List<String> commandPrefix() {
         /*
          *  Usage: eclipse -application org.eclipse.jdt.core.JavaCodeFormatter [ OPTIONS ] -config <configFile> <files>
          *
@@ -121,17 +171,10 @@ public class EclipseCodeFormatter implements CodeFormatter {
         command.add(pathTo(new File(System.getProperty("java.home"), "bin/java")));
         command.add("-config");
         command.add(pathTo(eclipsePrefs));
-        for (File file : files) {
-            command.add(pathTo(file));
-        }
-        return command.toArray(new String[command.size()]);
+        return command;
     }
 
     private static String pathTo(File file) {
-        try {
-            return file.getCanonicalPath();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        return FileUtil.canonicalFile(file).getPath();
     }
 }
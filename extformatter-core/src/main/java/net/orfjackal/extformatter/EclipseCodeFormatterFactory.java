@@ -17,6 +17,7 @@
 
 package net.orfjackal.extformatter;
 
+import net.orfjackal.extformatter.util.*;
 import org.jetbrains.annotations.*;
 
 import java.io.File;
@@ -31,11 +32,14 @@ public class EclipseCodeFormatterFactory implements CodeFormatterFactory<Eclipse
 
     @Nullable private File eclipseExecutable;
     @Nullable private File eclipsePrefs;
+    private long maxCommandLineLength = CommandLineSplitter.defaultMaxLength();
+    @NotNull private ProcessPool processPool = new ProcessPool();
 
     @Nullable
     public EclipseCodeFormatter newFormatter() {
         if (eclipseExecutable != null && eclipsePrefs != null) {
-            return new EclipseCodeFormatter(eclipseExecutable, eclipsePrefs);
+            return new EclipseCodeFormatter(eclipseExecutable, eclipsePrefs,
+                    new ProcessExecutorImpl(processPool), new CommandLineSplitter(maxCommandLineLength));
         } else {
             return null;
         }
@@ -50,4 +54,16 @@ public class EclipseCodeFormatterFactory implements CodeFormatterFactory<Eclipse
         assert eclipsePrefs.isFile() : "Not a file: " + eclipsePrefs;
         this.eclipsePrefs = eclipsePrefs;
     }
+
+    public void setMaxCommandLineLength(long maxCommandLineLength) {
+        assert maxCommandLineLength > 0;
+        this.maxCommandLineLength = maxCommandLineLength;
+    }
+
+    /**
+     * Limits how many of the formatter's processes may run at the same time, and for how long.
+     */
+    public void setProcessPool(@NotNull ProcessPool processPool) {
+        this.processPool = processPool;
+    }
 }
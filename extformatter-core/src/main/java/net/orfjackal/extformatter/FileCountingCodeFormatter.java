@@ -0,0 +1,48 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+
+/**
+ * A {@link CodeFormatter} which wants to know how many files a directory call reformats, for example
+ * to learn how long the call takes. {@link OptimizingReformatQueue} knows the counts from planning the calls,
+ * so it uses these methods when the formatter implements this interface. A formatter which wraps another
+ * formatter should implement this interface too and pass the counts on.
+ *
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+public interface FileCountingCodeFormatter extends CodeFormatter {
+
+    /**
+     * Like {@link #reformatDirectory(File)}.
+     *
+     * @param fileCount the number of files which the call will reformat.
+     */
+    void reformatDirectory(@NotNull File directory, int fileCount);
+
+    /**
+     * Like {@link #reformatRecursively(File)}.
+     *
+     * @param fileCount the number of files which the call will reformat.
+     */
+    void reformatRecursively(@NotNull File directory, int fileCount);
+}
@@ -0,0 +1,283 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter;
+
+import static net.orfjackal.extformatter.util.FileUtil.canonicalFile;
+import net.orfjackal.extformatter.util.FileUtil;
+import org.jetbrains.annotations.*;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Remembers the size, modification time and content hash of each file after it was formatted, so that
+ * unchanged files can be recognized from their file system attributes alone, without reading them.
+ * <p/>
+ * The index is a hash table with open addressing and linear probing, which is kept in a memory-mapped
+ * file, so opening the index does not require reading or deserializing it. The files are identified by
+ * a 64-bit hash of their canonical path. The table grows when it becomes half full. Like
+ * {@link FormattedContentCache}, the index is valid for only one formatter configuration, and the index
+ * is cleared when it is opened with another configuration. The index is thread-safe.
+ *
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+public class FormatStateIndex {
+
+    private static final int MAGIC = 0x45465331;  // "EFS1"
+    private static final int HEADER_SIZE = 32;
+    private static final int SLOT_SIZE = 32;
+    private static final int MIN_CAPACITY = 1024;
+    private static final long EMPTY = 0;
+
+    // header fields
+    private static final int MAGIC_OFFSET = 0;
+    private static final int CONFIGURATION_OFFSET = 8;
+    private static final int CAPACITY_OFFSET = 16;
+    private static final int COUNT_OFFSET = 20;
+
+    // slot fields
+    private static final int PATH_OFFSET = 0;
+    private static final int SIZE_OFFSET = 8;
+    private static final int MODIFIED_OFFSET = 16;
+    private static final int CONTENT_OFFSET = 24;
+
+    @NotNull private final RandomAccessFile file;
+    @NotNull private MappedByteBuffer table;
+    private int capacity;
+    private int count;
+
+    public FormatStateIndex(@NotNull File indexFile, @NotNull String configuration) throws IOException {
+        File dir = indexFile.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Unable to create directory " + dir);
+        }
+        long configurationHash = FileUtil.hashOf(configuration);
+        file = new RandomAccessFile(indexFile, "rw");
+        if (hasValidHeader(configurationHash)) {
+            table = map(sizeOf(capacity));
+        } else {
+            // truncate before mapping, or else the index would be reset again every time it is reopened
+            capacity = MIN_CAPACITY;
+            count = 0;
+            file.setLength(sizeOf(capacity));
+            table = map(sizeOf(capacity));
+            clearSlots();
+            table.putInt(MAGIC_OFFSET, MAGIC);
+            table.putLong(CONFIGURATION_OFFSET, configurationHash);
+            writeHeader();
+        }
+    }
+
+    private boolean hasValidHeader(long configurationHash) throws IOException {
+        if (file.length() < HEADER_SIZE) {
+            return false;
+        }
+        file.seek(MAGIC_OFFSET);
+        int magic = file.readInt();
+        file.seek(CONFIGURATION_OFFSET);
+        long configuration = file.readLong();
+        file.seek(CAPACITY_OFFSET);
+        capacity = file.readInt();
+        file.seek(COUNT_OFFSET);
+        count = file.readInt();
+        return magic == MAGIC
+                && configuration == configurationHash
+                && capacity >= MIN_CAPACITY
+                && Integer.bitCount(capacity) == 1
+                && file.length() == sizeOf(capacity);
+    }
+
+    /**
+     * Whether the file's size and modification time are the same as when it was last {@link #update}d.
+     */
+    public synchronized boolean isUnchanged(@NotNull File file) {
+        int slot = find(pathHashOf(file));
+        return slot >= 0
+                && table.getLong(offsetOf(slot) + SIZE_OFFSET) == file.length()
+                && table.getLong(offsetOf(slot) + MODIFIED_OFFSET) == file.lastModified();
+    }
+
+    /**
+     * The content hash which the file had when it was last {@link #update}d,
+     * or {@code null} if the file is not in the index.
+     */
+    @Nullable
+    public synchronized Long contentHashOf(@NotNull File file) {
+        int slot = find(pathHashOf(file));
+        return slot < 0 ? null : table.getLong(offsetOf(slot) + CONTENT_OFFSET);
+    }
+
+    /**
+     * Remembers the file's current state.
+     */
+    public void update(@NotNull File file) throws IOException {
+        update(file, FileUtil.contentHashOf(file));
+    }
+
+    /**
+     * Remembers the file's current state, when its content hash is already known.
+     */
+    public synchronized void update(@NotNull File file, long contentHash) throws IOException {
+        long pathHash = pathHashOf(file);
+        int slot = find(pathHash);
+        if (slot < 0) {
+            if (2 * (count + 1) > capacity) {
+                resize(2 * capacity);
+            }
+            slot = insertionSlotOf(pathHash);
+            count++;
+            writeHeader();
+        }
+        int offset = offsetOf(slot);
+        table.putLong(offset + PATH_OFFSET, pathHash);
+        table.putLong(offset + SIZE_OFFSET, file.length());
+        table.putLong(offset + MODIFIED_OFFSET, file.lastModified());
+        table.putLong(offset + CONTENT_OFFSET, contentHash);
+    }
+
+    public synchronized void remove(@NotNull File file) {
+        int slot = find(pathHashOf(file));
+        if (slot < 0) {
+            return;
+        }
+        // backward shift deletion, so that the probe sequences of the other entries stay unbroken
+        int mask = capacity - 1;
+        int hole = slot;
+        for (int i = (hole + 1) & mask; pathAt(i) != EMPTY; i = (i + 1) & mask) {
+            int home = homeSlotOf(pathAt(i));
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                copySlot(i, hole);
+                hole = i;
+            }
+        }
+        table.putLong(offsetOf(hole) + PATH_OFFSET, EMPTY);
+        count--;
+        writeHeader();
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Writes the changes to the disk.
+     */
+    public synchronized void force() {
+        table.force();
+    }
+
+    public synchronized void close() throws IOException {
+        table.force();
+        file.close();
+    }
+
+    private int find(long pathHash) {
+        int mask = capacity - 1;
+        for (int i = homeSlotOf(pathHash); ; i = (i + 1) & mask) {
+            long path = pathAt(i);
+            if (path == pathHash) {
+                return i;
+            }
+            if (path == EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    private int insertionSlotOf(long pathHash) {
+        int mask = capacity - 1;
+        int i = homeSlotOf(pathHash);
+        while (pathAt(i) != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void resize(int newCapacity) throws IOException {
+        int oldCapacity = capacity;
+        long[] entries = new long[oldCapacity * 4];
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            int offset = offsetOf(slot);
+            entries[slot * 4] = table.getLong(offset + PATH_OFFSET);
+            entries[slot * 4 + 1] = table.getLong(offset + SIZE_OFFSET);
+            entries[slot * 4 + 2] = table.getLong(offset + MODIFIED_OFFSET);
+            entries[slot * 4 + 3] = table.getLong(offset + CONTENT_OFFSET);
+        }
+        capacity = newCapacity;
+        table = map(sizeOf(capacity));
+        clearSlots();
+        for (int i = 0; i < entries.length; i += 4) {
+            if (entries[i] != EMPTY) {
+                int offset = offsetOf(insertionSlotOf(entries[i]));
+                table.putLong(offset + PATH_OFFSET, entries[i]);
+                table.putLong(offset + SIZE_OFFSET, entries[i + 1]);
+                table.putLong(offset + MODIFIED_OFFSET, entries[i + 2]);
+                table.putLong(offset + CONTENT_OFFSET, entries[i + 3]);
+            }
+        }
+        writeHeader();
+    }
+
+    private void clearSlots() {
+        for (int slot = 0; slot < capacity; slot++) {
+            table.putLong(offsetOf(slot) + PATH_OFFSET, EMPTY);
+        }
+    }
+
+    private void copySlot(int from, int to) {
+        for (int field = 0; field < SLOT_SIZE; field += 8) {
+            table.putLong(offsetOf(to) + field, table.getLong(offsetOf(from) + field));
+        }
+    }
+
+    private void writeHeader() {
+        table.putInt(CAPACITY_OFFSET, capacity);
+        table.putInt(COUNT_OFFSET, count);
+    }
+
+    @NotNull
+    private MappedByteBuffer map(long size) throws IOException {
+        return file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private long pathAt(int slot) {
+        return table.getLong(offsetOf(slot) + PATH_OFFSET);
+    }
+
+    private int homeSlotOf(long pathHash) {
+        // the low bits of FNV-1a are not well mixed
+        long h = pathHash ^ (pathHash >>> 32);
+        h ^= h >>> 16;
+        return (int) h & (capacity - 1);
+    }
+
+    private static int offsetOf(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private static long sizeOf(int capacity) {
+        return HEADER_SIZE + (long) capacity * SLOT_SIZE;
+    }
+
+    private static long pathHashOf(@NotNull File file) {
+        long hash = FileUtil.hashOf(canonicalFile(file).getPath());
+        return hash == EMPTY ? 1 : hash;
+    }
+}
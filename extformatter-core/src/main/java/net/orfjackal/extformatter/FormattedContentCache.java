@@ -0,0 +1,176 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter;
+
+import net.orfjackal.extformatter.util.FileUtil;
+import org.jetbrains.annotations.*;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Remembers the contents of the files which a formatter has produced, identified by a hash of the contents,
+ * so that files which are already formatted do not need to be reformatted. Since the files are identified
+ * by their contents and not by their paths, also copies of the files are recognized.
+ * <p/>
+ * The cache is valid for only one formatter configuration. When the cache is loaded, the saved hashes
+ * are ignored if they were saved for another configuration. Only the most recently formatted files
+ * are remembered. The cache is thread-safe.
+ * <p/>
+ * If the cache has a {@link FormatStateIndex}, the files which have not been modified since they were
+ * formatted are recognized without reading their contents.
+ *
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+public class FormattedContentCache {
+
+    private static final int MAGIC = 0x45464331;  // "EFC1"
+    private static final int DEFAULT_MAX_ENTRIES = 200000;
+
+    private final long configurationHash;
+    @NotNull private final Map<Long, Boolean> hashes;
+    @Nullable private volatile FormatStateIndex index;
+
+    public FormattedContentCache(@NotNull String configuration) {
+        this(configuration, DEFAULT_MAX_ENTRIES);
+    }
+
+    public FormattedContentCache(@NotNull String configuration, final int maxEntries) {
+        this.configurationHash = FileUtil.hashOf(configuration);
+        this.hashes = new LinkedHashMap<Long, Boolean>() {
+            protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Uses the index for recognizing unmodified files. The index should be for the same configuration.
+     */
+    public void setIndex(@Nullable FormatStateIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * Whether the file's current contents are the same as the output of an earlier reformat.
+     */
+    public boolean isFormatted(@NotNull File file) {
+        if (!file.isFile()) {
+            return false;
+        }
+        FormatStateIndex index = this.index;
+        if (index != null && index.isUnchanged(file)) {
+            return true;
+        }
+        Long hash = contentHashOf(file);
+        synchronized (hashes) {
+            return hashes.containsKey(hash);
+        }
+    }
+
+    /**
+     * Remembers the file's current contents as the output of a reformat.
+     */
+    public void markFormatted(@NotNull File file) {
+        if (!file.isFile()) {
+            return;
+        }
+        Long hash = contentHashOf(file);
+        synchronized (hashes) {
+            hashes.remove(hash);
+            hashes.put(hash, Boolean.TRUE);
+        }
+        FormatStateIndex index = this.index;
+        if (index != null) {
+            try {
+                index.update(file, hash);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (hashes) {
+            return hashes.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (hashes) {
+            hashes.clear();
+        }
+    }
+
+    /**
+     * Adds the hashes saved with {@link #save}, if they were saved for the same configuration.
+     * Does nothing if the file does not exist or is not a valid cache file.
+     */
+    public void load(@NotNull File cacheFile) throws IOException {
+        if (!cacheFile.isFile()) {
+            return;
+        }
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+        try {
+            if (in.readInt() != MAGIC || in.readLong() != configurationHash) {
+                return;
+            }
+            int count = in.readInt();
+            synchronized (hashes) {
+                for (int i = 0; i < count; i++) {
+                    hashes.put(in.readLong(), Boolean.TRUE);
+                }
+            }
+        } catch (EOFException e) {
+            // truncated file, keep what was read
+        } finally {
+            in.close();
+        }
+    }
+
+    public void save(@NotNull File cacheFile) throws IOException {
+        File dir = cacheFile.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Unable to create directory " + dir);
+        }
+        List<Long> snapshot;
+        synchronized (hashes) {
+            snapshot = new ArrayList<Long>(hashes.keySet());
+        }
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(cacheFile)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeLong(configurationHash);
+            out.writeInt(snapshot.size());
+            for (Long hash : snapshot) {
+                out.writeLong(hash);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private static long contentHashOf(@NotNull File file) {
+        try {
+            return FileUtil.contentHashOf(file);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * {@link CostModel} which learns the startup cost and the cost per file of each reformat method from
+ * the observed durations of the calls. The estimates are a linear fit over the recent observations,
+ * where older observations weigh exponentially less, so the estimates follow changes in the environment.
+ * Until there are enough observations, the estimates are close to those of the initial cost model.
+ *
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+public class LearningCostModel implements CostModel {
+
+    // how much the earlier observations weigh when a new observation is recorded
+    private static final double DECAY = 0.8;
+    // the initial cost model is represented by two observations with these file counts
+    private static final int[] PRIOR_FILE_COUNTS = {0, 100};
+
+    @NotNull private final CostModel initial;
+    @NotNull private final Observations[] observations = new Observations[ReformatMethod.values().length];
+
+    public LearningCostModel(@NotNull CostModel initial) {
+        this.initial = initial;
+        for (ReformatMethod method : ReformatMethod.values()) {
+            observations[method.ordinal()] = priorOf(method);
+        }
+    }
+
+    @NotNull
+    private Observations priorOf(@NotNull ReformatMethod method) {
+        Observations prior = new Observations();
+        for (int fileCount : PRIOR_FILE_COUNTS) {
+            prior.add(fileCount, initial.costOf(method, fileCount, 0));
+        }
+        return prior;
+    }
+
+    /**
+     * @param method        the reformat method which was called.
+     * @param fileCount     the number of files which the call reformatted.
+     * @param elapsedMillis how long the call took.
+     */
+    public synchronized void record(@NotNull ReformatMethod method, int fileCount, long elapsedMillis) {
+        Observations obs = observations[method.ordinal()];
+        obs.decay(DECAY);
+        obs.add(fileCount, elapsedMillis);
+    }
+
+    public synchronized double costOf(@NotNull ReformatMethod method, int fileCount, long argumentLength) {
+        Observations obs = observations[method.ordinal()];
+        // the observations do not tell about the argument length, so that part is left to the initial model
+        double argumentCost = initial.costOf(method, 0, argumentLength) - initial.costOf(method, 0, 0);
+        return obs.startupCost() + obs.costPerFile() * fileCount + argumentCost;
+    }
+
+    public synchronized double getStartupCost(@NotNull ReformatMethod method) {
+        return observations[method.ordinal()].startupCost();
+    }
+
+    public synchronized double getCostPerFile(@NotNull ReformatMethod method) {
+        return observations[method.ordinal()].costPerFile();
+    }
+
+    /**
+     * Saves what has been learned, so that it can be restored with {@link #load}.
+     */
+    @NotNull
+    public synchronized String asString() {
+        StringBuilder sb = new StringBuilder();
+        for (ReformatMethod method : ReformatMethod.values()) {
+            if (sb.length() > 0) {
+                sb.append(';');
+            }
+            sb.append(method.name()).append('=').append(observations[method.ordinal()]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Restores what was saved with {@link #asString}. Unrecognized parts are ignored.
+     */
+    public synchronized void load(@NotNull String saved) {
+        for (String part : saved.split(";")) {
+            String[] nameAndValues = part.split("=");
+            if (nameAndValues.length != 2) {
+                continue;
+            }
+            try {
+                ReformatMethod method = ReformatMethod.valueOf(nameAndValues[0].trim());
+                observations[method.ordinal()] = Observations.parse(nameAndValues[1]);
+            } catch (IllegalArgumentException e) {
+                // unknown method or malformed number; keep the current estimates
+            }
+        }
+    }
+
+    /**
+     * Weighted sums for a least squares fit of {@code duration = startupCost + costPerFile * fileCount}.
+     */
+    private static class Observations {
+
+        private double weight;
+        private double sumN;
+        private double sumT;
+        private double sumNN;
+        private double sumNT;
+
+        public void add(double n, double t) {
+            weight += 1;
+            sumN += n;
+            sumT += t;
+            sumNN += n * n;
+            sumNT += n * t;
+        }
+
+        public void decay(double factor) {
+            weight *= factor;
+            sumN *= factor;
+            sumT *= factor;
+            sumNN *= factor;
+            sumNT *= factor;
+        }
+
+        public double costPerFile() {
+            double meanN = sumN / weight;
+            double meanT = sumT / weight;
+            double variance = sumNN / weight - meanN * meanN;
+            if (variance <= 0) {
+                return 0;
+            }
+            double covariance = sumNT / weight - meanN * meanT;
+            return Math.max(0, covariance / variance);
+        }
+
+        public double startupCost() {
+            return Math.max(0, (sumT - costPerFile() * sumN) / weight);
+        }
+
+        public String toString() {
+            return weight + "," + sumN + "," + sumT + "," + sumNN + "," + sumNT;
+        }
+
+        @NotNull
+        public static Observations parse(@NotNull String s) {
+            String[] values = s.split(",");
+            if (values.length != 5) {
+                throw new IllegalArgumentException(s);
+            }
+            Observations obs = new Observations();
+            obs.weight = Double.parseDouble(values[0]);
+            obs.sumN = Double.parseDouble(values[1]);
+            obs.sumT = Double.parseDouble(values[2]);
+            obs.sumNN = Double.parseDouble(values[3]);
+            obs.sumNT = Double.parseDouble(values[4]);
+            if (!(obs.weight > 0)) {
+                throw new IllegalArgumentException(s);
+            }
+            return obs;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * {@link CostModel} where each call has a startup cost (starting a new process) and then
+ * the cost grows linearly with the number of files and the length of the command line arguments.
+ *
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+public class LinearCostModel implements CostModel {
+
+    private final double[] startupCost = new double[ReformatMethod.values().length];
+    private final double[] costPerFile = new double[ReformatMethod.values().length];
+    private final double[] costPerArgumentChar = new double[ReformatMethod.values().length];
+
+    public LinearCostModel(double startupCost, double costPerFile, double costPerArgumentChar) {
+        for (ReformatMethod method : ReformatMethod.values()) {
+            setCost(method, startupCost, costPerFile, costPerArgumentChar);
+        }
+    }
+
+    public void setCost(@NotNull ReformatMethod method, double startupCost, double costPerFile, double costPerArgumentChar) {
+        this.startupCost[method.ordinal()] = startupCost;
+        this.costPerFile[method.ordinal()] = costPerFile;
+        this.costPerArgumentChar[method.ordinal()] = costPerArgumentChar;
+    }
+
+    public double costOf(@NotNull ReformatMethod method, int fileCount, long argumentLength) {
+        int i = method.ordinal();
+        return startupCost[i]
+                + costPerFile[i] * fileCount
+                + costPerArgumentChar[i] * argumentLength;
+    }
+}
@@ -17,25 +17,68 @@
 
 package net.orfjackal.extformatter;
 
+import static net.orfjackal.extformatter.util.FileUtil.canonicalFile;
 import net.orfjackal.extformatter.util.*;
-import org.jetbrains.annotations.*;
+import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Uses as few reformat method calls as possible to reformat all the queued files.
+ * The chosen calls can be inspected with {@link #plan()} before they are executed.
+ * The calls are chosen by their estimated cost. If the formatter implements {@link CostModel},
+ * its estimates are used; otherwise all methods are assumed to have the same cost.
+ * <p/>
+ * The calls are independent of each other, because no file is reformatted by more than one call.
+ * If the parallelism is more than 1, the calls are executed concurrently, in which case the formatter
+ * must be thread-safe. Then a failing call does not stop the other calls, but all failures are reported
+ * together after the flush with a {@link ReformatFailedException}. The files which a failed flush did not
+ * reformat are left in the queue, so the caller can tell them apart with {@link #getQueuedFiles()}.
+ * <p/>
+ * Directories which contain {@link ExcludedFiles} are not reformatted as a whole, so that the formatter would
+ * not reformat the excluded files, and the excluded directories are not searched when planning the calls.
+ * Excluded files which were queued explicitly are reformatted normally.
+ * <p/>
+ * The queue is thread-safe. Queueing files never blocks, not even while a flush is running,
+ * because a flush takes the files out of the queue before it starts the formatter.
  *
  * @author Esko Luontola
  * @since 7.12.2007
  */
 public class OptimizingReformatQueue implements ReformatQueue {
 
+    private static final double DEFAULT_STARTUP_COST = 1000;
+    private static final double DEFAULT_COST_PER_FILE = 10;
+
     @NotNull private final CodeFormatter formatter;
-    @NotNull private final List<File> fileQueue = new ArrayList<File>();
+    @NotNull private final ReformatPlanner planner;
+    @NotNull private final Queue<File> fileQueue = new ConcurrentLinkedQueue<File>();
+    private volatile int parallelism = 1;
 
-    public OptimizingReformatQueue(@NotNull CodeFormatter formatter) {
+    public OptimizingReformatQueue(@NotNull CodeFormatter formatter, @NotNull CostModel costs, @NotNull ExcludedFiles excluded) {
         this.formatter = formatter;
+        this.planner = new ReformatPlanner(formatter, costs, excluded);
+    }
+
+    public OptimizingReformatQueue(@NotNull CodeFormatter formatter, @NotNull CostModel costs) {
+        this(formatter, costs, ExcludedFiles.NONE);
+    }
+
+    public OptimizingReformatQueue(@NotNull CodeFormatter formatter) {
+        this(formatter, defaultCostsOf(formatter));
+    }
+
+    /**
+     * The formatter's own estimates if it implements {@link CostModel}, otherwise the same cost for all methods.
+     */
+    @NotNull
+    public static CostModel defaultCostsOf(@NotNull CodeFormatter formatter) {
+        if (formatter instanceof CostModel) {
+            return (CostModel) formatter;
+        }
+        return new LinearCostModel(DEFAULT_STARTUP_COST, DEFAULT_COST_PER_FILE, 0);
     }
 
     public boolean supportsFileType(@NotNull File file) {
@@ -51,152 +94,193 @@ public class OptimizingReformatQueue implements ReformatQueue {
         fileQueue.add(file);
     }
 
+    /**
+     * The files which are waiting for the next flush.
+     */
+    @NotNull
+    public List<File> getQueuedFiles() {
+        return new ArrayList<File>(fileQueue);
+    }
+
     public boolean isEmpty() {
         return fileQueue.isEmpty();
     }
 
-    public void flush() {
-        fileQueue.removeAll(useReformatMany());
-        fileQueue.removeAll(useReformatRecursively());
-        fileQueue.removeAll(useReformatDirectory());
-        fileQueue.removeAll(useReformatOne());
-        mustBeEmpty(fileQueue);
+    public int getParallelism() {
+        return parallelism;
     }
 
-    @NotNull
-    private List<File> useReformatOne() {
-        List<File> reformatted = new ArrayList<File>();
-        if (formatter.supportsReformatOne()) {
-            for (File file : fileQueue) {
-                formatter.reformatOne(file);
-                reformatted.add(file);
-            }
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism: " + parallelism);
         }
-        return reformatted;
+        this.parallelism = parallelism;
     }
 
+    /**
+     * Plans how the queued files would be reformatted, without reformatting them
+     * or removing them from the queue.
+     */
     @NotNull
-    private List<File> useReformatMany() {
-        List<File> reformatted = new ArrayList<File>();
-        if (formatter.supportsReformatMany() && fileQueue.size() > 0) {
-            formatter.reformatMany(toArray(fileQueue));
-            reformatted.addAll(fileQueue);
-        }
-        return reformatted;
+    public ReformatPlan plan() {
+        return planner.plan(withoutDuplicates(fileQueue));
     }
 
-    @NotNull
-    private List<File> useReformatDirectory() {
-        List<File> reformatted = new ArrayList<File>();
-        if (formatter.supportsReformatDirectory()) {
-            Map<File, List<File>> groups = groupByDirectory(fileQueue);
-            for (Map.Entry<File, List<File>> group : groups.entrySet()) {
-                File directory = group.getKey();
-                List<File> files = group.getValue();
-                if (noOthersInTheSameDirectory(directory, files)) {
-                    formatter.reformatDirectory(directory);
-                    reformatted.addAll(files);
-                }
-            }
+    /**
+     * Executes a plan which was made earlier with {@link #plan()}. The plan's files are taken out of the
+     * queue before they are reformatted, the same way as {@link #flush()} does, and the files which could
+     * not be reformatted are put back into the queue.
+     *
+     * @throws IllegalStateException if some of the plan's files are no longer queued, for example because
+     *                               they were already flushed or the plan was already executed.
+     *                               Then nothing is reformatted.
+     */
+    public void execute(@NotNull ReformatPlan plan) {
+        List<File> files = plan.getFiles();
+        takeFromQueue(files);
+        Set<File> reformatted = new HashSet<File>();
+        try {
+            execute(plan, reformatted);
+        } finally {
+            fileQueue.addAll(notReformatted(files, reformatted));
         }
-        return reformatted;
     }
 
-    @NotNull
-    private List<File> useReformatRecursively() {
-        List<File> reformatted = new ArrayList<File>();
-        if (formatter.supportsReformatRecursively()) {
-            File directory = commonParentDirectory(fileQueue);
-            if (directory != null && noOthersInTheSameDirectoryTree(directory, fileQueue)) {
-                formatter.reformatRecursively(directory);
-                reformatted.addAll(fileQueue);
+    /**
+     * Plans how to reformat the files which are in the queue right now, and executes the plan.
+     */
+    public void flush() {
+        List<File> files = drainQueue();
+        Set<File> reformatted = new HashSet<File>();
+        boolean failed = true;
+        try {
+            execute(planner.plan(files), reformatted);
+            failed = false;
+        } finally {
+            if (failed) {
+                // retry on the next flush
+                fileQueue.addAll(notReformatted(files, reformatted));
             }
         }
-        return reformatted;
+        mustBeEmpty(notReformatted(files, reformatted));
     }
 
-    private static void mustBeEmpty(@NotNull List<File> files) {
-        if (!files.isEmpty()) {
-            try {
-                throw new IllegalStateException("The following files could not be reformatted: " + files);
-            } finally {
-                files.clear();
+    private void execute(@NotNull ReformatPlan plan, @NotNull Set<File> reformatted) {
+        List<ReformatCall> calls = plan.getCalls();
+        if (parallelism > 1 && calls.size() > 1) {
+            executeInParallel(calls, reformatted);
+        } else {
+            for (ReformatCall call : calls) {
+                call.execute(formatter);
+                reformatted.addAll(call.getFiles());
             }
         }
     }
 
-    private boolean noOthersInTheSameDirectoryTree(@NotNull File directory, @NotNull List<File> files) {
-        if (!noOthersInTheSameDirectory(directory, files)) {
-            return false;
-        }
-        File[] subDirs = directory.listFiles(new Directories());
-        for (File subDir : subDirs) {
-            if (!noOthersInTheSameDirectoryTree(subDir, files)) {
-                return false;
-            }
+    /**
+     * Takes the files which are in the queue right now. Files which are queued
+     * during the flush are left in the queue for the next flush.
+     */
+    @NotNull
+    private List<File> drainQueue() {
+        List<File> files = new ArrayList<File>();
+        File file;
+        while ((file = fileQueue.poll()) != null) {
+            files.add(file);
         }
-        return true;
+        return withoutDuplicates(files);
     }
 
-    private boolean noOthersInTheSameDirectory(@NotNull File directory, @NotNull List<File> files) {
-        File[] allFilesInDir = directory.listFiles(new FilesSupportedBy(this));
-        for (File fileInDir : allFilesInDir) {
-            if (!files.contains(fileInDir)) {
-                return false;
+    /**
+     * If the same file was queued many times, possibly with different paths, it is taken only once.
+     */
+    @NotNull
+    private static List<File> withoutDuplicates(@NotNull Collection<File> files) {
+        Map<File, File> unique = new LinkedHashMap<File, File>();
+        for (File file : files) {
+            File canonical = canonicalFile(file);
+            if (!unique.containsKey(canonical)) {
+                unique.put(canonical, file);
             }
         }
-        return true;
+        return new ArrayList<File>(unique.values());
     }
 
-    @Nullable
-    private static File commonParentDirectory(@NotNull List<File> files) {
-        // Assumes that the common parent directory contains some files.
-        // Otherwise there should be some check that this does not go
-        // up to the root directory and possibly by accident reformat
-        // files outside the project source directories.
-        File commonParent = null;
+    /**
+     * Removes all queued copies of the files from the queue, or nothing if some of the files are not queued.
+     */
+    private void takeFromQueue(@NotNull List<File> files) {
+        Set<File> planned = new HashSet<File>();
         for (File file : files) {
-            if (commonParent == null) {
-                commonParent = file.getParentFile();
-            }
-            if (isParent(file.getParentFile(), commonParent)) {
-                commonParent = file.getParentFile();
-            }
+            planned.add(canonicalFile(file));
         }
-        return commonParent;
-    }
-
-    private static boolean isParent(@NotNull File parent, @NotNull File child) {
-        for (File dir = child; dir.getParentFile() != null; dir = dir.getParentFile()) {
-            if (dir.equals(parent)) {
-                return true;
+        Set<File> found = new HashSet<File>();
+        List<File> taken = new ArrayList<File>();
+        for (File queued : fileQueue) {
+            File canonical = canonicalFile(queued);
+            // a concurrent flush may take the file first, in which case it is not found here
+            if (planned.contains(canonical) && fileQueue.remove(queued)) {
+                taken.add(queued);
+                found.add(canonical);
             }
         }
-        return false;
+        if (found.size() < planned.size()) {
+            fileQueue.addAll(taken);
+            planned.removeAll(found);
+            throw new IllegalStateException("The plan is out of date, because the following files are no longer queued: " + planned);
+        }
     }
 
     @NotNull
-    private static Map<File, List<File>> groupByDirectory(@NotNull List<File> files) {
-        Map<File, List<File>> groups = new HashMap<File, List<File>>();
+    private static List<File> notReformatted(@NotNull List<File> files, @NotNull Set<File> reformatted) {
+        List<File> result = new ArrayList<File>();
         for (File file : files) {
-            File directory = file.getParentFile();
-            putToList(groups, directory, file);
+            if (!reformatted.contains(file)) {
+                result.add(file);
+            }
         }
-        return groups;
+        return result;
     }
 
-    private static <T> void putToList(@NotNull Map<T, List<T>> map, @NotNull T key, @NotNull T value) {
-        List<T> list = map.get(key);
-        if (list == null) {
-            list = new ArrayList<T>();
-            map.put(key, list);
+    private void executeInParallel(@NotNull List<ReformatCall> calls, @NotNull Set<File> reformatted) {
+        // Starting the most expensive calls first keeps all threads busy until the end
+        List<ReformatCall> mostExpensiveFirst = new ArrayList<ReformatCall>(calls);
+        Collections.sort(mostExpensiveFirst, new Comparator<ReformatCall>() {
+            public int compare(ReformatCall c1, ReformatCall c2) {
+                return Double.compare(c2.getCost(), c1.getCost());
+            }
+        });
+        List<Runnable> tasks = new ArrayList<Runnable>();
+        for (final ReformatCall call : mostExpensiveFirst) {
+            tasks.add(new Runnable() {
+                public void run() {
+                    call.execute(formatter);
+                }
+            });
+        }
+        List<Throwable> results = ParallelTasks.runAll(tasks, parallelism);
+
+        List<Throwable> failures = new ArrayList<Throwable>();
+        StringBuilder message = new StringBuilder("The following reformat calls failed:");
+        for (int i = 0; i < mostExpensiveFirst.size(); i++) {
+            ReformatCall call = mostExpensiveFirst.get(i);
+            Throwable failure = results.get(i);
+            if (failure == null) {
+                reformatted.addAll(call.getFiles());
+            } else {
+                failures.add(failure);
+                message.append("\n").append(call).append(": ").append(failure);
+            }
+        }
+        if (!failures.isEmpty()) {
+            throw new ReformatFailedException(message.toString(), failures);
         }
-        list.add(value);
     }
 
-    @NotNull
-    private static File[] toArray(@NotNull List<File> files) {
-        return files.toArray(new File[files.size()]);
+    private static void mustBeEmpty(@NotNull List<File> files) {
+        if (!files.isEmpty()) {
+            throw new IllegalStateException("The following files could not be reformatted: " + files);
+        }
     }
 
     // Unsupported operations
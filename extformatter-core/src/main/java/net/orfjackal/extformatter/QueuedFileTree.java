@@ -0,0 +1,234 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter;
+
+import static net.orfjackal.extformatter.util.FileUtil.canonicalFile;
+import net.orfjackal.extformatter.util.*;
+import org.jetbrains.annotations.*;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * Trie of the directories which contain queued files. Knows which directories and directory trees
+ * contain no other supported files than the queued ones, so that they can be reformatted with
+ * {@link CodeFormatter#reformatDirectory} and {@link CodeFormatter#reformatRecursively}.
+ * <p/>
+ * The directories are identified by their canonical paths, so that the files are grouped correctly even
+ * when they were queued using different spellings of the same path. The queued files are kept in a hash
+ * index by their canonical path, so each directory is checked in time proportional to its size, and each
+ * directory is listed at most once during the lifetime of the tree.
+ * <p/>
+ * The {@link ExcludedFiles} are never searched. A directory which contains excluded files does not count as
+ * having no other files, because the formatter would not skip them, and likewise a directory tree which
+ * contains excluded subdirectories.
+ *
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+class QueuedFileTree {
+
+    @NotNull private final DirectoryListingCache listings;
+    @NotNull private final Set<File> queuedFiles = new HashSet<File>();
+    @NotNull private final Map<File, Node> nodes = new HashMap<File, Node>();
+    @NotNull private final List<Node> roots = new ArrayList<Node>();
+
+    public QueuedFileTree(@NotNull CodeFormatter formatter, @NotNull ExcludedFiles excluded, @NotNull Collection<File> files) {
+        this.listings = new DirectoryListingCache(formatter, excluded);
+        for (File file : files) {
+            File canonical = canonicalFile(file);
+            if (queuedFiles.add(canonical)) {
+                Node node = nodeFor(canonical.getParentFile());
+                node.files.add(file);
+                node.queuedCount++;
+            }
+        }
+    }
+
+    /**
+     * The common parent directories of the queued files. There may be more than one if the files are
+     * on different file system roots.
+     */
+    @NotNull
+    public List<Node> commonParents() {
+        List<Node> parents = new ArrayList<Node>();
+        for (Node root : roots) {
+            parents.add(commonParentOf(root));
+        }
+        return parents;
+    }
+
+    @NotNull
+    private static Node commonParentOf(@NotNull Node root) {
+        // Never go above the common parent directory of the queued files,
+        // so that files outside the project's source directories would not
+        // be reformatted by accident.
+        Node node = root;
+        while (node.files.isEmpty() && node.children.size() == 1) {
+            node = node.children.values().iterator().next();
+        }
+        return node;
+    }
+
+    @NotNull
+    private Node nodeFor(@NotNull File directory) {
+        Node node = nodes.get(directory);
+        if (node == null) {
+            node = new Node(directory);
+            nodes.put(directory, node);
+            File parentDir = directory.getParentFile();
+            if (parentDir != null) {
+                nodeFor(parentDir).children.put(directory, node);
+            } else {
+                roots.add(node);
+            }
+        }
+        return node;
+    }
+
+    private boolean noSupportedFilesIn(@NotNull File directory) {
+        File[] files = listings.supportedFilesIn(directory);
+        return files != null && files.length == 0 && !listings.containsExcludedFiles(directory);
+    }
+
+    private boolean noSupportedFilesInTree(@NotNull File directory) {
+        if (!noSupportedFilesIn(directory) || listings.containsExcludedDirectories(directory)) {
+            return false;
+        }
+        for (File subDir : listings.directoriesIn(directory)) {
+            if (!noSupportedFilesInTree(subDir)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A directory which contains queued files, directly or in its subdirectories.
+     */
+    public class Node {
+
+        @NotNull private final File directory;
+        @NotNull private final List<File> files = new ArrayList<File>();
+        @NotNull private final Map<File, Node> children = new LinkedHashMap<File, Node>();
+        private int queuedCount = 0;
+        private int queuedCountInTree = -1;
+        @Nullable private Boolean noOthersInTheSameDirectory;
+        @Nullable private Boolean noOthersInTheSameDirectoryTree;
+
+        private Node(@NotNull File directory) {
+            this.directory = directory;
+        }
+
+        @NotNull
+        public File getDirectory() {
+            return directory;
+        }
+
+        /**
+         * The queued files which are directly in this directory.
+         */
+        @NotNull
+        public List<File> getFiles() {
+            return Collections.unmodifiableList(files);
+        }
+
+        /**
+         * The subdirectories which contain queued files.
+         */
+        @NotNull
+        public Collection<Node> getChildren() {
+            return Collections.unmodifiableCollection(children.values());
+        }
+
+        /**
+         * The number of different files queued in this directory and its subdirectories.
+         */
+        public int queuedCountInTree() {
+            if (queuedCountInTree < 0) {
+                int count = queuedCount;
+                for (Node child : children.values()) {
+                    count += child.queuedCountInTree();
+                }
+                queuedCountInTree = count;
+            }
+            return queuedCountInTree;
+        }
+
+        /**
+         * Whether all supported files in this directory are queued.
+         */
+        public boolean noOthersInTheSameDirectory() {
+            if (noOthersInTheSameDirectory == null) {
+                noOthersInTheSameDirectory = allQueued(listings.supportedFilesIn(directory))
+                        && !listings.containsExcludedFiles(directory);
+            }
+            return noOthersInTheSameDirectory;
+        }
+
+        /**
+         * Whether all supported files in this directory and its subdirectories are queued.
+         */
+        public boolean noOthersInTheSameDirectoryTree() {
+            if (noOthersInTheSameDirectoryTree == null) {
+                noOthersInTheSameDirectoryTree = noOthersInTheSameDirectory() && noOthersInSubDirectories();
+            }
+            return noOthersInTheSameDirectoryTree;
+        }
+
+        private boolean noOthersInSubDirectories() {
+            File[] subDirs = listings.directoriesIn(directory);
+            if (subDirs == null || listings.containsExcludedDirectories(directory)) {
+                return false;
+            }
+            for (File subDir : subDirs) {
+                Node child = children.get(subDir);
+                if (child != null) {
+                    if (!child.noOthersInTheSameDirectoryTree()) {
+                        return false;
+                    }
+                } else if (!noSupportedFilesInTree(subDir)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean allQueued(@Nullable File[] allFilesInDir) {
+            if (allFilesInDir == null || allFilesInDir.length > queuedCount) {
+                return false;
+            }
+            for (File fileInDir : allFilesInDir) {
+                if (!queuedFiles.contains(fileInDir)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Adds all queued files in this directory and its subdirectories to the list.
+         */
+        public void collectFiles(@NotNull List<File> result) {
+            result.addAll(files);
+            for (Node child : children.values()) {
+                child.collectFiles(result);
+            }
+        }
+    }
+}
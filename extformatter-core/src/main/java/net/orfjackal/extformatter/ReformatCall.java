@@ -0,0 +1,111 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * One planned call to a {@link CodeFormatter}'s reformat method. Part of a {@link ReformatPlan}.
+ *
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+public class ReformatCall {
+
+    @NotNull private final ReformatMethod method;
+    @NotNull private final List<File> targets;
+    @NotNull private final List<File> files;
+    private final double cost;
+
+    ReformatCall(@NotNull ReformatMethod method, @NotNull List<File> targets, @NotNull List<File> files, double cost) {
+        this.method = method;
+        this.targets = targets;
+        this.files = files;
+        this.cost = cost;
+    }
+
+    /**
+     * The number of queued files is given to a {@link FileCountingCodeFormatter}, because the directory
+     * methods do not tell it otherwise.
+     */
+    void execute(@NotNull CodeFormatter formatter) {
+        switch (method) {
+            case ONE:
+                formatter.reformatOne(targets.get(0));
+                break;
+            case MANY:
+                formatter.reformatMany(targets.toArray(new File[targets.size()]));
+                break;
+            case DIRECTORY:
+                if (formatter instanceof FileCountingCodeFormatter) {
+                    ((FileCountingCodeFormatter) formatter).reformatDirectory(targets.get(0), files.size());
+                } else {
+                    formatter.reformatDirectory(targets.get(0));
+                }
+                break;
+            case RECURSIVELY:
+                if (formatter instanceof FileCountingCodeFormatter) {
+                    ((FileCountingCodeFormatter) formatter).reformatRecursively(targets.get(0), files.size());
+                } else {
+                    formatter.reformatRecursively(targets.get(0));
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unknown method: " + method);
+        }
+    }
+
+    /**
+     * The method which will be called.
+     */
+    @NotNull
+    public ReformatMethod getMethod() {
+        return method;
+    }
+
+    /**
+     * The files or directories which will be given to the method as parameters.
+     */
+    @NotNull
+    public List<File> getTargets() {
+        return Collections.unmodifiableList(targets);
+    }
+
+    /**
+     * The queued files which will be reformatted by the call.
+     */
+    @NotNull
+    public List<File> getFiles() {
+        return Collections.unmodifiableList(files);
+    }
+
+    /**
+     * Estimated cost of the call according to the {@link CostModel}.
+     */
+    public double getCost() {
+        return cost;
+    }
+
+    public String toString() {
+        String target = targets.size() == 1 ? targets.get(0).toString() : targets.size() + " files";
+        return method + " " + target + " (" + files.size() + " queued files, cost " + Math.round(cost) + ")";
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Thrown when some of the reformat method calls of a flush failed. The other calls were completed.
+ *
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+public class ReformatFailedException extends RuntimeException {
+
+    @NotNull private final List<Throwable> failures;
+
+    public ReformatFailedException(@NotNull String message, @NotNull List<Throwable> failures) {
+        super(message, failures.isEmpty() ? null : failures.get(0));
+        this.failures = Collections.unmodifiableList(new ArrayList<Throwable>(failures));
+    }
+
+    /**
+     * The exceptions thrown by the failed calls, in the order in which the calls were planned.
+     */
+    @NotNull
+    public List<Throwable> getFailures() {
+        return failures;
+    }
+}
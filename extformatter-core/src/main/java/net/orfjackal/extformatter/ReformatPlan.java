@@ -0,0 +1,86 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * The reformat method calls which {@link OptimizingReformatQueue} has chosen for reformatting the queued files.
+ * A plan can be inspected without reformatting anything, and executed later with
+ * {@link OptimizingReformatQueue#execute(ReformatPlan)}.
+ *
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+public class ReformatPlan {
+
+    @NotNull private final List<ReformatCall> calls;
+
+    ReformatPlan(@NotNull List<ReformatCall> calls) {
+        this.calls = Collections.unmodifiableList(new ArrayList<ReformatCall>(calls));
+    }
+
+    /**
+     * The calls in the order in which they will be executed.
+     * Each call starts the formatter once, unless the formatter needs to split its command line.
+     */
+    @NotNull
+    public List<ReformatCall> getCalls() {
+        return calls;
+    }
+
+    public boolean isEmpty() {
+        return calls.isEmpty();
+    }
+
+    /**
+     * All the queued files which will be reformatted by the plan.
+     */
+    @NotNull
+    public List<File> getFiles() {
+        List<File> files = new ArrayList<File>();
+        for (ReformatCall call : calls) {
+            files.addAll(call.getFiles());
+        }
+        return files;
+    }
+
+    /**
+     * Estimated cost of all the calls according to the {@link CostModel}.
+     */
+    public double getTotalCost() {
+        double sum = 0;
+        for (ReformatCall call : calls) {
+            sum += call.getCost();
+        }
+        return sum;
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(calls.size()).append(" calls, ")
+                .append(getFiles().size()).append(" files, total cost ").append(Math.round(getTotalCost()));
+        for (ReformatCall call : calls) {
+            sb.append("\n    ").append(call);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter;
+
+import static net.orfjackal.extformatter.ReformatMethod.*;
+import net.orfjackal.extformatter.util.ExcludedFiles;
+import org.jetbrains.annotations.*;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * Chooses the cheapest combination of reformat method calls, according to a {@link CostModel},
+ * for reformatting a set of files.
+ * <p/>
+ * Every directory tree whose supported files are all queued can be reformatted with one call to
+ * {@link CodeFormatter#reformatRecursively}, and every such directory with one call to
+ * {@link CodeFormatter#reformatDirectory}. The rest of the files are reformatted either with
+ * one call to {@link CodeFormatter#reformatMany} or with {@link CodeFormatter#reformatOne} for each file.
+ * When two alternatives cost the same, the one which reformats more files with a single call is used.
+ *
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+class ReformatPlanner {
+
+    @NotNull private final CodeFormatter formatter;
+    @NotNull private final CostModel costs;
+    @NotNull private final ExcludedFiles excluded;
+
+    public ReformatPlanner(@NotNull CodeFormatter formatter, @NotNull CostModel costs, @NotNull ExcludedFiles excluded) {
+        this.formatter = formatter;
+        this.costs = costs;
+        this.excluded = excluded;
+    }
+
+    /**
+     * Plans the calls for reformatting the files. If some of the files can not be
+     * reformatted with the methods supported by the formatter, they are not included in the plan.
+     */
+    @NotNull
+    public ReformatPlan plan(@NotNull Collection<File> files) {
+        if (files.isEmpty()) {
+            return new ReformatPlan(new ArrayList<ReformatCall>());
+        }
+        QueuedFileTree tree = new QueuedFileTree(formatter, excluded, files);
+        ReformatPlan best = null;
+        for (ReformatMethod remainingFiles : Arrays.asList(MANY, ONE)) {
+            if (remainingFiles.isSupportedBy(formatter)) {
+                ReformatPlan plan = new ReformatPlan(new Plan(tree, remainingFiles).calls());
+                if (best == null || plan.getTotalCost() < best.getTotalCost()) {
+                    best = plan;
+                }
+            }
+        }
+        if (best == null) {
+            best = new ReformatPlan(new Plan(tree, null).calls());
+        }
+        return best;
+    }
+
+    static long argumentLength(@NotNull File file) {
+        // the path, quotes around it and a separating space
+        return file.getPath().length() + 3;
+    }
+
+    private class Plan {
+
+        @NotNull private final QueuedFileTree tree;
+        @Nullable private final ReformatMethod remainingFiles;
+        @NotNull private final Map<QueuedFileTree.Node, ReformatMethod> decisions = new HashMap<QueuedFileTree.Node, ReformatMethod>();
+
+        public Plan(@NotNull QueuedFileTree tree, @Nullable ReformatMethod remainingFiles) {
+            this.tree = tree;
+            this.remainingFiles = remainingFiles;
+        }
+
+        @NotNull
+        public List<ReformatCall> calls() {
+            List<ReformatCall> calls = new ArrayList<ReformatCall>();
+            List<File> remaining = new ArrayList<File>();
+            for (QueuedFileTree.Node parent : tree.commonParents()) {
+                decide(parent);
+                collectCalls(parent, calls, remaining);
+            }
+            if (remainingFiles == MANY && !remaining.isEmpty()) {
+                calls.add(new ReformatCall(MANY, remaining, remaining, costOf(MANY, remaining)));
+            }
+            if (remainingFiles == ONE) {
+                for (File file : remaining) {
+                    List<File> one = Collections.singletonList(file);
+                    calls.add(new ReformatCall(ONE, one, one, costOf(ONE, one)));
+                }
+            }
+            return calls;
+        }
+
+        private void collectCalls(@NotNull QueuedFileTree.Node node, @NotNull List<ReformatCall> calls, @NotNull List<File> remaining) {
+            ReformatMethod decision = decisions.get(node);
+            if (decision == RECURSIVELY) {
+                List<File> files = new ArrayList<File>();
+                node.collectFiles(files);
+                calls.add(new ReformatCall(RECURSIVELY, target(node), files, costOfDirectory(RECURSIVELY, node)));
+                return;
+            }
+            if (decision == DIRECTORY) {
+                calls.add(new ReformatCall(DIRECTORY, target(node), node.getFiles(), costOfDirectory(DIRECTORY, node)));
+            } else {
+                remaining.addAll(node.getFiles());
+            }
+            for (QueuedFileTree.Node child : node.getChildren()) {
+                collectCalls(child, calls, remaining);
+            }
+        }
+
+        private double decide(@NotNull QueuedFileTree.Node node) {
+            double childrenCost = 0;
+            for (QueuedFileTree.Node child : node.getChildren()) {
+                childrenCost += decide(child);
+            }
+
+            ReformatMethod decision = null;
+            double ownCost = marginalCostOf(node.getFiles());
+            if (!node.getFiles().isEmpty() && canUse(DIRECTORY, node)) {
+                double directoryCost = costOfDirectory(DIRECTORY, node);
+                if (directoryCost <= ownCost) {
+                    decision = DIRECTORY;
+                    ownCost = directoryCost;
+                }
+            }
+            double cost = childrenCost + ownCost;
+            if (canUse(RECURSIVELY, node)) {
+                double recursiveCost = costOfDirectory(RECURSIVELY, node);
+                if (recursiveCost <= cost) {
+                    decision = RECURSIVELY;
+                    cost = recursiveCost;
+                }
+            }
+            decisions.put(node, decision);
+            return cost;
+        }
+
+        private boolean canUse(@NotNull ReformatMethod method, @NotNull QueuedFileTree.Node node) {
+            if (!method.isSupportedBy(formatter)) {
+                return false;
+            }
+            if (method == DIRECTORY) {
+                return node.noOthersInTheSameDirectory();
+            }
+            if (method == RECURSIVELY) {
+                return node.noOthersInTheSameDirectoryTree();
+            }
+            return true;
+        }
+
+        /**
+         * The cost of reformatting the files together with the other remaining files,
+         * excluding the startup cost which is paid only once.
+         */
+        private double marginalCostOf(@NotNull List<File> files) {
+            if (remainingFiles == null) {
+                return files.isEmpty() ? 0 : Double.POSITIVE_INFINITY;
+            }
+            double sum = 0;
+            for (File file : files) {
+                List<File> one = Collections.singletonList(file);
+                sum += costOf(remainingFiles, one);
+                if (remainingFiles == MANY) {
+                    sum -= costs.costOf(MANY, 0, 0);
+                }
+            }
+            return sum;
+        }
+
+        private double costOf(@NotNull ReformatMethod method, @NotNull List<File> files) {
+            long length = 0;
+            for (File file : files) {
+                length += argumentLength(file);
+            }
+            return costs.costOf(method, files.size(), length);
+        }
+
+        private double costOfDirectory(@NotNull ReformatMethod method, @NotNull QueuedFileTree.Node node) {
+            int fileCount = method == RECURSIVELY ? node.queuedCountInTree() : node.getFiles().size();
+            return costs.costOf(method, fileCount, argumentLength(node.getDirectory()));
+        }
+
+        @NotNull
+        private List<File> target(@NotNull QueuedFileTree.Node node) {
+            return Collections.singletonList(node.getDirectory());
+        }
+    }
+}
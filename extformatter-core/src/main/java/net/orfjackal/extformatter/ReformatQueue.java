@@ -27,5 +27,11 @@ public interface ReformatQueue extends CodeFormatter {
 
     boolean isEmpty();
 
+    /**
+     * The maximum number of reformat method calls which {@link #flush()} executes at the same time.
+     * If it is 1, the calls are executed one after another.
+     */
+    int getParallelism();
+
     void flush();
 }
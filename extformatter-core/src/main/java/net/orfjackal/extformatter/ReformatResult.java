@@ -0,0 +1,61 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter;
+
+import org.jetbrains.annotations.*;
+
+import java.io.File;
+
+/**
+ * Whether a file was reformatted by an {@link AsyncCodeFormatter}.
+ *
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+public class ReformatResult {
+
+    @NotNull private final File file;
+    @Nullable private final Throwable failure;
+
+    public ReformatResult(@NotNull File file, @Nullable Throwable failure) {
+        this.file = file;
+        this.failure = failure;
+    }
+
+    @NotNull
+    public File getFile() {
+        return file;
+    }
+
+    public boolean isSuccessful() {
+        return failure == null;
+    }
+
+    /**
+     * What was thrown when reformatting the file, or {@code null} if it was reformatted.
+     * When many files were reformatted with one call, they all have the same failure.
+     */
+    @Nullable
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    public String toString() {
+        return getClass().getSimpleName() + "[" + file + (failure == null ? "" : ", " + failure) + "]";
+    }
+}
@@ -15,27 +15,27 @@
  * limitations under the License.
  */
 
-package net.orfjackal.extformatter.util;
+package net.orfjackal.extformatter;
 
-import java.io.OutputStream;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
 
 /**
- * Executes a shell command.
+ * Reformats source code in memory, without reading or writing the file.
  *
  * @author Esko Luontola
- * @since 30.11.2007
+ * @since 18.10.2026
  */
-public interface ProcessExecutor2 {
-
-    void executeAndWait(String... command);
+public interface TextFormatter {
 
-    /**
-     * Executes the command and redirects stdout and stderr to System.out and System.err.
-     */
-    Process exec(String... command);
+    boolean supportsReformatText();
 
     /**
-     * Executes the command and redirects stdout and stderr to the specified streams.
+     * @param file the file whose contents the text is. Only its name may be used, for example to let
+     *             the formatter know the file type, so the file does not need to exist.
+     * @return the reformatted text.
      */
-    Process exec(String[] command, OutputStream stdout, OutputStream stderr);
+    @NotNull
+    String reformatText(@NotNull File file, @NotNull String text);
 }
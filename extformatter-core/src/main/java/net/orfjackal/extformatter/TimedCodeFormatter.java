@@ -0,0 +1,142 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+
+/**
+ * Measures how long each call to the underlying formatter takes and teaches the durations to
+ * a {@link LearningCostModel}, whose estimates it then provides as its own {@link CostModel}.
+ * The durations of directory calls are learned only when the caller tells how many files they reformat
+ * through {@link FileCountingCodeFormatter}, as {@link OptimizingReformatQueue} does with the counts which
+ * it already knows from planning the calls.
+ *
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+public class TimedCodeFormatter implements FileCountingCodeFormatter, TextFormatter, CostModel {
+
+    @NotNull private final CodeFormatter formatter;
+    @NotNull private final LearningCostModel costs;
+
+    public TimedCodeFormatter(@NotNull CodeFormatter formatter, @NotNull LearningCostModel costs) {
+        this.formatter = formatter;
+        this.costs = costs;
+    }
+
+    @NotNull
+    public CodeFormatter getFormatter() {
+        return formatter;
+    }
+
+    @NotNull
+    public LearningCostModel getCosts() {
+        return costs;
+    }
+
+    public double costOf(@NotNull ReformatMethod method, int fileCount, long argumentLength) {
+        return costs.costOf(method, fileCount, argumentLength);
+    }
+
+    public boolean supportsFileType(@NotNull File file) {
+        return formatter.supportsFileType(file);
+    }
+
+    public boolean supportsReformatOne() {
+        return formatter.supportsReformatOne();
+    }
+
+    public void reformatOne(@NotNull File file) {
+        long start = System.currentTimeMillis();
+        formatter.reformatOne(file);
+        costs.record(ReformatMethod.ONE, 1, System.currentTimeMillis() - start);
+    }
+
+    public boolean supportsReformatText() {
+        return formatter instanceof TextFormatter && ((TextFormatter) formatter).supportsReformatText();
+    }
+
+    /**
+     * Reformatting a text costs about the same as {@link ReformatMethod#ONE}, so it is recorded as such.
+     */
+    @NotNull
+    public String reformatText(@NotNull File file, @NotNull String text) {
+        if (!supportsReformatText()) {
+            throw new UnsupportedOperationException();
+        }
+        long start = System.currentTimeMillis();
+        String formatted = ((TextFormatter) formatter).reformatText(file, text);
+        costs.record(ReformatMethod.ONE, 1, System.currentTimeMillis() - start);
+        return formatted;
+    }
+
+    public boolean supportsReformatMany() {
+        return formatter.supportsReformatMany();
+    }
+
+    public void reformatMany(@NotNull File... files) {
+        long start = System.currentTimeMillis();
+        formatter.reformatMany(files);
+        costs.record(ReformatMethod.MANY, files.length, System.currentTimeMillis() - start);
+    }
+
+    public boolean supportsReformatDirectory() {
+        return formatter.supportsReformatDirectory();
+    }
+
+    /**
+     * The number of files in the directory is not known, so the duration is not recorded.
+     * Counting the files would cost another listing of the directory.
+     */
+    public void reformatDirectory(@NotNull File directory) {
+        formatter.reformatDirectory(directory);
+    }
+
+    /**
+     * Like {@link #reformatDirectory(File)}, but the duration is recorded for the given number of files,
+     * for example the queued files of a {@link ReformatCall}.
+     */
+    public void reformatDirectory(@NotNull File directory, int fileCount) {
+        long start = System.currentTimeMillis();
+        formatter.reformatDirectory(directory);
+        costs.record(ReformatMethod.DIRECTORY, fileCount, System.currentTimeMillis() - start);
+    }
+
+    public boolean supportsReformatRecursively() {
+        return formatter.supportsReformatRecursively();
+    }
+
+    /**
+     * The number of files in the directory tree is not known, so the duration is not recorded.
+     * Counting the files would cost another walk through the directory tree.
+     */
+    public void reformatRecursively(@NotNull File directory) {
+        formatter.reformatRecursively(directory);
+    }
+
+    /**
+     * Like {@link #reformatRecursively(File)}, but the duration is recorded for the given number of files.
+     */
+    public void reformatRecursively(@NotNull File directory, int fileCount) {
+        long start = System.currentTimeMillis();
+        formatter.reformatRecursively(directory);
+        costs.record(ReformatMethod.RECURSIVELY, fileCount, System.currentTimeMillis() - start);
+    }
+}
@@ -43,6 +43,17 @@ public class Settings implements Cloneable {
     @NotNull private String cliReformatMany = "";
     @NotNull private String cliReformatDirectory = "";
     @NotNull private String cliReformatRecursively = "";
+    private boolean cliDaemonEnabled = false;
+    @NotNull private String cliDaemon = "";
+
+    @NotNull private String excludedFiles = "";
+    private boolean excludeGitIgnoredFiles = false;
+
+    private int maxProcesses = 4;
+    private int processTimeoutSeconds = 0;
+
+    @NotNull private String learnedCostsFormatter = "";
+    @NotNull private String learnedCosts = "";
 
     @NotNull
     public final Settings clone() {
@@ -158,4 +169,72 @@ public class Settings implements Cloneable {
     public void setCliReformatRecursively(@NotNull String cliReformatRecursively) {
         this.cliReformatRecursively = cliReformatRecursively;
     }
+
+    public boolean isCliDaemonEnabled() {
+        return cliDaemonEnabled;
+    }
+
+    public void setCliDaemonEnabled(boolean cliDaemonEnabled) {
+        this.cliDaemonEnabled = cliDaemonEnabled;
+    }
+
+    @NotNull
+    public String getCliDaemon() {
+        return cliDaemon;
+    }
+
+    public void setCliDaemon(@NotNull String cliDaemon) {
+        this.cliDaemon = cliDaemon;
+    }
+
+    @NotNull
+    public String getExcludedFiles() {
+        return excludedFiles;
+    }
+
+    public void setExcludedFiles(@NotNull String excludedFiles) {
+        this.excludedFiles = excludedFiles;
+    }
+
+    public boolean isExcludeGitIgnoredFiles() {
+        return excludeGitIgnoredFiles;
+    }
+
+    public void setExcludeGitIgnoredFiles(boolean excludeGitIgnoredFiles) {
+        this.excludeGitIgnoredFiles = excludeGitIgnoredFiles;
+    }
+
+    public int getMaxProcesses() {
+        return maxProcesses;
+    }
+
+    public void setMaxProcesses(int maxProcesses) {
+        this.maxProcesses = maxProcesses;
+    }
+
+    public int getProcessTimeoutSeconds() {
+        return processTimeoutSeconds;
+    }
+
+    public void setProcessTimeoutSeconds(int processTimeoutSeconds) {
+        this.processTimeoutSeconds = processTimeoutSeconds;
+    }
+
+    @NotNull
+    public String getLearnedCostsFormatter() {
+        return learnedCostsFormatter;
+    }
+
+    public void setLearnedCostsFormatter(@NotNull String learnedCostsFormatter) {
+        this.learnedCostsFormatter = learnedCostsFormatter;
+    }
+
+    @NotNull
+    public String getLearnedCosts() {
+        return learnedCosts;
+    }
+
+    public void setLearnedCosts(@NotNull String learnedCosts) {
+        this.learnedCosts = learnedCosts;
+    }
 }
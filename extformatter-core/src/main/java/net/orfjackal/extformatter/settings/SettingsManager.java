@@ -19,9 +19,10 @@ package net.orfjackal.extformatter.settings;
 
 import net.orfjackal.extformatter.*;
 import static net.orfjackal.extformatter.CommandLineCodeFormatter.*;
+import net.orfjackal.extformatter.util.*;
 import org.jetbrains.annotations.*;
 
-import java.io.File;
+import java.io.*;
 
 /**
  * Builds a {@link CodeFormatter} based on the {@link Settings}.
@@ -35,15 +36,125 @@ public class SettingsManager {
 
     @Nullable
     public static CodeFormatter newFormatter(@NotNull Settings settings) throws IllegalSettingsException {
+        return newFormatter(settings, new ProcessPool());
+    }
+
+    /**
+     * @param processPool the pool in which the formatter's processes will be executed.
+     *                    The same pool may be shared by many formatters.
+     */
+    @Nullable
+    public static CodeFormatter newFormatter(@NotNull Settings settings, @NotNull ProcessPool processPool) throws IllegalSettingsException {
         if (settings.getFormatter().equals(Settings.Formatter.ECLIPSE)) {
-            return eclipseFactory(settings).newFormatter();
+            EclipseCodeFormatterFactory factory = eclipseFactory(settings);
+            factory.setProcessPool(processPool);
+            return factory.newFormatter();
         }
         if (settings.getFormatter().equals(Settings.Formatter.COMMAND_LINE)) {
-            return commandLineFactory(settings).newFormatter();
+            CommandLineCodeFormatterFactory factory = commandLineFactory(settings);
+            factory.setProcessPool(processPool);
+            return factory.newFormatter();
         }
         return null;
     }
 
+    /**
+     * Limits how many formatter processes may run at the same time, and how long each of them may run,
+     * so that a hung formatter will not freeze the IDE. A timeout of zero seconds means no timeout, which is
+     * the default, because reformatting a large project may legitimately take a long time.
+     */
+    @NotNull
+    public static ProcessPool newProcessPool(@NotNull Settings settings) {
+        return new ProcessPool(Math.max(1, settings.getMaxProcesses()),
+                Math.max(ProcessPool.NO_TIMEOUT, settings.getProcessTimeoutSeconds() * 1000L));
+    }
+
+    /**
+     * The files and directories which should be skipped when searching directories, as specified by
+     * whitespace separated patterns and optionally the project's .gitignore files.
+     */
+    @NotNull
+    public static ExcludedFiles excludedFilesOf(@NotNull Settings settings) {
+        String patterns = settings.getExcludedFiles().trim();
+        if (patterns.length() == 0 && !settings.isExcludeGitIgnoredFiles()) {
+            return ExcludedFiles.NONE;
+        }
+        return new ExcludedFiles(settings.isExcludeGitIgnoredFiles(), patterns.split(WHITESPACE));
+    }
+
+    /**
+     * Makes the formatter learn its costs from the durations of its calls. If the costs of the same
+     * formatter configuration have been saved earlier with {@link #saveLearnedCosts}, learning continues from them.
+     */
+    @NotNull
+    public static TimedCodeFormatter withLearnedCosts(@NotNull CodeFormatter formatter, @NotNull Settings settings) {
+        LearningCostModel costs = new LearningCostModel(OptimizingReformatQueue.defaultCostsOf(formatter));
+        if (settings.getLearnedCostsFormatter().equals(formatterConfiguration(settings))) {
+            costs.load(settings.getLearnedCosts());
+        }
+        return new TimedCodeFormatter(formatter, costs);
+    }
+
+    public static void saveLearnedCosts(@NotNull TimedCodeFormatter formatter, @NotNull Settings settings) {
+        settings.setLearnedCostsFormatter(formatterConfiguration(settings));
+        settings.setLearnedCosts(formatter.getCosts().asString());
+    }
+
+    /**
+     * A cache for remembering which files are already formatted with the formatter's current configuration.
+     * For the Eclipse formatter also the contents of its preferences file belong to the configuration.
+     */
+    @NotNull
+    public static FormattedContentCache newFormattedContentCache(@NotNull Settings settings) {
+        return new FormattedContentCache(formattedContentConfiguration(settings));
+    }
+
+    /**
+     * An index for recognizing the formatted files which have not been modified since, without reading them.
+     * Should be given to the {@link FormattedContentCache} of the same settings.
+     */
+    @NotNull
+    public static FormatStateIndex openFormatStateIndex(@NotNull File indexFile, @NotNull Settings settings) throws IOException {
+        return new FormatStateIndex(indexFile, formattedContentConfiguration(settings));
+    }
+
+    @NotNull
+    private static String formattedContentConfiguration(@NotNull Settings settings) {
+        String configuration = formatterConfiguration(settings);
+        if (settings.getFormatter().equals(Settings.Formatter.ECLIPSE)) {
+            configuration += " " + contentsOf(new File(settings.getEclipsePrefs()));
+        }
+        return configuration;
+    }
+
+    @NotNull
+    private static String contentsOf(@NotNull File file) {
+        try {
+            return file.isFile() ? FileUtil.contentsOf(file) : "";
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Identifies the formatter, so that costs learned for one formatter are not used for another.
+     */
+    @NotNull
+    private static String formatterConfiguration(@NotNull Settings settings) {
+        if (settings.getFormatter().equals(Settings.Formatter.ECLIPSE)) {
+            return settings.getFormatter() + " " + settings.getEclipseExecutable() + " " + settings.getEclipsePrefs();
+        }
+        if (settings.getFormatter().equals(Settings.Formatter.COMMAND_LINE)) {
+            return settings.getFormatter()
+                    + " " + (settings.isCliReformatOneEnabled() ? settings.getCliReformatOne() : "")
+                    + " " + (settings.isCliReformatManyEnabled() ? settings.getCliReformatMany() : "")
+                    + " " + (settings.isCliReformatDirectoryEnabled() ? settings.getCliReformatDirectory() : "")
+                    + " " + (settings.isCliReformatRecursivelyEnabled() ? settings.getCliReformatRecursively() : "")
+                    + " " + (settings.isCliDaemonEnabled() ? settings.getCliDaemon() : "");
+        }
+        return settings.getFormatter().toString();
+    }
+
     @NotNull
     private static EclipseCodeFormatterFactory eclipseFactory(@NotNull Settings settings) throws IllegalSettingsException {
         mustNotBeEmpty(settings.getEclipseExecutable(), "settings.eclipseExecutable");
@@ -67,19 +178,24 @@ public class SettingsManager {
         if (!settings.isCliReformatOneEnabled()
                 && !settings.isCliReformatManyEnabled()
                 && !settings.isCliReformatDirectoryEnabled()
-                && !settings.isCliReformatRecursivelyEnabled()) {
+                && !settings.isCliReformatRecursivelyEnabled()
+                && !settings.isCliDaemonEnabled()) {
             throw new IllegalSettingsException("settings.cliReformatOne", "error.noCommandsSelected");
         }
         if (settings.isCliReformatOneEnabled()) {
             String s = settings.getCliReformatOne();
             mustNotBeEmpty(s, "settings.cliReformatOne");
-            mustContain(FILE_TAG, s, "settings.cliReformatOne");
+            if (!s.contains(STDIN_TAG)) {
+                mustContain(FILE_TAG, s, "settings.cliReformatOne");
+            }
             factory.setOneFileCommand(s);
         }
         if (settings.isCliReformatManyEnabled()) {
             String s = settings.getCliReformatMany();
             mustNotBeEmpty(s, "settings.cliReformatMany");
-            mustContain(FILES_TAG, s, "settings.cliReformatMany");
+            if (!s.contains(FILES_LISTFILE_TAG) && !s.contains(FILES_STDIN_TAG)) {
+                mustContain(FILES_TAG, s, "settings.cliReformatMany");
+            }
             factory.setManyFilesCommand(s);
         }
         if (settings.isCliReformatDirectoryEnabled()) {
@@ -94,6 +210,11 @@ public class SettingsManager {
             mustContain(DIRECTORY_TAG, s, "settings.cliReformatRecursively");
             factory.setRecursiveCommand(s);
         }
+        if (settings.isCliDaemonEnabled()) {
+            String s = settings.getCliDaemon();
+            mustNotBeEmpty(s, "settings.cliDaemon");
+            factory.setDaemonCommand(s);
+        }
         String s = settings.getCliSupportedFileTypes();
         mustNotBeEmpty(s, "settings.cliSupportedFileTypes");
         factory.setSupportedFileTypes(s.split(WHITESPACE));
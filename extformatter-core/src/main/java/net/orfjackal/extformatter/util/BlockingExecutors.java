@@ -0,0 +1,140 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter.util;
+
+import org.jetbrains.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the executors for work which spends most of its time blocked, such as waiting for a formatter
+ * process, copying its output or copying files. When the runtime supports virtual threads (Java 21 or newer),
+ * the work runs on virtual threads, so that even thousands of concurrent blocking waits cost little.
+ * Otherwise it runs on ordinary daemon threads.
+ * <p/>
+ * The virtual threads are created reflectively, because the code must also run on the older Java versions.
+ *
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+public class BlockingExecutors {
+
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    // a Thread.Builder is mutable and not thread-safe, so only the methods are shared and each factory has its own builder
+    @Nullable private static final Method OF_VIRTUAL = methodOf("java.lang.Thread", "ofVirtual");
+    @Nullable private static final Method BUILDER_NAME = methodOf("java.lang.Thread$Builder", "name", String.class, long.class);
+    @Nullable private static final Method BUILDER_FACTORY = methodOf("java.lang.Thread$Builder", "factory");
+    @Nullable private static final Method NEW_THREAD_PER_TASK_EXECUTOR =
+            methodOf("java.util.concurrent.Executors", "newThreadPerTaskExecutor", ThreadFactory.class);
+    private static final boolean VIRTUAL = supportsVirtualThreads();
+
+    private BlockingExecutors() {
+    }
+
+    public static boolean isVirtual() {
+        return VIRTUAL;
+    }
+
+    /**
+     * Runs every task at once on its own thread. Idle platform threads are kept for a while and reused.
+     */
+    @NotNull
+    public static ExecutorService newUnboundedExecutor(@NotNull String name) {
+        ThreadFactory threads = threadFactory(name);
+        if (isVirtual()) {
+            return newThreadPerTaskExecutor(threads);
+        }
+        return new ThreadPoolExecutor(0, Integer.MAX_VALUE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), threads);
+    }
+
+    /**
+     * Runs at most {@code parallelism} tasks at the same time, in the order in which they were submitted.
+     */
+    @NotNull
+    public static ExecutorService newBoundedExecutor(int parallelism, @NotNull String name) {
+        return Executors.newFixedThreadPool(parallelism, threadFactory(name));
+    }
+
+    /**
+     * Creates virtual threads if they are supported, otherwise daemon threads.
+     */
+    @NotNull
+    public static ThreadFactory threadFactory(@NotNull final String name) {
+        if (isVirtual()) {
+            return virtualThreadFactory(name);
+        }
+        return new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        };
+    }
+
+    @Nullable
+    private static Method methodOf(@NotNull String className, @NotNull String methodName, @NotNull Class<?>... parameterTypes) {
+        try {
+            return Class.forName(className).getMethod(methodName, parameterTypes);
+        } catch (Exception e) {
+            // older than Java 21
+            return null;
+        }
+    }
+
+    private static boolean supportsVirtualThreads() {
+        if (OF_VIRTUAL == null || BUILDER_NAME == null || BUILDER_FACTORY == null || NEW_THREAD_PER_TASK_EXECUTOR == null) {
+            return false;
+        }
+        try {
+            // on Java 19 and 20 virtual threads are a preview feature, which fails unless it is enabled
+            OF_VIRTUAL.invoke(null);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    @NotNull
+    private static ThreadFactory virtualThreadFactory(@NotNull String name) {
+        assert OF_VIRTUAL != null && BUILDER_NAME != null && BUILDER_FACTORY != null;
+        try {
+            Object builder = OF_VIRTUAL.invoke(null);
+            builder = BUILDER_NAME.invoke(builder, name + "-", 1L);
+            return (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @NotNull
+    private static ExecutorService newThreadPerTaskExecutor(@NotNull ThreadFactory threads) {
+        assert NEW_THREAD_PER_TASK_EXECUTOR != null;
+        try {
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, threads);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
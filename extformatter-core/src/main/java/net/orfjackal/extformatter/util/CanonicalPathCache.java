@@ -0,0 +1,80 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the canonical paths of files for a short while, because resolving a canonical path
+ * requires a system call for every directory on the path. The entries expire so that changes to
+ * symbolic links are noticed eventually.
+ *
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+public class CanonicalPathCache {
+
+    private static final long DEFAULT_EXPIRY_MILLIS = 30 * 1000;
+    private static final int DEFAULT_MAX_SIZE = 100 * 1000;
+
+    @NotNull private final ConcurrentHashMap<File, Entry> cache = new ConcurrentHashMap<File, Entry>();
+    private final long expiryMillis;
+    private final int maxSize;
+
+    public CanonicalPathCache(long expiryMillis, int maxSize) {
+        this.expiryMillis = expiryMillis;
+        this.maxSize = maxSize;
+    }
+
+    public CanonicalPathCache() {
+        this(DEFAULT_EXPIRY_MILLIS, DEFAULT_MAX_SIZE);
+    }
+
+    @NotNull
+    public File canonicalFile(@NotNull File file) throws IOException {
+        File key = file.getAbsoluteFile();
+        long now = System.currentTimeMillis();
+        Entry entry = cache.get(key);
+        if (entry == null || entry.expires < now) {
+            if (cache.size() >= maxSize) {
+                cache.clear();
+            }
+            entry = new Entry(key.getCanonicalFile(), now + expiryMillis);
+            cache.put(key, entry);
+        }
+        return entry.canonicalFile;
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    private static class Entry {
+
+        @NotNull private final File canonicalFile;
+        private final long expires;
+
+        public Entry(@NotNull File canonicalFile, long expires) {
+            this.canonicalFile = canonicalFile;
+            this.expires = expires;
+        }
+    }
+}
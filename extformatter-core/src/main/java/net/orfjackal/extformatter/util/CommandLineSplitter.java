@@ -0,0 +1,170 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Splits a long list of command line arguments into as few command lines as possible,
+ * so that no command line is longer than what the operating system allows.
+ *
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+public class CommandLineSplitter {
+
+    // CreateProcess on Windows limits the command line to 32767 characters
+    private static final long WINDOWS_MAX_LENGTH = 32767;
+    // ARG_MAX on Mac OS X
+    private static final long MAC_MAX_LENGTH = 262144;
+    // ARG_MAX on Linux is a quarter of the default 8 MB stack size limit
+    private static final long UNIX_MAX_LENGTH = 2097152;
+    // Leaves room for things which are not known here, such as the executable's resolved path
+    private static final long SAFETY_MARGIN = 4096;
+    // On Unix each argument is passed as a null terminated string and a pointer to it
+    private static final int UNIX_ARGUMENT_OVERHEAD = 1 + 8;
+    // On Windows the arguments are separated by a space
+    private static final int WINDOWS_ARGUMENT_OVERHEAD = 1;
+
+    private final long maxLength;
+    private final int argumentOverhead;
+
+    public CommandLineSplitter(long maxLength, int argumentOverhead) {
+        if (maxLength <= 0) {
+            throw new IllegalArgumentException("maxLength: " + maxLength);
+        }
+        this.maxLength = maxLength;
+        this.argumentOverhead = argumentOverhead;
+    }
+
+    public CommandLineSplitter(long maxLength) {
+        this(maxLength, isWindows() ? WINDOWS_ARGUMENT_OVERHEAD : UNIX_ARGUMENT_OVERHEAD);
+    }
+
+    public CommandLineSplitter() {
+        this(defaultMaxLength());
+    }
+
+    /**
+     * The maximum command line length of the current operating system,
+     * minus the space taken by the environment variables of this process.
+     */
+    public static long defaultMaxLength() {
+        if (isWindows()) {
+            return WINDOWS_MAX_LENGTH - SAFETY_MARGIN;
+        }
+        long max = isMac() ? MAC_MAX_LENGTH : UNIX_MAX_LENGTH;
+        for (Map.Entry<String, String> var : System.getenv().entrySet()) {
+            max -= utf8Length(var.getKey()) + 1 + utf8Length(var.getValue()) + UNIX_ARGUMENT_OVERHEAD;
+        }
+        return Math.max(max - SAFETY_MARGIN, SAFETY_MARGIN);
+    }
+
+    public long getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * The space which the argument takes from the command line.
+     */
+    public long lengthOf(@NotNull String argument) {
+        return utf8Length(argument) + argumentOverhead;
+    }
+
+    /**
+     * The least number of command lines which the arguments of the specified total length could fit in.
+     */
+    public int minimumCommandLines(long fixedLength, long argumentsLength) {
+        long room = Math.max(maxLength - fixedLength, 1);
+        return (int) Math.max(1, (argumentsLength + room - 1) / room);
+    }
+
+    /**
+     * Splits the arguments into consecutive groups, each of which fits in one command line together with
+     * the parts of the command which are the same in every command line. Filling each command line as full
+     * as possible before starting the next one produces the fewest command lines. An argument which
+     * is too long to fit any command line is put into a command line of its own.
+     *
+     * @param fixedLength the length of the parts of the command which are repeated on every command line.
+     */
+    @NotNull
+    public List<List<String>> split(long fixedLength, @NotNull List<String> arguments) {
+        List<Long> lengths = new ArrayList<Long>(arguments.size());
+        for (String argument : arguments) {
+            lengths.add(lengthOf(argument));
+        }
+        return split(fixedLength, arguments, lengths);
+    }
+
+    /**
+     * Splits the values in the same way as {@link #split(long, List)} splits the arguments, when the values
+     * take more room than their own length, for example when each value is put into many arguments.
+     *
+     * @param lengths how much room each of the values takes from the command line.
+     */
+    @NotNull
+    public <T> List<List<T>> split(long fixedLength, @NotNull List<T> values, @NotNull List<Long> lengths) {
+        if (values.size() != lengths.size()) {
+            throw new IllegalArgumentException("values: " + values.size() + ", lengths: " + lengths.size());
+        }
+        List<List<T>> commandLines = new ArrayList<List<T>>();
+        int start = 0;
+        long length = fixedLength;
+        for (int i = 0; i < values.size(); i++) {
+            long valueLength = lengths.get(i);
+            if (i > start && length + valueLength > maxLength) {
+                commandLines.add(values.subList(start, i));
+                start = i;
+                length = fixedLength;
+            }
+            length += valueLength;
+        }
+        if (start < values.size()) {
+            commandLines.add(values.subList(start, values.size()));
+        }
+        return commandLines;
+    }
+
+    private static long utf8Length(@NotNull String s) {
+        long length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static boolean isWindows() {
+        return System.getProperty("os.name").startsWith("Windows");
+    }
+
+    private static boolean isMac() {
+        return System.getProperty("os.name").startsWith("Mac");
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * A command line whose arguments contain tags, such as {@code %FILE%}, which are replaced with values when
+ * the command is executed. The template is parsed into arguments only once: they are separated by whitespace,
+ * and double quotes may be used to put whitespace inside an argument. Backslashes have no special meaning,
+ * so that Windows paths do not need to be escaped.
+ * <p/>
+ * An argument which is only a tag is replaced with as many arguments as there are values, so each path
+ * is given to the command as an argument of its own and does not need to be quoted. An argument which
+ * contains a tag among other text, such as {@code --file=%FILES%}, is repeated for each of the values.
+ * If the tag is in many arguments, such as in {@code -f %FILE% -o %FILE%}, each of them is replaced
+ * in its own position.
+ * <p/>
+ * Templates are immutable.
+ *
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+public class CommandTemplate {
+
+    @NotNull private final List<String> tokens;
+
+    public CommandTemplate(@NotNull String template) {
+        this(parse(template));
+    }
+
+    private CommandTemplate(@NotNull List<String> tokens) {
+        this.tokens = Collections.unmodifiableList(tokens);
+    }
+
+    /**
+     * The command's arguments, the first of which is the executable.
+     */
+    @NotNull
+    public List<String> tokens() {
+        return tokens;
+    }
+
+    public boolean contains(@NotNull String tag) {
+        for (String token : tokens) {
+            if (token.contains(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The arguments which replace the tag for the values, in the order of the values.
+     * They tell how long the command will be, but not where the arguments will be.
+     */
+    @NotNull
+    public List<String> argumentsFor(@NotNull String tag, @NotNull List<String> values) {
+        List<String> arguments = new ArrayList<String>(values.size());
+        for (String value : values) {
+            for (String token : tokens) {
+                if (token.contains(tag)) {
+                    arguments.add(token.replace(tag, value));
+                }
+            }
+        }
+        return arguments;
+    }
+
+    /**
+     * The arguments which do not contain the tag, and so are the same whatever the tag is replaced with.
+     */
+    @NotNull
+    public List<String> argumentsWithout(@NotNull String tag) {
+        List<String> arguments = new ArrayList<String>(tokens.size());
+        for (String token : tokens) {
+            if (!token.contains(tag)) {
+                arguments.add(token);
+            }
+        }
+        return arguments;
+    }
+
+    /**
+     * Replaces the tag with one value.
+     */
+    @NotNull
+    public CommandTemplate with(@NotNull String tag, @NotNull String value) {
+        return with(tag, Collections.singletonList(value));
+    }
+
+    /**
+     * Replaces the tag with many values. Each argument which contains the tag is replaced
+     * in its own position with an argument for each of the values.
+     */
+    @NotNull
+    public CommandTemplate with(@NotNull String tag, @NotNull List<String> values) {
+        List<String> result = new ArrayList<String>(tokens.size() + values.size());
+        for (String token : tokens) {
+            if (token.contains(tag)) {
+                for (String value : values) {
+                    result.add(token.replace(tag, value));
+                }
+            } else {
+                result.add(token);
+            }
+        }
+        return new CommandTemplate(result);
+    }
+
+    /**
+     * Removes the arguments which contain the tag.
+     */
+    @NotNull
+    public CommandTemplate without(@NotNull String tag) {
+        return new CommandTemplate(argumentsWithout(tag));
+    }
+
+    /**
+     * The arguments quoted the same way as the template, so that the result parses back to the same template.
+     */
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (String token : tokens) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            if (token.length() == 0 || containsWhitespace(token)) {
+                sb.append('"').append(token).append('"');
+            } else {
+                sb.append(token);
+            }
+        }
+        return sb.toString();
+    }
+
+    @NotNull
+    private static List<String> parse(@NotNull String template) {
+        List<String> tokens = new ArrayList<String>();
+        StringBuilder token = new StringBuilder();
+        boolean inToken = false;
+        boolean quoted = false;
+        for (int i = 0; i < template.length(); i++) {
+            char c = template.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+                inToken = true;
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (inToken) {
+                    tokens.add(token.toString());
+                    token.setLength(0);
+                    inToken = false;
+                }
+            } else {
+                token.append(c);
+                inToken = true;
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unbalanced quotes: " + template);
+        }
+        if (inToken) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    private static boolean containsWhitespace(@NotNull String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (Character.isWhitespace(s.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
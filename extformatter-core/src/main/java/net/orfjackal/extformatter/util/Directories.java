@@ -17,6 +17,8 @@
 
 package net.orfjackal.extformatter.util;
 
+import org.jetbrains.annotations.NotNull;
+
 import java.io.*;
 
 /**
@@ -25,7 +27,17 @@ import java.io.*;
  */
 public class Directories implements FileFilter {
 
+    private final ExcludedFiles excluded;
+
+    public Directories() {
+        this(ExcludedFiles.NONE);
+    }
+
+    public Directories(@NotNull ExcludedFiles excluded) {
+        this.excluded = excluded;
+    }
+
     public boolean accept(File pathname) {
-        return pathname.isDirectory();
+        return pathname.isDirectory() && !excluded.accept(pathname);
     }
 }
@@ -0,0 +1,132 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter.util;
+
+import net.orfjackal.extformatter.CodeFormatter;
+import org.jetbrains.annotations.*;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * Lists each directory only once and remembers the result, so that checking the same directories
+ * many times does not require going to the file system again. Each entry is classified with one
+ * file system query: files whose type is supported are checked with {@link File#isFile()}, and
+ * the others with {@link File#isDirectory()}.
+ * <p/>
+ * The {@link ExcludedFiles} are left out of the listings, and the excluded directories are not listed.
+ * Because the underlying formatter would not skip them when reformatting a whole directory, the
+ * listings remember whether there were any excluded supported files or excluded subdirectories.
+ * <p/>
+ * The listings are snapshots, so the cache should be used only for a short time, such as for one flush.
+ *
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+public class DirectoryListingCache {
+
+    @NotNull private final CodeFormatter formatter;
+    @NotNull private final ExcludedFiles excluded;
+    @NotNull private final Map<File, Listing> listings = new HashMap<File, Listing>();
+
+    public DirectoryListingCache(@NotNull CodeFormatter formatter) {
+        this(formatter, ExcludedFiles.NONE);
+    }
+
+    public DirectoryListingCache(@NotNull CodeFormatter formatter, @NotNull ExcludedFiles excluded) {
+        this.formatter = formatter;
+        this.excluded = excluded;
+    }
+
+    /**
+     * Same as {@code directory.listFiles(new FilesSupportedBy(formatter, excluded))}.
+     * The returned array must not be modified.
+     */
+    @Nullable
+    public File[] supportedFilesIn(@NotNull File directory) {
+        return listingOf(directory).supportedFiles;
+    }
+
+    /**
+     * Same as {@code directory.listFiles(new Directories(excluded))}.
+     * The returned array must not be modified.
+     */
+    @Nullable
+    public File[] directoriesIn(@NotNull File directory) {
+        return listingOf(directory).directories;
+    }
+
+    /**
+     * Whether the directory contains supported files which are excluded.
+     */
+    public boolean containsExcludedFiles(@NotNull File directory) {
+        return listingOf(directory).excludedFiles;
+    }
+
+    /**
+     * Whether the directory contains subdirectories which are excluded.
+     */
+    public boolean containsExcludedDirectories(@NotNull File directory) {
+        return listingOf(directory).excludedDirectories;
+    }
+
+    @NotNull
+    private Listing listingOf(@NotNull File directory) {
+        Listing listing = listings.get(directory);
+        if (listing == null) {
+            listing = new Listing(directory.listFiles());
+            listings.put(directory, listing);
+        }
+        return listing;
+    }
+
+    private class Listing {
+
+        @Nullable private final File[] supportedFiles;
+        @Nullable private final File[] directories;
+        private boolean excludedFiles = false;
+        private boolean excludedDirectories = false;
+
+        public Listing(@Nullable File[] entries) {
+            if (entries == null) {
+                supportedFiles = null;
+                directories = null;
+                return;
+            }
+            List<File> files = new ArrayList<File>();
+            List<File> dirs = new ArrayList<File>();
+            for (File entry : entries) {
+                if (formatter.supportsFileType(entry) && entry.isFile()) {
+                    if (excluded.accept(entry)) {
+                        excludedFiles = true;
+                    } else {
+                        files.add(entry);
+                    }
+                } else if (entry.isDirectory()) {
+                    if (excluded.accept(entry)) {
+                        excludedDirectories = true;
+                    } else {
+                        dirs.add(entry);
+                    }
+                }
+            }
+            supportedFiles = files.toArray(new File[files.size()]);
+            directories = dirs.toArray(new File[dirs.size()]);
+        }
+    }
+}
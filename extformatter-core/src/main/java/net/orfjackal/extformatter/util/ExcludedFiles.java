@@ -0,0 +1,236 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter.util;
+
+import org.jetbrains.annotations.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Accepts the files and directories which should be left out when searching directory trees,
+ * such as version control metadata, build output and generated sources.
+ * <p/>
+ * The patterns follow the .gitignore syntax: <tt>*</tt> and <tt>?</tt> match within a name,
+ * <tt>**</tt> matches any number of directories, and a pattern which ends with <tt>/</tt> matches
+ * only directories. A pattern without a <tt>/</tt> is matched against the name of the file (for example
+ * <tt>target/</tt> or <tt>*.min.js</tt>) and any other pattern against the end of its path (for example
+ * <tt>src/generated/**</tt>). Optionally also the .gitignore files of the file's Git repository are used,
+ * in which case the nearest .gitignore file which matches the file decides, and <tt>!</tt> negates a pattern.
+ * <p/>
+ * {@link #accept} checks only the file itself, not its parent directories, because the excluded
+ * directories are meant to be skipped without looking inside them. A file which was not found
+ * by searching a directory tree is checked with {@link #acceptWithParents}.
+ *
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+public class ExcludedFiles implements FileFilter {
+
+    public static final ExcludedFiles NONE = new ExcludedFiles(false);
+
+    private static final String GIT_IGNORE = ".gitignore";
+    private static final String GIT_DIR = ".git";
+
+    @NotNull private final List<Rule> rules;
+    private final boolean readGitIgnore;
+    @NotNull private final Map<File, GitIgnore> gitIgnores = Collections.synchronizedMap(new HashMap<File, GitIgnore>());
+
+    public ExcludedFiles(boolean readGitIgnore, @NotNull String... patterns) {
+        List<String> all = new ArrayList<String>();
+        if (readGitIgnore) {
+            all.add(GIT_DIR + "/");
+        }
+        all.addAll(Arrays.asList(patterns));
+        this.rules = parse(all, false);
+        this.readGitIgnore = readGitIgnore;
+    }
+
+    /**
+     * Whether no file is ever excluded.
+     */
+    public boolean isEmpty() {
+        return rules.isEmpty() && !readGitIgnore;
+    }
+
+    public boolean accept(File file) {
+        if (isEmpty()) {
+            return false;
+        }
+        String path = slashes(file.getAbsolutePath());
+        Boolean excluded = matchOf(rules, path, file);
+        if (excluded == null && readGitIgnore) {
+            excluded = matchOfGitIgnores(path, file);
+        }
+        return excluded != null && excluded;
+    }
+
+    /**
+     * Whether the file or any of its parent directories is excluded. The parent directories are
+     * checked up to the root directory, which itself is not checked, or up to the file system root
+     * if the file is not inside the root directory.
+     */
+    public boolean acceptWithParents(@NotNull File file, @Nullable File root) {
+        if (isEmpty()) {
+            return false;
+        }
+        File stop = root == null ? null : root.getAbsoluteFile();
+        for (File f = file.getAbsoluteFile(); f != null && !f.equals(stop); f = f.getParentFile()) {
+            if (accept(f)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Nullable
+    private Boolean matchOfGitIgnores(@NotNull String path, @NotNull File file) {
+        for (File dir = file.getAbsoluteFile().getParentFile(); dir != null; dir = dir.getParentFile()) {
+            GitIgnore gitIgnore = gitIgnoreOf(dir);
+            if (!gitIgnore.rules.isEmpty()) {
+                String dirPath = slashes(dir.getPath());
+                String relativePath = dirPath.endsWith("/")
+                        ? path.substring(dirPath.length() - 1)
+                        : path.substring(dirPath.length());
+                Boolean excluded = matchOf(gitIgnore.rules, relativePath, file);
+                if (excluded != null) {
+                    return excluded;
+                }
+            }
+            if (gitIgnore.repositoryRoot) {
+                break;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The last matching rule decides, like in a .gitignore file.
+     */
+    @Nullable
+    private static Boolean matchOf(@NotNull List<Rule> rules, @NotNull String path, @NotNull File file) {
+        Boolean excluded = null;
+        for (Rule rule : rules) {
+            if (rule.matches(path, file)) {
+                excluded = !rule.negated;
+            }
+        }
+        return excluded;
+    }
+
+    @NotNull
+    private GitIgnore gitIgnoreOf(@NotNull File dir) {
+        GitIgnore gitIgnore = gitIgnores.get(dir);
+        if (gitIgnore == null) {
+            gitIgnore = new GitIgnore(dir);
+            gitIgnores.put(dir, gitIgnore);
+        }
+        return gitIgnore;
+    }
+
+    @NotNull
+    private static List<Rule> parse(@NotNull List<String> patterns, boolean relativeToDirectory) {
+        List<Rule> rules = new ArrayList<Rule>();
+        for (String pattern : patterns) {
+            pattern = pattern.trim();
+            if (pattern.length() > 0 && !pattern.startsWith("#")) {
+                rules.add(new Rule(pattern, relativeToDirectory));
+            }
+        }
+        return Collections.unmodifiableList(rules);
+    }
+
+    @NotNull
+    private static String slashes(@NotNull String path) {
+        return path.replace(File.separatorChar, '/');
+    }
+
+    private static class GitIgnore {
+
+        @NotNull private final List<Rule> rules;
+        private final boolean repositoryRoot;
+
+        public GitIgnore(@NotNull File dir) {
+            File file = new File(dir, GIT_IGNORE);
+            List<String> lines = new ArrayList<String>();
+            if (file.isFile()) {
+                try {
+                    lines.addAll(Arrays.asList(FileUtil.contentsOf(file).split("\r?\n")));
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            this.rules = parse(lines, true);
+            this.repositoryRoot = new File(dir, GIT_DIR).exists();
+        }
+    }
+
+    private static class Rule {
+
+        @NotNull private final Pattern regex;
+        private final boolean negated;
+        private final boolean onlyDirectories;
+
+        public Rule(@NotNull String pattern, boolean relativeToDirectory) {
+            negated = pattern.startsWith("!");
+            if (negated) {
+                pattern = pattern.substring(1);
+            }
+            onlyDirectories = pattern.endsWith("/");
+            if (onlyDirectories) {
+                pattern = pattern.substring(0, pattern.length() - 1);
+            }
+            boolean onlyName = pattern.indexOf('/') < 0;
+            if (pattern.startsWith("/")) {
+                pattern = pattern.substring(1);
+            }
+            String anyParents = (onlyName || !relativeToDirectory) ? ".*/" : "/";
+            regex = Pattern.compile(anyParents + toRegex(pattern));
+        }
+
+        @NotNull
+        private static String toRegex(@NotNull String glob) {
+            StringBuilder regex = new StringBuilder();
+            for (int i = 0; i < glob.length(); i++) {
+                if (glob.startsWith("**/", i)) {
+                    regex.append("(.*/)?");
+                    i += 2;
+                } else if (glob.startsWith("/**", i) && i + 3 == glob.length()) {
+                    regex.append("(/.*)?");
+                    i += 2;
+                } else if (glob.startsWith("**", i)) {
+                    regex.append(".*");
+                    i += 1;
+                } else if (glob.charAt(i) == '*') {
+                    regex.append("[^/]*");
+                } else if (glob.charAt(i) == '?') {
+                    regex.append("[^/]");
+                } else {
+                    regex.append(Pattern.quote(String.valueOf(glob.charAt(i))));
+                }
+            }
+            return regex.toString();
+        }
+
+        public boolean matches(@NotNull String path, @NotNull File file) {
+            return regex.matcher(path).matches()
+                    && (!onlyDirectories || file.isDirectory());
+        }
+    }
+}
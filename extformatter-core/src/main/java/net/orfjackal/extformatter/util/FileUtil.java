@@ -27,28 +27,20 @@ import java.io.*;
  */
 public class FileUtil {
 
-    private FileUtil() {
-    }
+    private static final CanonicalPathCache CANONICAL_PATHS = new CanonicalPathCache();
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
 
-    @NotNull
-    public static String quotedListOf(@NotNull File... files) {
-        if (files.length == 0) {
-            throw new IllegalArgumentException("No files");
-        }
-        String paths = "";
-        for (File file : files) {
-            if (paths.length() > 0) {
-                paths += " ";
-            }
-            paths += quoted(file);
-        }
-        return paths;
+    private FileUtil() {
     }
 
+    /**
+     * Like {@link File#getCanonicalFile()}, but the results are cached for a while.
+     */
     @NotNull
-    public static String quoted(@NotNull File file) {
+    public static File canonicalFile(@NotNull File file) {
         try {
-            return '"' + file.getCanonicalPath() + '"';
+            return CANONICAL_PATHS.canonicalFile(file);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -72,6 +64,60 @@ public class FileUtil {
         return result.toString();
     }
 
+    /**
+     * Writes the contents using the same encoding as {@link #contentsOf} reads them.
+     */
+    public static void writeContents(@NotNull File file, @NotNull String contents) throws IOException {
+        FileWriter writer = null;
+        try {
+            writer = new FileWriter(file);
+            writer.write(contents);
+        } finally {
+            close(writer);
+        }
+    }
+
+    /**
+     * A 64-bit FNV-1a hash of the file's contents, for noticing whether the contents have changed.
+     */
+    public static long contentHashOf(@NotNull File file) throws IOException {
+        long hash = FNV_OFFSET_BASIS;
+        InputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            byte[] buf = new byte[8192];
+            int len;
+            while ((len = in.read(buf)) >= 0) {
+                for (int i = 0; i < len; i++) {
+                    hash ^= buf[i] & 0xff;
+                    hash *= FNV_PRIME;
+                }
+            }
+        } finally {
+            close(in);
+        }
+        return hash;
+    }
+
+    /**
+     * A 64-bit FNV-1a hash of the string's UTF-8 bytes, so that it equals {@link #contentHashOf}
+     * of a UTF-8 encoded file which contains the same text.
+     */
+    public static long hashOf(@NotNull String s) {
+        byte[] bytes;
+        try {
+            bytes = s.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : bytes) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
     public static void copy(@NotNull File from, @NotNull File to) throws IOException {
         InputStream readFrom = null;
         OutputStream writeTo = null;
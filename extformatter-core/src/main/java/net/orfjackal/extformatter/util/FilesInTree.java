@@ -0,0 +1,93 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter.util;
+
+import org.jetbrains.annotations.*;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * The files in a directory tree, found lazily while iterating. Only one directory's listing
+ * and the directories which remain to be searched are kept in memory at a time.
+ *
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+public class FilesInTree implements Iterable<File> {
+
+    @NotNull private final File root;
+    @NotNull private final FileFilter filter;
+    @NotNull private final FileFilter directoryFilter;
+
+    public FilesInTree(@NotNull File root, @NotNull FileFilter filter) {
+        this(root, filter, new Directories());
+    }
+
+    /**
+     * @param directoryFilter the subdirectories which are searched, for example {@link Directories}
+     *                        with the {@link ExcludedFiles} which should be skipped.
+     */
+    public FilesInTree(@NotNull File root, @NotNull FileFilter filter, @NotNull FileFilter directoryFilter) {
+        this.root = root;
+        this.filter = filter;
+        this.directoryFilter = directoryFilter;
+    }
+
+    @NotNull
+    public Iterator<File> iterator() {
+        return new TreeIterator();
+    }
+
+    private class TreeIterator implements Iterator<File> {
+
+        @NotNull private final LinkedList<File> directories = new LinkedList<File>();
+        @NotNull private File[] files = new File[0];
+        private int index = 0;
+
+        public TreeIterator() {
+            directories.add(root);
+        }
+
+        public boolean hasNext() {
+            while (index >= files.length && !directories.isEmpty()) {
+                File directory = directories.removeFirst();
+                files = nonNull(directory.listFiles(filter));
+                index = 0;
+                directories.addAll(0, Arrays.asList(nonNull(directory.listFiles(directoryFilter))));
+            }
+            return index < files.length;
+        }
+
+        public File next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return files[index++];
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    @NotNull
+    private static File[] nonNull(@Nullable File[] files) {
+        return files == null ? new File[0] : files;
+    }
+}
@@ -29,12 +29,18 @@ import java.io.*;
 public class FilesSupportedBy implements FileFilter {
 
     private final CodeFormatter formatter;
+    private final ExcludedFiles excluded;
 
     public FilesSupportedBy(@NotNull CodeFormatter formatter) {
+        this(formatter, ExcludedFiles.NONE);
+    }
+
+    public FilesSupportedBy(@NotNull CodeFormatter formatter, @NotNull ExcludedFiles excluded) {
         this.formatter = formatter;
+        this.excluded = excluded;
     }
 
     public boolean accept(File pathname) {
-        return pathname.isFile() && formatter.supportsFileType(pathname);
+        return pathname.isFile() && formatter.supportsFileType(pathname) && !excluded.accept(pathname);
     }
 }
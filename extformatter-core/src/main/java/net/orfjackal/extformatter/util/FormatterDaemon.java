@@ -0,0 +1,280 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter.util;
+
+import org.jetbrains.annotations.*;
+
+import java.io.*;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Keeps a formatter server process running, so that the formatter does not need to be started again for
+ * every reformat. The server is started on first use, and it is restarted if it has died or does not
+ * answer a health check.
+ * <p/>
+ * The server reads requests from its stdin and writes one response line to its stdout for each request.
+ * The lines are UTF-8 encoded and the paths are absolute.
+ * <pre>
+ * PING                       -&gt; PONG
+ * FORMAT &lt;n&gt;                 -&gt; OK
+ * &lt;path 1&gt;                       or ERROR &lt;message&gt;
+ * ...
+ * &lt;path n&gt;
+ * QUIT                       (no response, the server exits)
+ * </pre>
+ * The server should also exit when its stdin is closed. Anything which the server writes to its stderr
+ * is copied to System.err. Requests are sent one at a time; the daemon is thread-safe.
+ * <p/>
+ * The server is started with a {@link ProcessPool}, and it takes one of the pool's slots for as long as it runs.
+ * The pool's timeout limits how long the server may take to answer a request. A server which does not answer
+ * in time is killed together with its child processes and the request fails without being sent again,
+ * because a request which was too slow once would be as slow the next time. The server is restarted on
+ * the next request.
+ *
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+public class FormatterDaemon {
+
+    public static final String PING = "PING";
+    public static final String PONG = "PONG";
+    public static final String FORMAT = "FORMAT";
+    public static final String OK = "OK";
+    public static final String ERROR = "ERROR";
+    public static final String QUIT = "QUIT";
+
+    private static final String ENCODING = "UTF-8";
+    private static final long DEFAULT_HEALTH_CHECK_INTERVAL = 60 * 1000;
+
+    @NotNull private final CommandTemplate command;
+    private final long healthCheckIntervalMillis;
+    @NotNull private final ProcessPool pool;
+    @Nullable private Process process;
+    @Nullable private BufferedReader responses;
+    @Nullable private Writer requests;
+    private long lastResponseTime;
+    private int starts = 0;
+
+    public FormatterDaemon(@NotNull String command) {
+        this(command, DEFAULT_HEALTH_CHECK_INTERVAL);
+    }
+
+    public FormatterDaemon(@NotNull String command, @NotNull ProcessPool pool) {
+        this(command, DEFAULT_HEALTH_CHECK_INTERVAL, pool);
+    }
+
+    /**
+     * @param healthCheckIntervalMillis if the server has been idle for longer than this,
+     *                                  its health is checked before sending it more work.
+     */
+    public FormatterDaemon(@NotNull String command, long healthCheckIntervalMillis) {
+        this(command, healthCheckIntervalMillis, new ProcessPool());
+    }
+
+    public FormatterDaemon(@NotNull String command, long healthCheckIntervalMillis, @NotNull ProcessPool pool) {
+        this.command = new CommandTemplate(command);
+        this.healthCheckIntervalMillis = healthCheckIntervalMillis;
+        this.pool = pool;
+    }
+
+    /**
+     * Reformats the files. If the server has died, it is restarted and the request is sent again once.
+     *
+     * @throws RuntimeException if the server reports an error, dies or does not answer in time.
+     */
+    public synchronized void format(@NotNull List<File> files) {
+        StringBuilder request = new StringBuilder();
+        request.append(FORMAT).append(' ').append(files.size()).append('\n');
+        for (File file : files) {
+            request.append(file.getAbsolutePath()).append('\n');
+        }
+        String response;
+        try {
+            ensureHealthy();
+            response = send(request.toString());
+        } catch (InterruptedIOException e) {
+            throw new RuntimeException("The formatter server failed to reformat " + files, e);
+        } catch (IOException e) {
+            restart();
+            response = sendOrFail(request.toString());
+        }
+        if (!response.equals(OK)) {
+            throw new RuntimeException("The formatter server failed to reformat " + files + ": " + response);
+        }
+    }
+
+    /**
+     * Whether the server is running and answers a {@link #PING}.
+     */
+    public synchronized boolean isHealthy() {
+        if (!isRunning()) {
+            return false;
+        }
+        try {
+            return send(PING + "\n").equals(PONG);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Asks the server to exit, and kills it if it does not exit on its own.
+     */
+    public synchronized void close() {
+        if (process == null) {
+            return;
+        }
+        try {
+            assert requests != null;
+            requests.write(QUIT + "\n");
+            requests.close();
+        } catch (IOException e) {
+            // already dead
+        }
+        kill(process);
+        process = null;
+        requests = null;
+        responses = null;
+    }
+
+    /**
+     * Kills the server and makes room in the pool. The process is waited for before the pool, so that
+     * a server which was killed here would not be counted as timed out by the pool.
+     */
+    private void kill(@NotNull Process process) {
+        ProcessPool.destroyTree(process);
+        boolean interrupted = false;
+        try {
+            process.waitFor();
+        } catch (InterruptedException e) {
+            interrupted = true;
+        }
+        try {
+            pool.waitFor(process);
+        } catch (InterruptedException e) {
+            interrupted = true;
+        } catch (ProcessTimeoutException e) {
+            // it was killed already
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * How many times the server has been started.
+     */
+    synchronized int getStarts() {
+        return starts;
+    }
+
+    @Nullable
+    synchronized Process getProcess() {
+        return process;
+    }
+
+    private void ensureHealthy() throws IOException {
+        if (!isRunning()) {
+            restart();
+        } else if (System.currentTimeMillis() - lastResponseTime > healthCheckIntervalMillis && !isHealthy()) {
+            restart();
+        }
+    }
+
+    private boolean isRunning() {
+        if (process == null) {
+            return false;
+        }
+        try {
+            process.exitValue();
+            return false;
+        } catch (IllegalThreadStateException e) {
+            return true;
+        }
+    }
+
+    private void restart() {
+        close();
+        try {
+            Process p = pool.start(new ProcessBuilder(command.tokens()));
+            OutputPump.shared().copy(p.getErrorStream(), System.err);
+            requests = new BufferedWriter(new OutputStreamWriter(p.getOutputStream(), ENCODING));
+            responses = new BufferedReader(new InputStreamReader(p.getInputStream(), ENCODING));
+            process = p;
+            starts++;
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to start the formatter server: " + command, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while starting the formatter server: " + command, e);
+        }
+    }
+
+    @NotNull
+    private String sendOrFail(@NotNull String request) {
+        try {
+            return send(request);
+        } catch (IOException e) {
+            close();
+            throw new RuntimeException("The formatter server is not responding: " + command, e);
+        }
+    }
+
+    @NotNull
+    private String send(@NotNull String request) throws IOException {
+        assert requests != null && responses != null;
+        requests.write(request);
+        requests.flush();
+        String response = awaitResponse(responses);
+        if (response == null) {
+            throw new EOFException("The formatter server exited");
+        }
+        lastResponseTime = System.currentTimeMillis();
+        return response;
+    }
+
+    /**
+     * The response is read on another thread, because a blocking read can not be given a timeout.
+     * Killing the server ends the read.
+     */
+    @Nullable
+    private String awaitResponse(@NotNull final BufferedReader responses) throws IOException {
+        Future<String> response = OutputPump.shared().call(new Callable<String>() {
+            public String call() throws IOException {
+                return responses.readLine();
+            }
+        });
+        long timeout = pool.getTimeoutMillis();
+        try {
+            return timeout == ProcessPool.NO_TIMEOUT ? response.get() : response.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            close();
+            throw new InterruptedIOException("The formatter server did not answer in " + timeout + " ms, so it was killed");
+        } catch (InterruptedException e) {
+            close();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the formatter server");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+}
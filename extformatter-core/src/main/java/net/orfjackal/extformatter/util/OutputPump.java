@@ -0,0 +1,145 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drains the output streams of child processes, and writes their input streams, on the threads of
+ * {@link BlockingExecutors#newUnboundedExecutor} instead of starting new platform threads for every process.
+ * The large copy buffers are reused.
+ * <p/>
+ * A process's streams can not be multiplexed with a selector, because they are not selectable channels,
+ * so each stream occupies a thread until it ends. For the same reason the number of threads is not bounded:
+ * a stream which nobody reads could fill its pipe buffer and block its process forever.
+ * <p/>
+ * The pump is thread-safe.
+ *
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+public class OutputPump {
+
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final OutputPump SHARED = new OutputPump();
+
+    @NotNull private final ExecutorService threads = BlockingExecutors.newUnboundedExecutor(OutputPump.class.getSimpleName());
+    @NotNull private final Queue<byte[]> buffers = new ConcurrentLinkedQueue<byte[]>();
+    private final AtomicInteger bufferCount = new AtomicInteger();
+
+    /**
+     * The pump which is shared by all processes.
+     */
+    @NotNull
+    public static OutputPump shared() {
+        return SHARED;
+    }
+
+    /**
+     * Copies the stream until it ends, and closes it.
+     *
+     * @return the number of bytes read.
+     */
+    @NotNull
+    public Future<Long> copy(@NotNull InputStream from, @NotNull OutputStream to) {
+        return copy(from, to, UNLIMITED);
+    }
+
+    /**
+     * Copies at most {@code maxBytes} of the stream. The rest of the stream is read and discarded,
+     * so that the process which writes it will not block.
+     *
+     * @return the number of bytes read, which is more than {@code maxBytes} if some of them were discarded.
+     */
+    @NotNull
+    public Future<Long> copy(@NotNull final InputStream from, @NotNull final OutputStream to, final long maxBytes) {
+        return threads.submit(new Callable<Long>() {
+            public Long call() throws IOException {
+                byte[] buf = takeBuffer();
+                long total = 0;
+                try {
+                    int len;
+                    while ((len = from.read(buf)) >= 0) {
+                        if (total < maxBytes) {
+                            to.write(buf, 0, (int) Math.min(len, maxBytes - total));
+                        }
+                        total += len;
+                    }
+                    to.flush();
+                } finally {
+                    buffers.add(buf);
+                    from.close();
+                }
+                return total;
+            }
+        });
+    }
+
+    /**
+     * Runs some other work which may block on a process, for example writing to its stdin.
+     */
+    @NotNull
+    public Future<?> run(@NotNull Runnable task) {
+        return threads.submit(task);
+    }
+
+    /**
+     * Runs some other work which may block on a process, for example reading from its stdout.
+     */
+    @NotNull
+    public <T> Future<T> call(@NotNull Callable<T> task) {
+        return threads.submit(task);
+    }
+
+    @NotNull
+    private byte[] takeBuffer() {
+        byte[] buf = buffers.poll();
+        if (buf == null) {
+            bufferCount.incrementAndGet();
+            buf = new byte[BUFFER_SIZE];
+        }
+        return buf;
+    }
+
+    /**
+     * The number of copy buffers which have been allocated.
+     */
+    int getBufferCount() {
+        return bufferCount.get();
+    }
+
+    /**
+     * Waits for the work to finish.
+     *
+     * @throws RuntimeException if the work failed.
+     */
+    public static <T> T await(@NotNull Future<T> work) throws InterruptedException {
+        try {
+            return work.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+}
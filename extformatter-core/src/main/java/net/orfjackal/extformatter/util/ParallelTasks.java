@@ -0,0 +1,78 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter.util;
+
+import org.jetbrains.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs independent tasks on a bounded number of threads and waits for all of them to finish.
+ * A failing task does not stop the others. The threads are virtual if the runtime supports them,
+ * see {@link BlockingExecutors}.
+ *
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+public class ParallelTasks {
+
+    private ParallelTasks() {
+    }
+
+    /**
+     * Runs the tasks, at most {@code parallelism} of them at the same time, in the order in which they are given.
+     *
+     * @return what each task threw, or {@code null} for the tasks which completed normally,
+     *         in the same order as the tasks.
+     */
+    @NotNull
+    public static List<Throwable> runAll(@NotNull List<? extends Runnable> tasks, int parallelism) {
+        List<Throwable> failures = new ArrayList<Throwable>(tasks.size());
+        if (tasks.isEmpty()) {
+            return failures;
+        }
+        ExecutorService executor = BlockingExecutors.newBoundedExecutor(Math.min(parallelism, tasks.size()),
+                ParallelTasks.class.getSimpleName());
+        try {
+            List<Future<?>> results = new ArrayList<Future<?>>(tasks.size());
+            for (Runnable task : tasks) {
+                results.add(executor.submit(task));
+            }
+            for (Future<?> result : results) {
+                failures.add(failureOf(result));
+            }
+            return failures;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Nullable
+    private static Throwable failureOf(@NotNull Future<?> result) throws InterruptedException {
+        try {
+            result.get();
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Executes a command. The command is given as a list of arguments, the first of which is the executable,
+ * so the arguments are passed to the command as they are, even when they contain whitespace.
+ *
+ * @author Esko Luontola
+ * @since 30.11.2007
+ */
+public interface ProcessExecutor {
+
+    /**
+     * Returns after the command has exited. A command which exits with a non-zero exit value
+     * is considered to have failed, and a RuntimeException is thrown.
+     */
+    void executeAndWait(@NotNull List<String> command);
+
+    /**
+     * Writes the lines to the command's stdin while the command is running, each line followed by a line feed.
+     */
+    void executeAndWait(@NotNull List<String> command, @NotNull List<String> stdinLines);
+
+    /**
+     * Writes the input to the command's stdin and returns what the command writes to its stdout.
+     * See {@link ProcessPipe}.
+     */
+    @NotNull
+    String pipe(@NotNull List<String> command, @NotNull String input);
+
+    /**
+     * Starts the command without waiting for it to finish.
+     */
+    @NotNull
+    Process exec(@NotNull List<String> command);
+}
@@ -19,19 +19,40 @@ package net.orfjackal.extformatter.util;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.util.List;
+
 /**
  * For debugging purposes, does not execute anything - only prints the command.
  *
  * @author Esko Luontola
  * @since 1.12.2007
  */
-public class ProcessExecutor1Dummy implements ProcessExecutor1 {
+public class ProcessExecutorDummy implements ProcessExecutor {
 
     private static final int LINE_LENGTH = 120;
 
-    public void executeAndWait(@NotNull String command) {
-        System.out.println(ProcessExecutor1Dummy.class.getName() + ".execute(), command:");
-        System.out.print(lineWrap(command));
+    public void executeAndWait(@NotNull List<String> command) {
+        System.out.println(ProcessExecutorDummy.class.getName() + ".execute(), command:");
+        System.out.print(lineWrap(command.toString()));
+    }
+
+    public void executeAndWait(@NotNull List<String> command, @NotNull List<String> stdinLines) {
+        executeAndWait(command);
+        System.out.println("stdin:");
+        for (String line : stdinLines) {
+            System.out.println(line);
+        }
+    }
+
+    @NotNull
+    public String pipe(@NotNull List<String> command, @NotNull String input) {
+        executeAndWait(command);
+        return input;
+    }
+
+    @NotNull
+    public Process exec(@NotNull List<String> command) {
+        throw new UnsupportedOperationException("Only prints the command: " + command);
     }
 
     @NotNull
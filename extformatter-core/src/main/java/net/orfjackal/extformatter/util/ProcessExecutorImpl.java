@@ -0,0 +1,175 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter.util;
+
+import org.jetbrains.annotations.*;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.Future;
+
+/**
+ * Executes a command with {@link ProcessBuilder}. Prints the output of the command.
+ * The command's stdin is closed right away, or after the lines for it have been written, so that
+ * a command which reads it will not wait forever. The lines are written in the platform's default encoding.
+ * <p/>
+ * The commands are run in a {@link ProcessPool}, which limits how many of them may run at the same time
+ * and how long they may run. If the waiting thread is interrupted, the command is killed, the thread's
+ * interrupted status is restored and a RuntimeException is thrown.
+ * <p/>
+ * The output is copied and the input is written by the shared {@link OutputPump}.
+ *
+ * @author Esko Luontola
+ * @since 1.12.2007
+ */
+public class ProcessExecutorImpl implements ProcessExecutor {
+
+    private static final OutputPump PUMP = OutputPump.shared();
+
+    @NotNull private final OutputStream stdout;
+    @NotNull private final OutputStream stderr;
+    @NotNull private final ProcessPool pool;
+    @NotNull private final ProcessPipe pipe;
+
+    public ProcessExecutorImpl() {
+        this(new ProcessPool());
+    }
+
+    public ProcessExecutorImpl(@NotNull ProcessPool pool) {
+        this(System.out, System.err, pool);
+    }
+
+    public ProcessExecutorImpl(@NotNull OutputStream redirectStdout, @NotNull OutputStream redirectStderr) {
+        this(redirectStdout, redirectStderr, new ProcessPool());
+    }
+
+    public ProcessExecutorImpl(@NotNull OutputStream redirectStdout, @NotNull OutputStream redirectStderr,
+                               @NotNull ProcessPool pool) {
+        this.stdout = redirectStdout;
+        this.stderr = redirectStderr;
+        this.pool = pool;
+        this.pipe = new ProcessPipe(Charset.defaultCharset().name(), pool);
+    }
+
+    @NotNull
+    public ProcessPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Returns after the command has exited and all of its output has been printed.
+     *
+     * @throws RuntimeException if the command could not be executed or it exits with a non-zero exit value.
+     */
+    public void executeAndWait(@NotNull List<String> command) {
+        executeAndWait(command, Collections.<String>emptyList());
+    }
+
+    /**
+     * @throws RuntimeException        if the command could not be executed or it exits with a non-zero exit value.
+     *                                 The command's stderr has been printed already.
+     * @throws ProcessTimeoutException if the command did not exit before the pool's timeout.
+     */
+    public void executeAndWait(@NotNull List<String> command, @NotNull List<String> stdinLines) {
+        Process process;
+        try {
+            process = pool.start(new ProcessBuilder(command));
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to execute: " + command, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        if (stdinLines.isEmpty()) {
+            closeStdinOf(process);
+        }
+        Future<?> in = writeLines(stdinLines, process.getOutputStream());
+        Future<Long> out = PUMP.copy(process.getInputStream(), stdout);
+        Future<Long> err = PUMP.copy(process.getErrorStream(), stderr);
+        int exitValue;
+        try {
+            exitValue = pool.waitFor(process);
+            if (in != null) {
+                OutputPump.await(in);
+            }
+            OutputPump.await(out);
+            OutputPump.await(err);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        if (exitValue != 0) {
+            throw new RuntimeException("Exit value " + exitValue + " from: " + command);
+        }
+    }
+
+    @NotNull
+    public String pipe(@NotNull List<String> command, @NotNull String input) {
+        return pipe.pipe(command, input);
+    }
+
+    /**
+     * The process is not limited by the pool, because the caller decides when to wait for it.
+     */
+    @NotNull
+    public Process exec(@NotNull List<String> command) {
+        Process process;
+        try {
+            process = new ProcessBuilder(command).start();
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to execute: " + command, e);
+        }
+        closeStdinOf(process);
+        PUMP.copy(process.getInputStream(), stdout);
+        PUMP.copy(process.getErrorStream(), stderr);
+        return process;
+    }
+
+    private static void closeStdinOf(@NotNull Process process) {
+        try {
+            process.getOutputStream().close();
+        } catch (IOException e) {
+            // the command has already exited
+        }
+    }
+
+    @Nullable
+    private static Future<?> writeLines(@NotNull final List<String> lines, @NotNull final OutputStream to) {
+        if (lines.isEmpty()) {
+            return null;
+        }
+        return PUMP.run(new Runnable() {
+            public void run() {
+                try {
+                    Writer writer = new BufferedWriter(new OutputStreamWriter(to));
+                    try {
+                        for (String line : lines) {
+                            writer.write(line);
+                            writer.write('\n');
+                        }
+                    } finally {
+                        writer.close();
+                    }
+                } catch (IOException e) {
+                    // the command exited without reading all of its input
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * Pipes text through a shell command: the text is written to the command's stdin, and what the command
+ * writes to its stdout is the result. Nothing is written to disk. The stdin is written and the stdout and
+ * stderr are read by the shared {@link OutputPump}, so that the command can not block on a full pipe buffer,
+ * and a command which hangs is killed when the {@link ProcessPool}'s timeout is reached. Only the first
+ * {@link #MAX_ERROR_OUTPUT} bytes of the stderr are kept for the error message.
+ * <p/>
+ * The pipe is thread-safe, so the same instance may run many commands concurrently.
+ *
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+public class ProcessPipe {
+
+    public static final int MAX_ERROR_OUTPUT = 64 * 1024;
+
+    private static final OutputPump PUMP = OutputPump.shared();
+
+    @NotNull private final String encoding;
+    @NotNull private final ProcessPool pool;
+
+    /**
+     * Uses the platform's default encoding, the same as {@link FileUtil#contentsOf}.
+     */
+    public ProcessPipe() {
+        this(Charset.defaultCharset().name(), new ProcessPool());
+    }
+
+    public ProcessPipe(@NotNull String encoding, @NotNull ProcessPool pool) {
+        this.encoding = encoding;
+        this.pool = pool;
+    }
+
+    /**
+     * @throws RuntimeException if the command could not be executed or it exits with a non-zero exit value.
+     *                          The message includes what the command wrote to its stderr.
+     * @throws ProcessTimeoutException if the command did not exit before the pool's timeout.
+     */
+    @NotNull
+    public String pipe(@NotNull List<String> command, @NotNull String input) {
+        Process process;
+        try {
+            process = pool.start(new ProcessBuilder(command));
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to execute: " + command, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        Future<Long> outputReader = PUMP.copy(process.getInputStream(), output);
+        Future<Long> errorReader = PUMP.copy(process.getErrorStream(), errors, MAX_ERROR_OUTPUT);
+        Future<?> inputWriter = writeInBackground(input, process.getOutputStream());
+        try {
+            int exitValue = pool.waitFor(process);
+            OutputPump.await(inputWriter);
+            OutputPump.await(outputReader);
+            long errorBytes = OutputPump.await(errorReader);
+            if (exitValue != 0) {
+                String truncated = errorBytes > MAX_ERROR_OUTPUT
+                        ? "\n[" + (errorBytes - MAX_ERROR_OUTPUT) + " more bytes]" : "";
+                throw new RuntimeException("Exit value " + exitValue + " from: " + command
+                        + "\n" + errors.toString(encoding) + truncated);
+            }
+            return output.toString(encoding);
+
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    @NotNull
+    private Future<?> writeInBackground(@NotNull final String input, @NotNull final OutputStream to) {
+        return PUMP.run(new Runnable() {
+            public void run() {
+                try {
+                    Writer writer = new OutputStreamWriter(to, encoding);
+                    try {
+                        writer.write(input);
+                    } finally {
+                        writer.close();
+                    }
+                } catch (IOException e) {
+                    // the command exited without reading all of its input; its exit value tells whether it failed
+                }
+            }
+        });
+    }
+}
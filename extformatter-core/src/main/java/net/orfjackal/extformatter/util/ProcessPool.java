@@ -0,0 +1,245 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter.util;
+
+import org.jetbrains.annotations.*;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits how many processes run at the same time and how long each of them may run, so that a hung formatter
+ * can not freeze the IDE. A process is started with {@link #start} when there is room for it, and then
+ * {@link #waitFor} must be called to wait for it to exit and to make room for the next process. A process
+ * which does not exit before its deadline, or whose waiting thread is interrupted, is killed together with
+ * its child processes.
+ * <p/>
+ * Java 5 can neither wait for a process with a timeout nor see its child processes, so the process is polled
+ * until it exits, and the child processes are found and killed forcibly only when running on Java 9 or newer,
+ * where {@code Process.descendants()} exists. On older Java versions only the process itself is destroyed.
+ * <p/>
+ * The pool keeps count of how long the processes waited for their turn and how long they ran.
+ * The pool is thread-safe.
+ *
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+public class ProcessPool {
+
+    public static final long NO_TIMEOUT = 0;
+
+    private static final long MAX_POLL_INTERVAL = 50;
+
+    private final int maxConcurrency;
+    private final long timeoutMillis;
+    @NotNull private final Semaphore slots;
+    @NotNull private final Map<Process, Long> startTimes = new ConcurrentHashMap<Process, Long>();
+
+    private final AtomicLong processCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong totalQueueWaitMillis = new AtomicLong();
+    private final AtomicLong maxQueueWaitMillis = new AtomicLong();
+    private final AtomicLong totalRunMillis = new AtomicLong();
+    private final AtomicLong maxRunMillis = new AtomicLong();
+
+    /**
+     * No limits.
+     */
+    public ProcessPool() {
+        this(Integer.MAX_VALUE, NO_TIMEOUT);
+    }
+
+    /**
+     * @param timeoutMillis how long a process may run, or {@link #NO_TIMEOUT}.
+     */
+    public ProcessPool(int maxConcurrency, long timeoutMillis) {
+        if (maxConcurrency < 1 || timeoutMillis < 0) {
+            throw new IllegalArgumentException("maxConcurrency: " + maxConcurrency + ", timeoutMillis: " + timeoutMillis);
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.timeoutMillis = timeoutMillis;
+        this.slots = new Semaphore(maxConcurrency, true);
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Starts the process as soon as fewer than {@link #getMaxConcurrency} processes are running.
+     * Interrupting the thread while it waits cancels the start.
+     */
+    @NotNull
+    public Process start(@NotNull ProcessBuilder builder) throws IOException, InterruptedException {
+        long queued = System.currentTimeMillis();
+        slots.acquire();
+        long started = System.currentTimeMillis();
+        record(started - queued, totalQueueWaitMillis, maxQueueWaitMillis);
+        try {
+            Process process = builder.start();
+            startTimes.put(process, started);
+            processCount.incrementAndGet();
+            return process;
+        } catch (IOException e) {
+            slots.release();
+            throw e;
+        } catch (RuntimeException e) {
+            slots.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for the process to exit, but no longer than the pool's timeout since the process was started.
+     *
+     * @return the exit value of the process.
+     * @throws ProcessTimeoutException if the process did not exit in time. It has been killed.
+     * @throws InterruptedException    if the thread was interrupted. The process has been killed.
+     */
+    public int waitFor(@NotNull Process process) throws InterruptedException {
+        Long started = startTimes.get(process);
+        if (started == null) {
+            throw new IllegalArgumentException("Not started by this pool: " + process);
+        }
+        try {
+            return timeoutMillis == NO_TIMEOUT ? process.waitFor() : waitUntil(process, started + timeoutMillis);
+        } catch (InterruptedException e) {
+            destroyTree(process);
+            throw e;
+        } finally {
+            startTimes.remove(process);
+            record(System.currentTimeMillis() - started, totalRunMillis, maxRunMillis);
+            slots.release();
+        }
+    }
+
+    private int waitUntil(@NotNull Process process, long deadline) throws InterruptedException {
+        long interval = 1;
+        while (true) {
+            try {
+                return process.exitValue();
+            } catch (IllegalThreadStateException e) {
+                // still running
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                timeoutCount.incrementAndGet();
+                destroyTree(process);
+                throw new ProcessTimeoutException("The process did not exit in " + timeoutMillis + " ms, so it was killed");
+            }
+            Thread.sleep(Math.min(interval, remaining));
+            interval = Math.min(2 * interval, MAX_POLL_INTERVAL);
+        }
+    }
+
+    /**
+     * Kills all processes which are running. Their {@link #waitFor} calls return the exit values of the killed processes.
+     */
+    public void cancelAll() {
+        for (Process process : new ArrayList<Process>(startTimes.keySet())) {
+            destroyTree(process);
+        }
+    }
+
+    public int getRunningCount() {
+        return startTimes.size();
+    }
+
+    public long getProcessCount() {
+        return processCount.get();
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    public long getTotalQueueWaitMillis() {
+        return totalQueueWaitMillis.get();
+    }
+
+    public long getMaxQueueWaitMillis() {
+        return maxQueueWaitMillis.get();
+    }
+
+    public long getTotalRunMillis() {
+        return totalRunMillis.get();
+    }
+
+    public long getMaxRunMillis() {
+        return maxRunMillis.get();
+    }
+
+    public String toString() {
+        return getClass().getSimpleName() + "[processes=" + getProcessCount()
+                + ", timeouts=" + getTimeoutCount()
+                + ", queueWait(total/max)=" + getTotalQueueWaitMillis() + "/" + getMaxQueueWaitMillis() + " ms"
+                + ", run(total/max)=" + getTotalRunMillis() + "/" + getMaxRunMillis() + " ms]";
+    }
+
+    private static void record(long millis, @NotNull AtomicLong total, @NotNull AtomicLong max) {
+        total.addAndGet(millis);
+        long previous = max.get();
+        while (millis > previous && !max.compareAndSet(previous, millis)) {
+            previous = max.get();
+        }
+    }
+
+    /**
+     * Kills the process and, on Java 9 or newer, all of its descendants.
+     */
+    public static void destroyTree(@NotNull Process process) {
+        // the descendants must be found before the parent dies, or they would not be its descendants anymore
+        for (Object descendant : descendantsOf(process)) {
+            invoke("java.lang.ProcessHandle", "destroyForcibly", descendant);
+        }
+        if (!invoke("java.lang.Process", "destroyForcibly", process)) {
+            process.destroy();
+        }
+    }
+
+    @NotNull
+    private static List<Object> descendantsOf(@NotNull Process process) {
+        List<Object> descendants = new ArrayList<Object>();
+        try {
+            Object stream = Process.class.getMethod("descendants").invoke(process);
+            Method iterator = Class.forName("java.util.stream.BaseStream").getMethod("iterator");
+            for (Iterator<?> it = (Iterator<?>) iterator.invoke(stream); it.hasNext(); ) {
+                descendants.add(it.next());
+            }
+        } catch (Exception e) {
+            // older than Java 9
+        }
+        return descendants;
+    }
+
+    private static boolean invoke(@NotNull String className, @NotNull String methodName, @Nullable Object target) {
+        try {
+            Class.forName(className).getMethod(methodName).invoke(target);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
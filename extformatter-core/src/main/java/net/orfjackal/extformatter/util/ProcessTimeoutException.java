@@ -20,12 +20,14 @@ package net.orfjackal.extformatter.util;
 import org.jetbrains.annotations.NotNull;
 
 /**
- * Executes a shell command.
+ * Thrown when a process did not exit before its deadline. The process has been killed.
  *
  * @author Esko Luontola
- * @since 30.11.2007
+ * @since 18.10.2026
  */
-public interface ProcessExecutor1 {
+public class ProcessTimeoutException extends RuntimeException {
 
-    void executeAndWait(@NotNull String command);
+    public ProcessTimeoutException(@NotNull String message) {
+        super(message);
+    }
 }
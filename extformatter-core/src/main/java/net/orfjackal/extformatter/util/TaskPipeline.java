@@ -0,0 +1,97 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs tasks on a bounded number of threads while more tasks are still being produced.
+ * If too many tasks are waiting to be run, {@link #submit} blocks until some of them have been
+ * completed, so a fast producer does not fill the memory with tasks. A failing task does not stop the others.
+ *
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+public class TaskPipeline {
+
+    @NotNull private final ExecutorService executor;
+    @NotNull private final Semaphore inFlight;
+    @NotNull private final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+
+    public TaskPipeline(int parallelism, int maxInFlight) {
+        if (parallelism < 1 || maxInFlight < parallelism) {
+            throw new IllegalArgumentException("parallelism: " + parallelism + ", maxInFlight: " + maxInFlight);
+        }
+        this.executor = BlockingExecutors.newBoundedExecutor(parallelism, TaskPipeline.class.getSimpleName());
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    public TaskPipeline(int parallelism) {
+        this(parallelism, 2 * parallelism);
+    }
+
+    public void submit(@NotNull final Runnable task) {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        task.run();
+                    } catch (Throwable t) {
+                        failures.add(t);
+                    } finally {
+                        inFlight.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for all submitted tasks to finish. No more tasks can be submitted after this.
+     *
+     * @return what the failed tasks threw.
+     */
+    @NotNull
+    public List<Throwable> awaitAll() {
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
+                // keep on waiting; the tasks are external processes which may take long
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        synchronized (failures) {
+            return new ArrayList<Throwable>(failures);
+        }
+    }
+}
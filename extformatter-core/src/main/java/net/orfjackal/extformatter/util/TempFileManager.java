@@ -24,12 +24,15 @@ import java.util.*;
 
 /**
  * Creates temporary copies of files, maintaining a mapping between the original files and their copies.
+ * With {@link #addAll} the files are copied concurrently.
  *
  * @author Esko Luontola
  * @since 18.12.2007
  */
 public class TempFileManager {
 
+    private static final int COPY_PARALLELISM = 8;
+
     @NotNull private final File tempDirectory;
     @NotNull private final Map<File, File> tempsToOriginals = new HashMap<File, File>();
 
@@ -46,6 +49,36 @@ public class TempFileManager {
         }
     }
 
+    /**
+     * Copies the files concurrently, at most {@link #COPY_PARALLELISM} of them at the same time.
+     * The copies are added only if all files could be copied.
+     */
+    public void addAll(@NotNull File... files) {
+        final Map<File, File> copies = new LinkedHashMap<File, File>();
+        Set<File> reserved = new HashSet<File>();
+        List<Runnable> tasks = new ArrayList<Runnable>();
+        for (final File file : files) {
+            final File tempFile = newTempFile(file, reserved);
+            copies.put(tempFile, file);
+            tasks.add(new Runnable() {
+                public void run() {
+                    try {
+                        createParentDir(tempFile);
+                        FileUtil.copy(file, tempFile);
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            });
+        }
+        for (Throwable failure : ParallelTasks.runAll(tasks, COPY_PARALLELISM)) {
+            if (failure != null) {
+                throw new RuntimeException("Unable to copy the files to " + tempDirectory, failure);
+            }
+        }
+        tempsToOriginals.putAll(copies);
+    }
+
     /**
      * Original files in no particular order.
      */
@@ -91,28 +124,32 @@ public class TempFileManager {
 
     @NotNull
     private File copyToTemp(@NotNull File file) throws IOException {
-        File tempFile = newTempFile(file);
+        File tempFile = newTempFile(file, new HashSet<File>());
         createParentDir(tempFile);
         FileUtil.copy(file, tempFile);
         return tempFile;
     }
 
+    /**
+     * @param reserved the temp files which do not exist yet but will be created. The new temp file is added to it.
+     */
     @NotNull
-    private File newTempFile(@NotNull File file) {
+    private File newTempFile(@NotNull File file, @NotNull Set<File> reserved) {
         int i = 0;
         File tempFile;
         do {
             i++;
             tempFile = new File(tempDirectory(i), file.getName());
-        } while (tempFile.exists());
+        } while (tempFile.exists() || reserved.contains(tempFile));
         assert !tempFile.exists();
+        reserved.add(tempFile);
         return tempFile;
     }
 
     private static void createParentDir(@NotNull File file) {
         File dir = file.getParentFile();
-        if (!dir.exists()) {
-            dir.mkdir();
+        if (!dir.exists() && !dir.mkdir() && !dir.isDirectory()) {
+            throw new RuntimeException("Unable to create directory: " + dir);
         }
     }
 
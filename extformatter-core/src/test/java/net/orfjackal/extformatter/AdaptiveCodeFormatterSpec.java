@@ -21,9 +21,14 @@ import jdave.*;
 import jdave.junit4.JDaveRunner;
 import static net.orfjackal.extformatter.TestResources.*;
 import static net.orfjackal.extformatter.TestUtil.supportsReformatting;
+import net.orfjackal.extformatter.util.*;
+import org.jetbrains.annotations.NotNull;
 import org.jmock.Expectations;
 import org.junit.runner.RunWith;
 
+import java.io.*;
+import java.util.*;
+
 /**
  * @author Esko Luontola
  * @since 6.12.2007
@@ -334,6 +339,283 @@ public class AdaptiveCodeFormatterSpec extends Specification<AdaptiveCodeFormatt
         }
     }
 
+    public class WhenFilesAreReformattedOneAtATimeInParallel {
+
+        private static final int PARALLELISM = 3;
+
+        private ConcurrentCodeFormatter formatter;
+        private AdaptiveCodeFormatter adapter;
+
+        public AdaptiveCodeFormatter create() {
+            formatter = new ConcurrentCodeFormatter(PARALLELISM);
+            adapter = new AdaptiveCodeFormatter(formatter);
+            adapter.setParallelism(PARALLELISM);
+            return adapter;
+        }
+
+        public void shouldReformatTheFilesConcurrently() {
+            adapter.reformatMany(FOO_FILE, BAR_FILE, GAZONK_FILE);
+            specify(formatter.reformatted, should.containExactly(FOO_FILE, BAR_FILE, GAZONK_FILE));
+            specify(formatter.maxConcurrentCalls.get(), should.equal(PARALLELISM));
+        }
+
+        public void shouldReportAllFailuresAfterTheOtherFilesHaveBeenReformatted() {
+            formatter.failing.add(FOO_FILE);
+            formatter.failing.add(BAR_FILE);
+            specify(new Block() {
+                public void run() throws Throwable {
+                    try {
+                        adapter.reformatMany(FOO_FILE, BAR_FILE, GAZONK_FILE);
+                    } catch (ReformatFailedException e) {
+                        specify(e.getFailures().size(), should.equal(2));
+                        throw e;
+                    }
+                }
+            }, should.raise(ReformatFailedException.class));
+            specify(formatter.reformatted, should.containExactly(GAZONK_FILE));
+        }
+
+        public void shouldReformatOneAtATimeByDefault() {
+            ConcurrentCodeFormatter sequential = new ConcurrentCodeFormatter(1);
+            new AdaptiveCodeFormatter(sequential).reformatMany(FOO_FILE, BAR_FILE, GAZONK_FILE);
+            specify(sequential.reformatted, should.containExactly(FOO_FILE, BAR_FILE, GAZONK_FILE));
+            specify(sequential.maxConcurrentCalls.get(), should.equal(1));
+        }
+    }
+
+    public class WhenTextsAreReformattedInParallel {
+
+        private static final int PARALLELISM = 3;
+
+        private ConcurrentCodeFormatter formatter;
+        private AdaptiveCodeFormatter adapter;
+
+        public AdaptiveCodeFormatter create() {
+            formatter = new ConcurrentCodeFormatter(PARALLELISM);
+            adapter = new AdaptiveCodeFormatter(formatter);
+            adapter.setParallelism(PARALLELISM);
+            return adapter;
+        }
+
+        public void shouldReformatTheTextsConcurrently() {
+            String[] formatted = adapter.reformatTexts(
+                    new File[]{FOO_FILE, BAR_FILE, GAZONK_FILE}, new String[]{" foo", "bar ", " gazonk "});
+            specify(Arrays.asList(formatted), should.equal(Arrays.asList("foo", "bar", "gazonk")));
+            specify(formatter.maxConcurrentCalls.get(), should.equal(PARALLELISM));
+        }
+
+        public void shouldReportAllFailuresAfterTheOtherTextsHaveBeenReformatted() {
+            formatter.failing.add(FOO_FILE);
+            specify(new Block() {
+                public void run() throws Throwable {
+                    adapter.reformatTexts(new File[]{FOO_FILE, BAR_FILE}, new String[]{"foo", "bar"});
+                }
+            }, should.raise(ReformatFailedException.class));
+            specify(formatter.reformatted, should.containExactly(BAR_FILE));
+        }
+
+        public void shouldNotSupportReformatTextIfTheFormatterDoesNot() {
+            CodeFormatter fileFormatter = new CommandLineCodeFormatter(SUPPORTS_TXT, "formatOne %FILE%", null, null, null);
+            specify(!new AdaptiveCodeFormatter(fileFormatter).supportsReformatText());
+        }
+    }
+
+    public class WhenADirectoryTreeIsReformattedInParallel {
+
+        private static final int PARALLELISM = 4;
+
+        private ConcurrentCodeFormatter formatter;
+        private AdaptiveCodeFormatter adapter;
+        private File root;
+        private List<File> files;
+
+        public AdaptiveCodeFormatter create() throws IOException {
+            formatter = new ConcurrentCodeFormatter(PARALLELISM);
+            adapter = new AdaptiveCodeFormatter(formatter);
+            adapter.setParallelism(PARALLELISM);
+            root = new File(System.getProperty("java.io.tmpdir"), AdaptiveCodeFormatterSpec.class.getName() + ".tree");
+            FileUtil.deleteRecursively(root);
+            files = new ArrayList<File>();
+            for (String path : new String[]{"A.java", "sub1/B.java", "sub1/deep/C.java", "sub2/D.java"}) {
+                File file = new File(root, path);
+                specify(file.getParentFile().mkdirs() || file.getParentFile().isDirectory());
+                specify(file.createNewFile());
+                files.add(file);
+            }
+            return adapter;
+        }
+
+        public void destroy() {
+            FileUtil.deleteRecursively(root);
+        }
+
+        public void shouldReformatTheSubdirectoriesConcurrently() {
+            adapter.reformatRecursively(root);
+            specify(formatter.reformatted, should.containExactly(files.toArray()));
+            specify(formatter.maxConcurrentCalls.get(), should.equal(PARALLELISM));
+        }
+
+        public void shouldReportAllFailuresAfterTheOtherFilesHaveBeenReformatted() {
+            formatter.failing.add(files.get(1));
+            formatter.failing.add(files.get(3));
+            specify(new Block() {
+                public void run() throws Throwable {
+                    try {
+                        adapter.reformatRecursively(root);
+                    } catch (ReformatFailedException e) {
+                        specify(e.getFailures().size(), should.equal(2));
+                        throw e;
+                    }
+                }
+            }, should.raise(ReformatFailedException.class));
+            specify(formatter.reformatted, should.containExactly(files.get(0), files.get(2)));
+        }
+    }
+
+    public class WhenSomeFilesAreExcluded {
+
+        private ConcurrentCodeFormatter formatter;
+        private AdaptiveCodeFormatter adapter;
+        private File root;
+
+        public AdaptiveCodeFormatter create() throws IOException {
+            formatter = new ConcurrentCodeFormatter(1);
+            adapter = new AdaptiveCodeFormatter(formatter);
+            adapter.setExcludedFiles(new ExcludedFiles(false, "target/", "*Generated.java"));
+            root = new File(System.getProperty("java.io.tmpdir"), AdaptiveCodeFormatterSpec.class.getName() + ".excluded");
+            FileUtil.deleteRecursively(root);
+            for (String path : new String[]{"A.java", "target/B.java", "sub/C.java", "sub/CGenerated.java"}) {
+                File file = new File(root, path);
+                specify(file.getParentFile().mkdirs() || file.getParentFile().isDirectory());
+                specify(file.createNewFile());
+            }
+            return adapter;
+        }
+
+        public void destroy() {
+            FileUtil.deleteRecursively(root);
+        }
+
+        public void shouldNotReformatTheExcludedFiles() {
+            adapter.reformatRecursively(root);
+            specify(formatter.reformatted, should.containExactly(new File(root, "A.java"), new File(root, "sub/C.java")));
+        }
+
+        public void shouldNotReformatTheExcludedFilesWhenReformattingInParallel() {
+            adapter.setParallelism(2);
+            adapter.reformatRecursively(root);
+            specify(formatter.reformatted, should.containExactly(new File(root, "A.java"), new File(root, "sub/C.java")));
+        }
+    }
+
+    public class WhenSomeFilesAreExcludedAndTheFormatterSupportsDirectories {
+
+        private CodeFormatter formatter;
+        private AdaptiveCodeFormatter adapter;
+
+        public AdaptiveCodeFormatter create() {
+            formatter = mock(CodeFormatter.class);
+            checking(supportsReformatting(formatter, false, true, true, true));
+            adapter = new AdaptiveCodeFormatter(formatter);
+            adapter.setExcludedFiles(new ExcludedFiles(false, BAR_FILE.getName()));
+            return adapter;
+        }
+
+        public void shouldReformatOnlyTheDirectoriesWithoutExcludedFilesAsAWhole() {
+            checking(new Expectations() {{
+                one (formatter).reformatMany(FOO_FILE);
+                one (formatter).reformatDirectory(TESTFILES_SUBDIR);
+            }});
+            adapter.reformatRecursively(TESTFILES_DIR);
+        }
+    }
+
+    public class WhenReformattingAnIterableOfFiles {
+
+        private CodeFormatter formatter;
+        private AdaptiveCodeFormatter adapter;
+
+        public AdaptiveCodeFormatter create() {
+            formatter = mock(CodeFormatter.class);
+            checking(supportsReformatting(formatter, false, true, false, false));
+            adapter = new AdaptiveCodeFormatter(formatter);
+            adapter.setBatchSize(2);
+            return adapter;
+        }
+
+        public void shouldReformatTheFilesInBatches() {
+            checking(new Expectations() {{
+                one (formatter).reformatMany(FOO_FILE, BAR_FILE);
+                one (formatter).reformatMany(GAZONK_FILE);
+            }});
+            adapter.reformatAll(Arrays.asList(FOO_FILE, BAR_FILE, GAZONK_FILE));
+        }
+
+        public void shouldDoNothingWhenThereAreNoFiles() {
+            checking(new Expectations() {{
+            }});
+            adapter.reformatAll(new ArrayList<File>());
+        }
+    }
+
+    public class WhenReformattingAnIterableOfFilesWithACommandLineFormatter {
+
+        private static final int FILES = 5000;
+        private static final int MAX_LENGTH = 32000;
+
+        private final List<List<String>> commands = new ArrayList<List<String>>();
+        private ProcessExecutor executor;
+
+        public AdaptiveCodeFormatter create() {
+            executor = new ProcessExecutor() {
+                public void executeAndWait(@NotNull List<String> command) {
+                    commands.add(command);
+                }
+
+                public void executeAndWait(@NotNull List<String> command, @NotNull List<String> stdinLines) {
+                    commands.add(command);
+                }
+
+                @NotNull
+                public Process exec(@NotNull List<String> command) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @NotNull
+                public String pipe(@NotNull List<String> command, @NotNull String input) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+            return null;
+        }
+
+        private AdaptiveCodeFormatter adapterFor(String manyFilesCommand) {
+            return new AdaptiveCodeFormatter(new CommandLineCodeFormatter(SUPPORTS_TXT, null, manyFilesCommand, null, null,
+                    executor, new CommandLineSplitter(MAX_LENGTH, 1)));
+        }
+
+        private List<File> manyFiles() {
+            return Collections.nCopies(FILES, FOO_FILE);
+        }
+
+        public void shouldStartTheFormatterOnceWhenTheFilesAreGivenInAListFile() {
+            adapterFor("formatMany %FILES_LISTFILE%").reformatAll(manyFiles());
+            specify(commands.size(), should.equal(1));
+        }
+
+        public void shouldStartTheFormatterOnceWhenTheFilesAreGivenThroughStdin() {
+            adapterFor("formatMany %FILES_STDIN%").reformatAll(manyFiles());
+            specify(commands.size(), should.equal(1));
+        }
+
+        public void shouldEndTheBatchesWhereTheCommandLineIsFull() {
+            adapterFor("formatMany %FILES%").reformatAll(manyFiles());
+            long estimatedLength = FOO_FILE.getPath().length() + 3;
+            long filesPerBatch = MAX_LENGTH / estimatedLength;
+            specify(commands.size(), should.equal((int) ((FILES + filesPerBatch - 1) / filesPerBatch)));
+        }
+    }
+
     public class WhenDirectoryContainsAlsoUnsupportedFileTypes {
 
         private CodeFormatter formatter;
@@ -0,0 +1,199 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter;
+
+import jdave.Specification;
+import jdave.junit4.JDaveRunner;
+import static net.orfjackal.extformatter.TestResources.*;
+import org.jetbrains.annotations.NotNull;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+@RunWith(JDaveRunner.class)
+public class AutoFlushingReformatQueueSpec extends Specification<ReformatQueue> {
+
+    private static final long LONG_TIME = 60 * 1000;
+    private static final long TIMEOUT = 5 * 1000;
+
+    public class WhenFilesAreQueued {
+
+        private static final long QUIET_PERIOD = 200;
+
+        private RecordingQueue target;
+        private AutoFlushingReformatQueue queue;
+
+        public ReformatQueue create() {
+            target = new RecordingQueue();
+            queue = new AutoFlushingReformatQueue(target, QUIET_PERIOD, 1000, LONG_TIME);
+            return queue;
+        }
+
+        public void destroy() {
+            queue.dispose();
+        }
+
+        public void shouldNotFlushImmediately() {
+            queue.reformatOne(FOO_FILE);
+            specify(target.flushes.size(), should.equal(0));
+            specify(should.not().be.isEmpty());
+        }
+
+        public void shouldFlushAfterTheQuietPeriod() throws InterruptedException {
+            queue.reformatOne(FOO_FILE);
+            queue.reformatOne(BAR_FILE);
+            specify(target.flushes.poll(TIMEOUT, TimeUnit.MILLISECONDS), should.equal(Arrays.asList(FOO_FILE, BAR_FILE)));
+            specify(queue.isEmpty());
+        }
+
+        public void shouldPostponeTheFlushWhileFilesKeepOnComing() throws InterruptedException {
+            for (int i = 0; i < 5; i++) {
+                queue.reformatOne(FOO_FILE);
+                Thread.sleep(QUIET_PERIOD / 4);
+            }
+            specify(target.flushes.size(), should.equal(0));
+            specify(target.flushes.poll(TIMEOUT, TimeUnit.MILLISECONDS).size(), should.equal(5));
+        }
+
+        public void flushingManuallyShouldCancelTheAutomaticFlush() throws InterruptedException {
+            queue.reformatOne(FOO_FILE);
+            queue.flush();
+            specify(target.flushes.poll(TIMEOUT, TimeUnit.MILLISECONDS), should.equal(Arrays.asList(FOO_FILE)));
+            specify(target.flushes.poll(QUIET_PERIOD * 3, TimeUnit.MILLISECONDS), should.equal(null));
+        }
+    }
+
+    public class WhenTheBatchIsFull {
+
+        private RecordingQueue target;
+        private AutoFlushingReformatQueue queue;
+
+        public ReformatQueue create() {
+            target = new RecordingQueue();
+            queue = new AutoFlushingReformatQueue(target, LONG_TIME, 3, LONG_TIME);
+            return queue;
+        }
+
+        public void destroy() {
+            queue.dispose();
+        }
+
+        public void shouldFlushWithoutWaitingForTheQuietPeriod() throws InterruptedException {
+            queue.reformatOne(FOO_FILE);
+            queue.reformatOne(BAR_FILE);
+            queue.reformatOne(GAZONK_FILE);
+            specify(target.flushes.poll(TIMEOUT, TimeUnit.MILLISECONDS).size(), should.equal(3));
+        }
+    }
+
+    public class WhenTheBatchIsTooOld {
+
+        private static final long QUIET_PERIOD = 200;
+        private static final long MAX_AGE = 400;
+
+        private RecordingQueue target;
+        private AutoFlushingReformatQueue queue;
+
+        public ReformatQueue create() {
+            target = new RecordingQueue();
+            queue = new AutoFlushingReformatQueue(target, QUIET_PERIOD, 1000, MAX_AGE);
+            return queue;
+        }
+
+        public void destroy() {
+            queue.dispose();
+        }
+
+        public void shouldFlushEvenThoughFilesKeepOnComing() throws InterruptedException {
+            long start = System.currentTimeMillis();
+            while (target.flushes.isEmpty() && System.currentTimeMillis() - start < TIMEOUT) {
+                queue.reformatOne(FOO_FILE);
+                Thread.sleep(QUIET_PERIOD / 4);
+            }
+            specify(target.flushes.size(), should.equal(1));
+        }
+    }
+
+    /**
+     * Records which files were in the queue when it was flushed.
+     */
+    private static class RecordingQueue implements ReformatQueue {
+
+        private final Queue<File> files = new ConcurrentLinkedQueue<File>();
+        private final BlockingQueue<List<File>> flushes = new LinkedBlockingQueue<List<File>>();
+
+        public boolean isEmpty() {
+            return files.isEmpty();
+        }
+
+        public int getParallelism() {
+            return 1;
+        }
+
+        public void flush() {
+            List<File> flushed = new ArrayList<File>();
+            File file;
+            while ((file = files.poll()) != null) {
+                flushed.add(file);
+            }
+            flushes.add(flushed);
+        }
+
+        public boolean supportsFileType(@NotNull File file) {
+            return true;
+        }
+
+        public boolean supportsReformatOne() {
+            return true;
+        }
+
+        public void reformatOne(@NotNull File file) {
+            files.add(file);
+        }
+
+        public boolean supportsReformatMany() {
+            return false;
+        }
+
+        public void reformatMany(@NotNull File... files) {
+            throw new UnsupportedOperationException();
+        }
+
+        public boolean supportsReformatDirectory() {
+            return false;
+        }
+
+        public void reformatDirectory(@NotNull File directory) {
+            throw new UnsupportedOperationException();
+        }
+
+        public boolean supportsReformatRecursively() {
+            return false;
+        }
+
+        public void reformatRecursively(@NotNull File directory) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter;
+
+import jdave.Specification;
+import jdave.junit4.JDaveRunner;
+import static net.orfjackal.extformatter.TestResources.*;
+import static net.orfjackal.extformatter.TestUtil.supportsReformatting;
+import net.orfjackal.extformatter.util.ExcludedFiles;
+import org.jmock.Expectations;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+@RunWith(JDaveRunner.class)
+public class BackgroundCodeFormatterSpec extends Specification<AsyncCodeFormatter> {
+
+    private static List<File> filesOf(List<ReformatResult> results) {
+        List<File> files = new ArrayList<File>();
+        for (ReformatResult result : results) {
+            files.add(result.getFile());
+        }
+        return files;
+    }
+
+    public class ABackgroundCodeFormatter {
+
+        private CodeFormatter target;
+        private BackgroundCodeFormatter formatter;
+
+        public AsyncCodeFormatter create() {
+            target = mock(CodeFormatter.class);
+            checking(supportsReformatting(target, true, true, false, true));
+            formatter = new BackgroundCodeFormatter(target);
+            return formatter;
+        }
+
+        public void destroy() {
+            formatter.shutdown();
+        }
+
+        public void shouldSupportTheSameMethodsAsTheFormatter() {
+            specify(formatter.supportsReformatOne());
+            specify(formatter.supportsReformatMany());
+            specify(!formatter.supportsReformatDirectory());
+            specify(formatter.supportsReformatRecursively());
+        }
+
+        public void shouldReformatOneFile() throws Exception {
+            checking(new Expectations() {{
+                one (target).reformatOne(FOO_FILE);
+            }});
+            ReformatResult result = formatter.reformatOne(FOO_FILE).get();
+            specify(result.getFile(), should.equal(FOO_FILE));
+            specify(result.isSuccessful());
+        }
+
+        public void shouldReturnTheResultsOfManyFilesInTheSameOrder() throws Exception {
+            checking(new Expectations() {{
+                one (target).reformatMany(BAR_FILE, FOO_FILE);
+            }});
+            List<ReformatResult> results = formatter.reformatMany(BAR_FILE, FOO_FILE).get();
+            specify(filesOf(results), should.equal(Arrays.asList(BAR_FILE, FOO_FILE)));
+            specify(results.get(0).isSuccessful());
+            specify(results.get(1).isSuccessful());
+        }
+
+        public void shouldReturnTheResultsOfAllFilesInTheDirectoryTree() throws Exception {
+            checking(new Expectations() {{
+                one (target).reformatRecursively(TESTFILES_DIR);
+            }});
+            List<ReformatResult> results = formatter.reformatRecursively(TESTFILES_DIR).get();
+            specify(filesOf(results), should.containExactly(FOO_FILE, BAR_FILE, GAZONK_FILE));
+        }
+
+        public void shouldReportTheFailureForEveryFileOfTheCall() throws Exception {
+            final RuntimeException failure = new RuntimeException("failed");
+            checking(new Expectations() {{
+                one (target).reformatMany(FOO_FILE, BAR_FILE); will(throwException(failure));
+            }});
+            List<ReformatResult> results = formatter.reformatMany(FOO_FILE, BAR_FILE).get();
+            specify(results.get(0).getFailure(), should.equal(failure));
+            specify(results.get(1).getFailure(), should.equal(failure));
+        }
+
+        public void shouldFailWhenTheCallFailsWithoutAnyFilesToReportTheFailureFor() throws Exception {
+            final File missing = new File(TESTFILES_DIR, "doesNotExist");
+            final RuntimeException failure = new RuntimeException("no such directory");
+            checking(new Expectations() {{
+                one (target).reformatRecursively(missing); will(throwException(failure));
+            }});
+            try {
+                formatter.reformatRecursively(missing).get();
+                specify(false);
+            } catch (ExecutionException e) {
+                specify(e.getCause(), should.equal(failure));
+            }
+        }
+
+        public void shouldFailWhenTheFormatterThrowsAnError() throws Exception {
+            final Error error = new AssertionError("broken");
+            checking(new Expectations() {{
+                one (target).reformatOne(FOO_FILE); will(throwException(error));
+            }});
+            try {
+                formatter.reformatOne(FOO_FILE).get();
+                specify(false);
+            } catch (ExecutionException e) {
+                specify(e.getCause(), should.equal(error));
+            }
+        }
+    }
+
+    public class WhenTheFormatterIsAnAdaptiveCodeFormatter {
+
+        private CodeFormatter target;
+        private BackgroundCodeFormatter formatter;
+
+        public AsyncCodeFormatter create() {
+            target = mock(CodeFormatter.class);
+            checking(supportsReformatting(target, false, true, false, false));
+            AdaptiveCodeFormatter adapter = new AdaptiveCodeFormatter(target);
+            adapter.setExcludedFiles(new ExcludedFiles(false, "subdir/"));
+            formatter = new BackgroundCodeFormatter(adapter);
+            return formatter;
+        }
+
+        public void destroy() {
+            formatter.shutdown();
+        }
+
+        public void shouldReformatOnlyTheFilesWhichAreNotExcluded() throws Exception {
+            checking(new Expectations() {{
+                one (target).reformatMany(with(any(File[].class)));
+            }});
+            List<ReformatResult> results = formatter.reformatRecursively(TESTFILES_DIR).get();
+            specify(filesOf(results), should.containExactly(FOO_FILE, BAR_FILE));
+        }
+    }
+
+    public class WhenTheFormatterIsAReformatQueue {
+
+        private ReformatQueue queue;
+        private BackgroundCodeFormatter formatter;
+
+        public AsyncCodeFormatter create() {
+            queue = mock(ReformatQueue.class);
+            checking(supportsReformatting(queue, true, true, true, true));
+            formatter = new BackgroundCodeFormatter(queue);
+            return formatter;
+        }
+
+        public void destroy() {
+            formatter.shutdown();
+        }
+
+        public void shouldFlushTheQueuedFilesBeforeTheResultsAreReady() throws Exception {
+            checking(new Expectations() {{
+                one (queue).reformatMany(FOO_FILE, BAR_FILE);
+                one (queue).flush();
+            }});
+            List<ReformatResult> results = formatter.reformatMany(FOO_FILE, BAR_FILE).get();
+            specify(results.size(), should.equal(2));
+        }
+    }
+}
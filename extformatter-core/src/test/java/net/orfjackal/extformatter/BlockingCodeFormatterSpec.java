@@ -0,0 +1,76 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter;
+
+import jdave.*;
+import jdave.junit4.JDaveRunner;
+import static net.orfjackal.extformatter.TestResources.*;
+import static net.orfjackal.extformatter.TestUtil.supportsReformatting;
+import org.jmock.Expectations;
+import org.junit.runner.RunWith;
+
+/**
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+@RunWith(JDaveRunner.class)
+public class BlockingCodeFormatterSpec extends Specification<CodeFormatter> {
+
+    public class ABlockingCodeFormatter {
+
+        private CodeFormatter target;
+        private BackgroundCodeFormatter background;
+        private CodeFormatter formatter;
+
+        public CodeFormatter create() {
+            target = mock(CodeFormatter.class);
+            checking(supportsReformatting(target, true, true, true, true));
+            background = new BackgroundCodeFormatter(target);
+            formatter = new BlockingCodeFormatter(background);
+            return formatter;
+        }
+
+        public void destroy() {
+            background.shutdown();
+        }
+
+        public void shouldReturnAfterTheFilesHaveBeenReformatted() {
+            checking(new Expectations() {{
+                one (target).reformatOne(FOO_FILE);
+                one (target).reformatMany(FOO_FILE, BAR_FILE);
+                one (target).reformatDirectory(TESTFILES_DIR);
+                one (target).reformatRecursively(TESTFILES_DIR);
+            }});
+            formatter.reformatOne(FOO_FILE);
+            formatter.reformatMany(FOO_FILE, BAR_FILE);
+            formatter.reformatDirectory(TESTFILES_DIR);
+            formatter.reformatRecursively(TESTFILES_DIR);
+        }
+
+        public void shouldRethrowTheFailure() {
+            checking(new Expectations() {{
+                one (target).reformatMany(FOO_FILE, BAR_FILE); will(throwException(new IllegalStateException("failed")));
+            }});
+            specify(new Block() {
+                public void run() throws Throwable {
+                    formatter.reformatMany(FOO_FILE, BAR_FILE);
+                }
+            }, should.raise(IllegalStateException.class));
+        }
+    }
+}
@@ -20,11 +20,13 @@ package net.orfjackal.extformatter;
 import jdave.*;
 import jdave.junit4.JDaveRunner;
 import static net.orfjackal.extformatter.TestResources.*;
-import net.orfjackal.extformatter.util.ProcessExecutor1;
+import net.orfjackal.extformatter.util.*;
+import org.jetbrains.annotations.NotNull;
 import org.jmock.Expectations;
 import org.junit.runner.RunWith;
 
 import java.io.*;
+import java.util.*;
 
 /**
  * @author Esko Luontola
@@ -35,11 +37,11 @@ public class CommandLineCodeFormatterSpec extends Specification<CodeFormatter> {
 
     public class ACommandLineCodeFormatter {
 
-        private ProcessExecutor1 executor;
+        private ProcessExecutor executor;
         private CodeFormatter formatter;
 
         public CodeFormatter create() {
-            executor = mock(ProcessExecutor1.class);
+            executor = mock(ProcessExecutor.class);
             formatter = new CommandLineCodeFormatter(SUPPORTS_TXT,
                     "formatOne %FILE%", "formatMany %FILES%", "formatDir %DIRECTORY%", "formatDirRec %DIRECTORY%", executor);
             return formatter;
@@ -47,32 +49,42 @@ public class CommandLineCodeFormatterSpec extends Specification<CodeFormatter> {
 
         public void shouldExecuteCommandForReformatOne() throws IOException {
             checking(new Expectations() {{
-                one (executor).executeAndWait("formatOne \"" + FOO_FILE.getAbsolutePath() + "\"");
+                one (executor).executeAndWait(Arrays.asList("formatOne", FOO_FILE.getAbsolutePath()));
             }});
             formatter.reformatOne(FOO_FILE);
         }
 
         public void shouldExecuteCommandForReformatMany() throws IOException {
             checking(new Expectations() {{
-                one (executor).executeAndWait("formatMany \"" + FOO_FILE.getAbsolutePath() + "\" \"" + BAR_FILE.getAbsolutePath() + "\"");
+                one (executor).executeAndWait(Arrays.asList("formatMany", FOO_FILE.getAbsolutePath(), BAR_FILE.getAbsolutePath()));
             }});
             formatter.reformatMany(FOO_FILE, BAR_FILE);
         }
 
         public void shouldExecuteCommandForReformatDirectory() throws IOException {
             checking(new Expectations() {{
-                one (executor).executeAndWait("formatDir \"" + TESTFILES_DIR.getAbsolutePath() + "\"");
+                one (executor).executeAndWait(Arrays.asList("formatDir", TESTFILES_DIR.getAbsolutePath()));
             }});
             formatter.reformatDirectory(TESTFILES_DIR);
         }
 
         public void shouldExecuteCommandForReformatRecursively() throws IOException {
             checking(new Expectations() {{
-                one (executor).executeAndWait("formatDirRec \"" + TESTFILES_DIR.getAbsolutePath() + "\"");
+                one (executor).executeAndWait(Arrays.asList("formatDirRec", TESTFILES_DIR.getAbsolutePath()));
             }});
             formatter.reformatRecursively(TESTFILES_DIR);
         }
 
+        public void shouldGiveEachFileAsAnArgumentOfItsOwn() {
+            formatter = new CommandLineCodeFormatter(SUPPORTS_TXT,
+                    null, "\"C:\\Program Files\\format many\" --file=%FILES% -q", null, null, executor);
+            checking(new Expectations() {{
+                one (executor).executeAndWait(Arrays.asList("C:\\Program Files\\format many",
+                        "--file=" + FOO_FILE.getAbsolutePath(), "--file=" + BAR_FILE.getAbsolutePath(), "-q"));
+            }});
+            formatter.reformatMany(FOO_FILE, BAR_FILE);
+        }
+
         public void shouldNotAllowFormattingANonExistingFile() {
             specify(new Block() {
                 public void run() throws Throwable {
@@ -135,6 +147,244 @@ public class CommandLineCodeFormatterSpec extends Specification<CodeFormatter> {
         }
     }
 
+    public class WhenTheFilesDoNotFitInOneCommandLine {
+
+        private static final int MAX_LENGTH = 32000;
+        private static final int FILES = 100000;
+
+        private final List<List<String>> commands = new ArrayList<List<String>>();
+        private ProcessExecutor executor;
+        private CodeFormatter formatter;
+
+        public CodeFormatter create() {
+            executor = new ProcessExecutor() {
+                public void executeAndWait(@NotNull List<String> command) {
+                    commands.add(command);
+                }
+
+                public void executeAndWait(@NotNull List<String> command, @NotNull List<String> stdinLines) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @NotNull
+                public Process exec(@NotNull List<String> command) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @NotNull
+                public String pipe(@NotNull List<String> command, @NotNull String input) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+            formatter = new CommandLineCodeFormatter(SUPPORTS_TXT, null, "formatMany %FILES%", null, null,
+                    executor, new CommandLineSplitter(MAX_LENGTH, 1));
+            return formatter;
+        }
+
+        public void shouldExecuteTheCommandManyTimesWithAllTheFiles() {
+            File[] files = new File[FILES];
+            Arrays.fill(files, FOO_FILE);
+            formatter.reformatMany(files);
+
+            int filesInCommands = 0;
+            for (List<String> command : commands) {
+                long length = 0;
+                for (String argument : command) {
+                    length += argument.length() + 1;
+                }
+                specify(length <= MAX_LENGTH);
+                specify(command.get(0), should.equal("formatMany"));
+                specify(command.get(1), should.equal(FOO_FILE.getAbsolutePath()));
+                filesInCommands += command.size() - 1;
+            }
+            specify(commands.size() > 1);
+            specify(filesInCommands, should.equal(FILES));
+        }
+
+        public void shouldKeepTheArgumentsOfEachFileTogetherWhenTheTagIsInManyArguments() {
+            formatter = new CommandLineCodeFormatter(SUPPORTS_TXT, null, "formatMany --in=%FILES% --out=%FILES%", null, null,
+                    executor, new CommandLineSplitter(MAX_LENGTH, 1));
+            File[] files = new File[FILES];
+            Arrays.fill(files, FOO_FILE);
+            formatter.reformatMany(files);
+
+            int filesInCommands = 0;
+            for (List<String> command : commands) {
+                long length = 0;
+                for (String argument : command) {
+                    length += argument.length() + 1;
+                }
+                specify(length <= MAX_LENGTH);
+                int fileCount = (command.size() - 1) / 2;
+                specify(command.get(1), should.equal("--in=" + FOO_FILE.getAbsolutePath()));
+                specify(command.get(fileCount + 1), should.equal("--out=" + FOO_FILE.getAbsolutePath()));
+                filesInCommands += fileCount;
+            }
+            specify(commands.size() > 1);
+            specify(filesInCommands, should.equal(FILES));
+        }
+    }
+
+    public class WhenThePathsAreGivenInAListFile {
+
+        private final List<String> commands = new ArrayList<String>();
+        private final List<String> listFiles = new ArrayList<String>();
+        private CommandLineCodeFormatter formatter;
+
+        public CodeFormatter create() {
+            ProcessExecutor executor = new ProcessExecutor() {
+                public void executeAndWait(@NotNull List<String> command) {
+                    commands.addAll(command);
+                    try {
+                        listFiles.add(FileUtil.contentsOf(new File(command.get(1).substring(1))));
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+
+                public void executeAndWait(@NotNull List<String> command, @NotNull List<String> stdinLines) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @NotNull
+                public Process exec(@NotNull List<String> command) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @NotNull
+                public String pipe(@NotNull List<String> command, @NotNull String input) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+            formatter = new CommandLineCodeFormatter(SUPPORTS_TXT, null, "formatMany @%FILES_LISTFILE%", null, null,
+                    executor, new CommandLineSplitter(100, 1));
+            return formatter;
+        }
+
+        public void shouldListThePathsOnePerLine() {
+            formatter.reformatMany(FOO_FILE, BAR_FILE);
+            specify(listFiles, should.containExactly(FOO_FILE.getAbsolutePath() + "\n" + BAR_FILE.getAbsolutePath() + "\n"));
+        }
+
+        public void shouldExecuteTheCommandOnceHoweverManyFilesThereAre() {
+            File[] files = new File[1000];
+            Arrays.fill(files, FOO_FILE);
+            formatter.reformatMany(files);
+            specify(listFiles.size(), should.equal(1));
+            CommandLineCodeFormatter onCommandLine = new CommandLineCodeFormatter(SUPPORTS_TXT, null, "formatMany %FILES%", null, null,
+                    new ProcessExecutorDummy(), new CommandLineSplitter(100, 1));
+            specify(formatter.costOf(ReformatMethod.MANY, 1000, 100000) < onCommandLine.costOf(ReformatMethod.MANY, 1000, 100000));
+        }
+
+        public void shouldDeleteTheListFileAfterwards() {
+            formatter.reformatMany(FOO_FILE);
+            specify(commands.get(0), should.equal("formatMany"));
+            specify(!new File(commands.get(1).substring(1)).exists());
+        }
+    }
+
+    public class WhenThePathsAreGivenThroughStdin {
+
+        private ProcessExecutor executor;
+        private CodeFormatter formatter;
+
+        public CodeFormatter create() {
+            executor = mock(ProcessExecutor.class);
+            formatter = new CommandLineCodeFormatter(SUPPORTS_TXT, null, "formatMany --stdin %FILES_STDIN%", null, null, executor);
+            return formatter;
+        }
+
+        public void shouldWriteThePathsToStdin() {
+            checking(new Expectations() {{
+                one (executor).executeAndWait(Arrays.asList("formatMany", "--stdin"),
+                        Arrays.asList(FOO_FILE.getAbsolutePath(), BAR_FILE.getAbsolutePath()));
+            }});
+            formatter.reformatMany(FOO_FILE, BAR_FILE);
+        }
+    }
+
+    public class WhenRunningInDaemonMode {
+
+        private CommandLineCodeFormatter formatter;
+        private File dir;
+        private File file;
+
+        public CodeFormatter create() throws IOException {
+            formatter = new CommandLineCodeFormatter(SUPPORTS_TXT, new FormatterDaemon(StandInFormatterServer.command()), null, null);
+            dir = new File(System.getProperty("java.io.tmpdir"), CommandLineCodeFormatterSpec.class.getName());
+            FileUtil.deleteRecursively(dir);
+            specify(dir.mkdirs());
+            file = new File(dir, "A.txt");
+            Writer out = new FileWriter(file);
+            out.write("a  \n");
+            out.close();
+            return formatter;
+        }
+
+        public void destroy() {
+            formatter.dispose();
+            FileUtil.deleteRecursively(dir);
+        }
+
+        public void shouldReformatFilesWithTheDaemon() throws IOException {
+            formatter.reformatMany(file);
+            specify(FileUtil.contentsOf(file), should.equal("a\n"));
+        }
+
+        public void shouldSupportReformatOneAndMany() {
+            specify(formatter.supportsReformatOne());
+            specify(formatter.supportsReformatMany());
+            specify(should.not().be.supportsReformatDirectory());
+        }
+
+        public void startingTheDaemonShouldCostLessThanStartingAProcess() {
+            CodeFormatter processes = new CommandLineCodeFormatter(SUPPORTS_TXT, null, "formatMany %FILES%", null, null);
+            specify(formatter.costOf(ReformatMethod.MANY, 1, 10) < ((CostModel) processes).costOf(ReformatMethod.MANY, 1, 10));
+        }
+    }
+
+    public class WhenPipingThroughStdinAndStdout {
+
+        private CommandLineCodeFormatter formatter;
+        private File dir;
+        private File file;
+
+        public CodeFormatter create() throws IOException {
+            formatter = new CommandLineCodeFormatter(SUPPORTS_TXT,
+                    StandInFormatterServer.command() + " " + StandInFormatterServer.PIPE + " %STDIN%", null, null, null);
+            dir = new File(System.getProperty("java.io.tmpdir"), CommandLineCodeFormatterSpec.class.getName());
+            FileUtil.deleteRecursively(dir);
+            specify(dir.mkdirs());
+            file = new File(dir, "A.txt");
+            FileUtil.writeContents(file, "a  \n");
+            return formatter;
+        }
+
+        public void destroy() {
+            FileUtil.deleteRecursively(dir);
+        }
+
+        public void shouldReformatTextsInMemory() {
+            specify(formatter.reformatText(new File("doesNotExist.txt"), "b \nc\t\n"), should.equal("b\nc\n"));
+        }
+
+        public void shouldReformatFilesThroughThePipe() throws IOException {
+            formatter.reformatOne(file);
+            specify(FileUtil.contentsOf(file), should.equal("a\n"));
+        }
+
+        public void shouldSupportReformatTextAndReformatOne() {
+            specify(formatter.supportsReformatText());
+            specify(formatter.supportsReformatOne());
+            specify(should.not().be.supportsReformatMany());
+        }
+
+        public void shouldNotSupportReformatTextWithoutTheStdinTag() {
+            CommandLineCodeFormatter fileFormatter = new CommandLineCodeFormatter(SUPPORTS_TXT, "formatOne %FILE%", null, null, null);
+            specify(!fileFormatter.supportsReformatText());
+        }
+    }
+
     public class WhenOnlyReformatOneCommandIsSpecified {
 
         private CodeFormatter formatter;
@@ -0,0 +1,118 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A thread-safe formatter for testing parallel execution. Its calls wait for each other, so that they are
+ * guaranteed to overlap when they are executed in parallel.
+ *
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+public class ConcurrentCodeFormatter implements CodeFormatter, TextFormatter {
+
+    final CyclicBarrier barrier;
+    final AtomicInteger concurrentCalls = new AtomicInteger(0);
+    final AtomicInteger maxConcurrentCalls = new AtomicInteger(0);
+    final List<File> reformatted = Collections.synchronizedList(new ArrayList<File>());
+    final Set<File> failing = Collections.synchronizedSet(new HashSet<File>());
+    final CountDownLatch started = new CountDownLatch(1);
+    volatile CountDownLatch blockUntil = new CountDownLatch(0);
+
+    public ConcurrentCodeFormatter(int parties) {
+        barrier = new CyclicBarrier(parties);
+    }
+
+    public boolean supportsFileType(@NotNull File file) {
+        return true;
+    }
+
+    public boolean supportsReformatOne() {
+        return true;
+    }
+
+    public void reformatOne(@NotNull File file) {
+        int calls = concurrentCalls.incrementAndGet();
+        started.countDown();
+        try {
+            blockUntil.await();
+            synchronized (maxConcurrentCalls) {
+                maxConcurrentCalls.set(Math.max(maxConcurrentCalls.get(), calls));
+            }
+            try {
+                barrier.await(500, TimeUnit.MILLISECONDS);
+            } catch (BrokenBarrierException e) {
+                // fewer calls than parties, or no parallelism at all
+            } catch (TimeoutException e) {
+                // ditto
+            }
+            if (failing.contains(file)) {
+                throw new RuntimeException("failed: " + file);
+            }
+            reformatted.add(file);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        } finally {
+            concurrentCalls.decrementAndGet();
+        }
+    }
+
+    public boolean supportsReformatText() {
+        return true;
+    }
+
+    /**
+     * Reformats the text by trimming it.
+     */
+    @NotNull
+    public String reformatText(@NotNull File file, @NotNull String text) {
+        reformatOne(file);
+        return text.trim();
+    }
+
+    public boolean supportsReformatMany() {
+        return false;
+    }
+
+    public void reformatMany(@NotNull File... files) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean supportsReformatDirectory() {
+        return false;
+    }
+
+    public void reformatDirectory(@NotNull File directory) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean supportsReformatRecursively() {
+        return false;
+    }
+
+    public void reformatRecursively(@NotNull File directory) {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -59,6 +59,11 @@ public class EclipseCodeFormatterFactorySpec extends Specification<EclipseCodeFo
         public void formatterShouldSupportReformatRecursively() {
             specify(formatter.supportsReformatRecursively());
         }
+
+        public void formatterShouldEstimateThatStartingEclipseIsSlow() {
+            specify(formatter.costOf(ReformatMethod.MANY, 2, 100) < 2 * formatter.costOf(ReformatMethod.ONE, 1, 50));
+            specify(formatter.costOf(ReformatMethod.RECURSIVELY, 100, 50) < formatter.costOf(ReformatMethod.MANY, 100, 5000));
+        }
     }
 
     public class WhenEclipsePrefsIsNotConfigured {
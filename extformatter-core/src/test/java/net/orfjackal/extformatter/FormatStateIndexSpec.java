@@ -0,0 +1,158 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter;
+
+import jdave.Specification;
+import jdave.junit4.JDaveRunner;
+import static net.orfjackal.extformatter.TestResources.*;
+import net.orfjackal.extformatter.util.FileUtil;
+import org.junit.runner.RunWith;
+
+import java.io.*;
+
+/**
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+@RunWith(JDaveRunner.class)
+public class FormatStateIndexSpec extends Specification<FormatStateIndex> {
+
+    private File workDir;
+    private File indexFile;
+
+    private void createWorkDir() {
+        workDir = new File(System.getProperty("java.io.tmpdir"), FormatStateIndexSpec.class.getName());
+        FileUtil.deleteRecursively(workDir);
+        specify(workDir.mkdirs());
+        indexFile = new File(workDir, "index");
+    }
+
+    public class AFormatStateIndex {
+
+        private FormatStateIndex index;
+        private File file;
+
+        public FormatStateIndex create() throws IOException {
+            createWorkDir();
+            file = new File(workDir, "Foo.java");
+            FileUtil.copy(FOO_FILE, file);
+            index = new FormatStateIndex(indexFile, "formatter");
+            return index;
+        }
+
+        public void destroy() throws IOException {
+            index.close();
+            FileUtil.deleteRecursively(workDir);
+        }
+
+        public void shouldNotKnowFilesWhichHaveNotBeenUpdated() {
+            specify(!index.isUnchanged(file));
+            specify(index.contentHashOf(file), should.equal(null));
+        }
+
+        public void shouldRecognizeUnchangedFiles() throws IOException {
+            index.update(file);
+            specify(index.isUnchanged(file));
+            specify(index.contentHashOf(file), should.equal(FileUtil.contentHashOf(file)));
+        }
+
+        public void shouldNoticeWhenAFileHasChanged() throws IOException {
+            index.update(file);
+            Writer out = new FileWriter(file, true);
+            out.write("// modified");
+            out.close();
+            specify(!index.isUnchanged(file));
+        }
+
+        public void shouldForgetRemovedFiles() throws IOException {
+            index.update(file);
+            index.remove(file);
+            specify(!index.isUnchanged(file));
+            specify(index.size(), should.equal(0));
+        }
+
+        public void shouldRememberTheFilesAfterReopening() throws IOException {
+            index.update(file);
+            index.close();
+            index = new FormatStateIndex(indexFile, "formatter");
+            specify(index.isUnchanged(file));
+            specify(index.size(), should.equal(1));
+        }
+
+        public void shouldForgetTheFilesOfAnotherConfiguration() throws IOException {
+            index.update(file);
+            index.close();
+            index = new FormatStateIndex(indexFile, "another formatter");
+            specify(!index.isUnchanged(file));
+            specify(index.size(), should.equal(0));
+        }
+    }
+
+    public class WhenTheIndexHasManyFiles {
+
+        private static final int FILES = 5000;
+
+        private FormatStateIndex index;
+
+        public FormatStateIndex create() throws IOException {
+            createWorkDir();
+            index = new FormatStateIndex(indexFile, "formatter");
+            for (int i = 0; i < FILES; i++) {
+                index.update(fileNumber(i), i);
+            }
+            return index;
+        }
+
+        public void destroy() throws IOException {
+            index.close();
+            FileUtil.deleteRecursively(workDir);
+        }
+
+        private File fileNumber(int i) {
+            return new File(workDir, "File" + i + ".java");
+        }
+
+        public void shouldGrowToFitAllTheFiles() {
+            specify(index.size(), should.equal(FILES));
+            for (int i = 0; i < FILES; i++) {
+                specify(index.contentHashOf(fileNumber(i)), should.equal((long) i));
+            }
+        }
+
+        public void shouldFindTheOtherFilesAfterSomeAreRemoved() {
+            for (int i = 0; i < FILES; i += 2) {
+                index.remove(fileNumber(i));
+            }
+            specify(index.size(), should.equal(FILES / 2));
+            for (int i = 0; i < FILES; i++) {
+                Long expected = i % 2 == 0 ? null : (long) i;
+                specify(index.contentHashOf(fileNumber(i)), should.equal(expected));
+            }
+        }
+
+        public void shouldRememberTheFilesAfterReopeningWithAChangedConfiguration() throws IOException {
+            index.close();
+            index = new FormatStateIndex(indexFile, "another formatter");
+            index.update(fileNumber(0), 42);
+            index.close();
+            index = new FormatStateIndex(indexFile, "another formatter");
+            specify(index.size(), should.equal(1));
+            specify(index.contentHashOf(fileNumber(0)), should.equal(42L));
+        }
+    }
+}
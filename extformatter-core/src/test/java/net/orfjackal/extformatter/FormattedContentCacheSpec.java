@@ -0,0 +1,146 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter;
+
+import jdave.Specification;
+import jdave.junit4.JDaveRunner;
+import static net.orfjackal.extformatter.TestResources.*;
+import net.orfjackal.extformatter.util.FileUtil;
+import org.junit.runner.RunWith;
+
+import java.io.*;
+
+/**
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+@RunWith(JDaveRunner.class)
+public class FormattedContentCacheSpec extends Specification<FormattedContentCache> {
+
+    public class AFormattedContentCache {
+
+        private FormattedContentCache cache;
+        private File cacheFile;
+
+        public FormattedContentCache create() {
+            cache = new FormattedContentCache("formatter");
+            cacheFile = new File(System.getProperty("java.io.tmpdir"), FormattedContentCacheSpec.class.getName());
+            return cache;
+        }
+
+        public void destroy() {
+            cacheFile.delete();
+        }
+
+        public void shouldRememberTheFormattedFiles() {
+            cache.markFormatted(FOO_FILE);
+            specify(cache.isFormatted(FOO_FILE));
+            specify(!cache.isFormatted(BAR_FILE));
+        }
+
+        public void shouldRecognizeFilesByTheirContents() throws IOException {
+            File copy = new File(System.getProperty("java.io.tmpdir"), FormattedContentCacheSpec.class.getName() + ".copy");
+            try {
+                cache.markFormatted(FOO_FILE);
+                FileUtil.copy(FOO_FILE, copy);
+                specify(cache.isFormatted(copy));
+            } finally {
+                copy.delete();
+            }
+        }
+
+        public void shouldNotConsiderMissingFilesFormatted() {
+            specify(!cache.isFormatted(new File("doesNotExist")));
+        }
+
+        public void shouldBeSavedAndLoaded() throws IOException {
+            cache.markFormatted(FOO_FILE);
+            cache.save(cacheFile);
+
+            FormattedContentCache loaded = new FormattedContentCache("formatter");
+            loaded.load(cacheFile);
+            specify(loaded.isFormatted(FOO_FILE));
+            specify(loaded.size(), should.equal(1));
+        }
+
+        public void shouldNotLoadTheFilesOfAnotherConfiguration() throws IOException {
+            cache.markFormatted(FOO_FILE);
+            cache.save(cacheFile);
+
+            FormattedContentCache loaded = new FormattedContentCache("another formatter");
+            loaded.load(cacheFile);
+            specify(!loaded.isFormatted(FOO_FILE));
+        }
+
+        public void shouldLoadNothingIfThereIsNoCacheFile() throws IOException {
+            cache.load(cacheFile);
+            specify(cache.size(), should.equal(0));
+        }
+    }
+
+    public class WhenTheCacheIsFull {
+
+        private FormattedContentCache cache;
+
+        public FormattedContentCache create() {
+            cache = new FormattedContentCache("formatter", 2);
+            return cache;
+        }
+
+        public void shouldForgetTheOldestFiles() {
+            cache.markFormatted(FOO_FILE);
+            cache.markFormatted(BAR_FILE);
+            cache.markFormatted(GAZONK_FILE);
+            specify(cache.size(), should.equal(2));
+            specify(!cache.isFormatted(FOO_FILE));
+            specify(cache.isFormatted(GAZONK_FILE));
+        }
+    }
+
+    public class WhenTheCacheHasAnIndex {
+
+        private FormattedContentCache cache;
+        private FormatStateIndex index;
+        private File indexFile;
+
+        public FormattedContentCache create() throws IOException {
+            indexFile = new File(System.getProperty("java.io.tmpdir"), FormattedContentCacheSpec.class.getName() + ".index");
+            indexFile.delete();
+            index = new FormatStateIndex(indexFile, "formatter");
+            cache = new FormattedContentCache("formatter");
+            cache.setIndex(index);
+            return cache;
+        }
+
+        public void destroy() throws IOException {
+            index.close();
+            indexFile.delete();
+        }
+
+        public void theFormattedFilesShouldBeAddedToTheIndex() {
+            cache.markFormatted(FOO_FILE);
+            specify(index.isUnchanged(FOO_FILE));
+        }
+
+        public void theUnchangedFilesShouldBeRecognizedFromTheIndex() {
+            cache.markFormatted(FOO_FILE);
+            cache.clear();
+            specify(cache.isFormatted(FOO_FILE));
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter;
+
+import jdave.Specification;
+import jdave.junit4.JDaveRunner;
+import static net.orfjackal.extformatter.ReformatMethod.*;
+import org.junit.runner.RunWith;
+
+/**
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+@RunWith(JDaveRunner.class)
+public class LearningCostModelSpec extends Specification<LearningCostModel> {
+
+    private static final double DELTA = 0.01;
+
+    private static boolean closeTo(double actual, double expected, double delta) {
+        return Math.abs(actual - expected) <= delta;
+    }
+
+    public class WhenNothingHasBeenObserved {
+
+        private LinearCostModel initial;
+        private LearningCostModel costs;
+
+        public LearningCostModel create() {
+            initial = new LinearCostModel(8000, 20, 0.5);
+            costs = new LearningCostModel(initial);
+            return costs;
+        }
+
+        public void shouldEstimateTheSameAsTheInitialModel() {
+            specify(closeTo(costs.costOf(ONE, 1, 10), initial.costOf(ONE, 1, 10), DELTA));
+            specify(closeTo(costs.costOf(MANY, 50, 1000), initial.costOf(MANY, 50, 1000), DELTA));
+        }
+    }
+
+    public class WhenCallsHaveBeenObserved {
+
+        private LearningCostModel costs;
+
+        public LearningCostModel create() {
+            costs = new LearningCostModel(new LinearCostModel(8000, 20, 0));
+            for (int i = 0; i < 50; i++) {
+                int files = 1 + (i % 10) * 10;
+                costs.record(MANY, files, 50 + 2 * files);
+            }
+            return costs;
+        }
+
+        public void shouldLearnTheStartupCost() {
+            specify(closeTo(costs.getStartupCost(MANY), 50, 1.0));
+        }
+
+        public void shouldLearnTheCostPerFile() {
+            specify(closeTo(costs.getCostPerFile(MANY), 2, 0.1));
+        }
+
+        public void shouldNotChangeTheEstimatesOfOtherMethods() {
+            specify(closeTo(costs.getStartupCost(ONE), 8000, DELTA));
+            specify(closeTo(costs.getCostPerFile(ONE), 20, DELTA));
+        }
+
+        public void shouldFollowChangesInTheDurations() {
+            for (int i = 0; i < 50; i++) {
+                int files = 1 + (i % 10) * 10;
+                costs.record(MANY, files, 500 + 2 * files);
+            }
+            specify(closeTo(costs.getStartupCost(MANY), 500, 10.0));
+        }
+
+        public void shouldRememberWhatWasLearned() {
+            LearningCostModel restored = new LearningCostModel(new LinearCostModel(8000, 20, 0));
+            restored.load(costs.asString());
+            specify(closeTo(restored.getStartupCost(MANY), costs.getStartupCost(MANY), DELTA));
+            specify(closeTo(restored.getCostPerFile(MANY), costs.getCostPerFile(MANY), DELTA));
+            specify(closeTo(restored.getStartupCost(ONE), 8000, DELTA));
+        }
+
+        public void shouldIgnoreMalformedSavedData() {
+            LearningCostModel restored = new LearningCostModel(new LinearCostModel(8000, 20, 0));
+            restored.load("MANY=1,2,x;FOO=1,2,3,4,5;garbage");
+            specify(closeTo(restored.getStartupCost(MANY), 8000, DELTA));
+        }
+    }
+}
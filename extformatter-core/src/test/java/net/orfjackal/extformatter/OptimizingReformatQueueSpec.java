@@ -21,9 +21,16 @@ import jdave.*;
 import jdave.junit4.JDaveRunner;
 import static net.orfjackal.extformatter.TestResources.*;
 import static net.orfjackal.extformatter.TestUtil.supportsReformatting;
+import net.orfjackal.extformatter.util.*;
+import org.jetbrains.annotations.NotNull;
 import org.jmock.Expectations;
 import org.junit.runner.RunWith;
 
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * @author Esko Luontola
  * @since 7.12.2007
@@ -81,6 +88,17 @@ public class OptimizingReformatQueueSpec extends Specification<ReformatQueue> {
             queue.flush();                  specify(queue.isEmpty());
         }
 
+        public void shouldReformatAFileOnlyOnceEvenIfItWasQueuedWithDifferentPaths() {
+            checking(new Expectations() {{
+                one (formatter).reformatOne(FOO_FILE);
+            }});
+            queue.reformatOne(FOO_FILE);
+            queue.reformatOne(new File(TESTFILES_SUBDIR, "../" + FOO_FILE.getName()));
+            queue.reformatOne(FOO_FILE);
+            queue.flush();
+            specify(queue.isEmpty());
+        }
+
         public void shouldSupportOnlyReformatOne() {
             specify(queue.supportsReformatOne());
             specify(should.not().be.supportsReformatMany());
@@ -151,6 +169,17 @@ public class OptimizingReformatQueueSpec extends Specification<ReformatQueue> {
             specify(queue.isEmpty());
         }
 
+        public void shouldReformatDirectoryEvenIfAFileWasQueuedWithDifferentPaths() {
+            checking(new Expectations() {{
+                one (formatter).reformatDirectory(TESTFILES_DIR);
+            }});
+            queue.reformatOne(FOO_FILE);
+            queue.reformatOne(BAR_FILE);
+            queue.reformatOne(new File(TESTFILES_SUBDIR, "../" + FOO_FILE.getName()));
+            queue.flush();
+            specify(queue.isEmpty());
+        }
+
         public void shouldNotReformatDirectoryWhenThereAreAlsoOtherFilesInTheSameDirectory() {
             checking(new Expectations() {{
             }});
@@ -196,8 +225,9 @@ public class OptimizingReformatQueueSpec extends Specification<ReformatQueue> {
             specify(queue.isEmpty());
         }
 
-        public void shouldNotReformatRecursivelyWhenThereAreAlsoOtherFilesInTheSameDirectory() {
+        public void shouldReformatTheFullyQueuedSubTreeAndFailOnTheFilesWhichHaveOtherFilesInTheSameDirectory() {
             checking(new Expectations() {{
+                one (formatter).reformatRecursively(TESTFILES_SUBDIR);
             }});
             queue.reformatOne(FOO_FILE);
             queue.reformatOne(GAZONK_FILE);
@@ -223,6 +253,430 @@ public class OptimizingReformatQueueSpec extends Specification<ReformatQueue> {
         }
     }
 
+    public class WhenFormatterSupportsReformatRecursivelyAndReformatOne {
+
+        private CodeFormatter formatter;
+        private ReformatQueue queue;
+
+        public ReformatQueue create() {
+            formatter = mock(CodeFormatter.class);
+            checking(supportsReformatting(formatter, true, false, false, true));
+            queue = new OptimizingReformatQueue(formatter);
+            return queue;
+        }
+
+        public void shouldReformatRecursivelyTheSubDirectoriesWhoseFilesAreAllQueued() {
+            checking(new Expectations() {{
+                one (formatter).reformatRecursively(TESTFILES_SUBDIR);
+                one (formatter).reformatOne(FOO_FILE);
+            }});
+            queue.reformatOne(FOO_FILE);
+            queue.reformatOne(GAZONK_FILE);
+            queue.flush();
+            specify(queue.isEmpty());
+        }
+
+        public void shouldReformatOneByOneTheFilesOfDirectoriesWhichAlsoContainOtherFiles() {
+            checking(new Expectations() {{
+                one (formatter).reformatOne(FOO_FILE);
+                one (formatter).reformatOne(BAR_FILE);
+            }});
+            queue.reformatOne(FOO_FILE);
+            queue.reformatOne(BAR_FILE);
+            queue.flush();
+            specify(queue.isEmpty());
+        }
+    }
+
+    public class WhenReformatRecursivelyIsCheaperThanReformatMany {
+
+        private CodeFormatter formatter;
+        private ReformatQueue queue;
+
+        public ReformatQueue create() {
+            formatter = mock(CodeFormatter.class);
+            checking(supportsReformatting(formatter, true, true, false, true));
+            LinearCostModel costs = new LinearCostModel(1000, 10, 1);
+            queue = new OptimizingReformatQueue(formatter, costs);
+            return queue;
+        }
+
+        public void shouldReformatRecursivelyInsteadOfListingAllTheFiles() {
+            checking(new Expectations() {{
+                one (formatter).reformatRecursively(TESTFILES_DIR);
+            }});
+            queue.reformatOne(FOO_FILE);
+            queue.reformatOne(BAR_FILE);
+            queue.reformatOne(GAZONK_FILE);
+            queue.flush();
+            specify(queue.isEmpty());
+        }
+
+        public void shouldNotStartMoreProcessesThanNecessary() {
+            checking(new Expectations() {{
+                one (formatter).reformatMany(FOO_FILE, GAZONK_FILE);
+            }});
+            queue.reformatOne(FOO_FILE);
+            queue.reformatOne(GAZONK_FILE);
+            queue.flush();
+            specify(queue.isEmpty());
+        }
+    }
+
+    public class WhenReformatOneIsCheaperThanReformatMany {
+
+        private CodeFormatter formatter;
+        private ReformatQueue queue;
+
+        public ReformatQueue create() {
+            formatter = mock(CodeFormatter.class);
+            checking(supportsReformatting(formatter, true, true, false, false));
+            LinearCostModel costs = new LinearCostModel(1000, 10, 0);
+            costs.setCost(ReformatMethod.MANY, 5000, 10, 0);
+            queue = new OptimizingReformatQueue(formatter, costs);
+            return queue;
+        }
+
+        public void shouldReformatTheFilesOneByOne() {
+            checking(new Expectations() {{
+                one (formatter).reformatOne(FOO_FILE);
+                one (formatter).reformatOne(GAZONK_FILE);
+            }});
+            queue.reformatOne(FOO_FILE);
+            queue.reformatOne(GAZONK_FILE);
+            queue.flush();
+            specify(queue.isEmpty());
+        }
+    }
+
+    public class WhenSomeFilesAreExcluded {
+
+        private CodeFormatter formatter;
+        private OptimizingReformatQueue queue;
+
+        public ReformatQueue create() {
+            formatter = mock(CodeFormatter.class);
+            checking(supportsReformatting(formatter, true, false, true, false));
+            queue = new OptimizingReformatQueue(formatter, OptimizingReformatQueue.defaultCostsOf(formatter),
+                    new ExcludedFiles(false, BAR_FILE.getName()));
+            return queue;
+        }
+
+        public void shouldNotReformatADirectoryWhichContainsExcludedFilesAsAWhole() {
+            checking(new Expectations() {{
+                one (formatter).reformatOne(FOO_FILE);
+                one (formatter).reformatOne(BAR_FILE);
+                one (formatter).reformatDirectory(TESTFILES_SUBDIR);
+            }});
+            queue.reformatOne(FOO_FILE);
+            queue.reformatOne(BAR_FILE);
+            queue.reformatOne(GAZONK_FILE);
+            queue.flush();
+        }
+    }
+
+    public class WhenAskedForAPlan {
+
+        private CodeFormatter formatter;
+        private OptimizingReformatQueue queue;
+
+        public ReformatQueue create() {
+            formatter = mock(CodeFormatter.class);
+            checking(supportsReformatting(formatter, true, false, true, false));
+            queue = new OptimizingReformatQueue(formatter);
+            return queue;
+        }
+
+        public void shouldTellWhichCallsWouldBeMadeWithoutMakingThem() {
+            checking(new Expectations() {{
+            }});
+            queue.reformatOne(FOO_FILE);
+            queue.reformatOne(BAR_FILE);
+            queue.reformatOne(GAZONK_FILE);
+            ReformatPlan plan = queue.plan();
+
+            specify(plan.getCalls().size(), should.equal(2));
+            ReformatCall call = plan.getCalls().get(0);
+            specify(call.getMethod(), should.equal(ReformatMethod.DIRECTORY));
+            specify(call.getTargets(), should.containExactly(TESTFILES_DIR));
+            specify(call.getFiles(), should.containExactly(FOO_FILE, BAR_FILE));
+            specify(plan.getFiles(), should.containExactly(FOO_FILE, BAR_FILE, GAZONK_FILE));
+            specify(plan.getTotalCost() > 0);
+            specify(should.not().be.isEmpty());
+        }
+
+        public void thePlanCanBeExecutedLater() {
+            checking(new Expectations() {{
+                one (formatter).reformatDirectory(TESTFILES_DIR);
+                one (formatter).reformatDirectory(TESTFILES_SUBDIR);
+            }});
+            queue.reformatOne(FOO_FILE);
+            queue.reformatOne(BAR_FILE);
+            ReformatPlan plan = queue.plan();
+            queue.reformatOne(GAZONK_FILE);
+
+            queue.execute(plan);
+            specify(should.not().be.isEmpty());
+            queue.flush();
+            specify(queue.isEmpty());
+        }
+
+        public void aPlanCanNotBeExecutedTwice() {
+            checking(new Expectations() {{
+                one (formatter).reformatDirectory(TESTFILES_DIR);
+            }});
+            queue.reformatOne(FOO_FILE);
+            queue.reformatOne(BAR_FILE);
+            final ReformatPlan plan = queue.plan();
+            queue.execute(plan);
+            specify(new Block() {
+                public void run() throws Throwable {
+                    queue.execute(plan);
+                }
+            }, should.raise(IllegalStateException.class));
+        }
+
+        public void aPlanCanNotBeExecutedAfterItsFilesHaveBeenFlushed() {
+            checking(new Expectations() {{
+                one (formatter).reformatDirectory(TESTFILES_DIR);
+                one (formatter).reformatDirectory(TESTFILES_SUBDIR);
+            }});
+            queue.reformatOne(FOO_FILE);
+            queue.reformatOne(BAR_FILE);
+            final ReformatPlan plan = queue.plan();
+            queue.flush();
+            queue.reformatOne(GAZONK_FILE);
+            specify(new Block() {
+                public void run() throws Throwable {
+                    queue.execute(plan);
+                }
+            }, should.raise(IllegalStateException.class));
+            specify(!queue.isEmpty());
+            queue.flush();
+        }
+    }
+
+    public class WhenThereAreVeryManyFiles {
+
+        private static final int PACKAGES = 10;
+        private static final int SUBPACKAGES = 25;
+        private static final int FILES_PER_DIR = 200;
+        private static final long TIME_BUDGET_MILLIS = 5000;
+
+        private CodeFormatter formatter;
+        private ReformatQueue queue;
+        private File rootDir;
+        private List<File> allFiles;
+
+        public ReformatQueue create() throws IOException {
+            rootDir = FileUtil.canonicalFile(new File(System.getProperty("java.io.tmpdir"), OptimizingReformatQueueSpec.class.getName() + ".tree"));
+            FileUtil.deleteRecursively(rootDir);
+            allFiles = createTree(rootDir);
+            formatter = mock(CodeFormatter.class);
+            checking(supportsReformatting(formatter, true, false, true, true));
+            queue = new OptimizingReformatQueue(formatter);
+            return queue;
+        }
+
+        public void destroy() {
+            FileUtil.deleteRecursively(rootDir);
+        }
+
+        private List<File> createTree(File root) throws IOException {
+            List<File> files = new ArrayList<File>();
+            for (int p = 0; p < PACKAGES; p++) {
+                for (int s = 0; s < SUBPACKAGES; s++) {
+                    File dir = new File(root, "package" + p + "/subpackage" + s);
+                    specify(dir.mkdirs());
+                    for (int f = 0; f < FILES_PER_DIR; f++) {
+                        File file = new File(dir, "File" + f + ".java");
+                        specify(file.createNewFile());
+                        files.add(file);
+                    }
+                }
+            }
+            return files;
+        }
+
+        public void shouldFlushAWholeTreeWithinTheTimeBudget() {
+            checking(new Expectations() {{
+                one (formatter).reformatRecursively(rootDir);
+            }});
+            for (File file : allFiles) {
+                queue.reformatOne(file);
+            }
+            long start = System.currentTimeMillis();
+            queue.flush();
+            long elapsed = System.currentTimeMillis() - start;
+            specify(elapsed < TIME_BUDGET_MILLIS);
+            specify(queue.isEmpty());
+        }
+
+        public void shouldFlushAPartialTreeWithinTheTimeBudget() {
+            final File notQueued = allFiles.remove(0);
+            checking(new Expectations() {{
+                never (formatter).reformatRecursively(notQueued.getParentFile());
+                never (formatter).reformatRecursively(notQueued.getParentFile().getParentFile());
+                exactly((PACKAGES - 1) + (SUBPACKAGES - 1)).of (formatter).reformatRecursively(with(any(File.class)));
+                never (formatter).reformatDirectory(with(any(File.class)));
+                exactly(FILES_PER_DIR - 1).of (formatter).reformatOne(with(any(File.class)));
+            }});
+            for (File file : allFiles) {
+                queue.reformatOne(file);
+            }
+            long start = System.currentTimeMillis();
+            queue.flush();
+            long elapsed = System.currentTimeMillis() - start;
+            specify(elapsed < TIME_BUDGET_MILLIS);
+            specify(queue.isEmpty());
+        }
+    }
+
+    public class WhenFlushingInParallel {
+
+        private static final int PARALLELISM = 3;
+
+        private ConcurrentCodeFormatter formatter;
+        private OptimizingReformatQueue queue;
+
+        public ReformatQueue create() {
+            formatter = new ConcurrentCodeFormatter(PARALLELISM);
+            queue = new OptimizingReformatQueue(formatter);
+            queue.setParallelism(PARALLELISM);
+            return queue;
+        }
+
+        public void shouldExposeTheParallelism() {
+            specify(queue.getParallelism(), should.equal(PARALLELISM));
+            specify(new OptimizingReformatQueue(formatter).getParallelism(), should.equal(1));
+        }
+
+        public void shouldExecuteIndependentCallsAtTheSameTime() {
+            queue.reformatOne(FOO_FILE);
+            queue.reformatOne(BAR_FILE);
+            queue.reformatOne(GAZONK_FILE);
+            queue.flush();
+            specify(formatter.reformatted, should.containExactly(FOO_FILE, BAR_FILE, GAZONK_FILE));
+            specify(formatter.maxConcurrentCalls.get(), should.equal(PARALLELISM));
+            specify(queue.isEmpty());
+        }
+
+        public void shouldNotExecuteMoreCallsAtTheSameTimeThanTheParallelism() {
+            queue.setParallelism(2);
+            queue.reformatOne(FOO_FILE);
+            queue.reformatOne(BAR_FILE);
+            queue.reformatOne(GAZONK_FILE);
+            queue.flush();
+            specify(formatter.reformatted.size(), should.equal(3));
+            specify(formatter.maxConcurrentCalls.get(), should.equal(2));
+        }
+
+        public void shouldReportAllFailuresAfterTheOtherCallsHaveCompleted() {
+            formatter.failing.add(FOO_FILE);
+            formatter.failing.add(GAZONK_FILE);
+            queue.reformatOne(FOO_FILE);
+            queue.reformatOne(BAR_FILE);
+            queue.reformatOne(GAZONK_FILE);
+            specify(new Block() {
+                public void run() throws Throwable {
+                    try {
+                        queue.flush();
+                    } catch (ReformatFailedException e) {
+                        specify(e.getFailures().size(), should.equal(2));
+                        throw e;
+                    }
+                }
+            }, should.raise(ReformatFailedException.class));
+            specify(formatter.reformatted, should.containExactly(BAR_FILE));
+        }
+
+        public void shouldLeaveTheFilesOfTheFailedCallsInTheQueue() {
+            formatter.failing.add(FOO_FILE);
+            queue.reformatOne(FOO_FILE);
+            queue.reformatOne(BAR_FILE);
+            queue.reformatOne(GAZONK_FILE);
+            try {
+                queue.flush();
+                specify(false);
+            } catch (ReformatFailedException e) {
+                // FOO_FILE failed
+            }
+            specify(queue.getQueuedFiles(), should.containExactly(FOO_FILE));
+        }
+    }
+
+    public class WhenManyThreadsUseTheQueueAtTheSameTime {
+
+        private static final int PRODUCERS = 4;
+        private static final int FILES_PER_PRODUCER = 250;
+
+        private ConcurrentCodeFormatter formatter;
+        private OptimizingReformatQueue queue;
+        private File tempDir;
+
+        public ReformatQueue create() {
+            formatter = new ConcurrentCodeFormatter(1);
+            queue = new OptimizingReformatQueue(formatter);
+            tempDir = new File(System.getProperty("java.io.tmpdir"), OptimizingReformatQueueSpec.class.getName() + ".threads");
+            FileUtil.deleteRecursively(tempDir);
+            specify(tempDir.mkdirs());
+            return queue;
+        }
+
+        public void destroy() {
+            FileUtil.deleteRecursively(tempDir);
+        }
+
+        public void queueingShouldNotWaitForARunningFlush() throws Exception {
+            formatter.blockUntil = new CountDownLatch(1);
+            queue.reformatOne(FOO_FILE);
+            Thread flusher = new Thread(new Runnable() {
+                public void run() {
+                    queue.flush();
+                }
+            });
+            flusher.start();
+            specify(formatter.started.await(5, TimeUnit.SECONDS));
+
+            queue.reformatOne(BAR_FILE);
+            specify(should.not().be.isEmpty());
+            formatter.blockUntil.countDown();
+            flusher.join();
+            specify(formatter.reformatted, should.containExactly(FOO_FILE));
+
+            queue.flush();
+            specify(formatter.reformatted, should.containExactly(FOO_FILE, BAR_FILE));
+            specify(queue.isEmpty());
+        }
+
+        public void noQueuedFileShouldBeLostOrReformattedTwice() throws Exception {
+            final CountDownLatch producersDone = new CountDownLatch(PRODUCERS);
+            for (int i = 0; i < PRODUCERS; i++) {
+                final List<File> files = new ArrayList<File>();
+                for (int j = 0; j < FILES_PER_PRODUCER; j++) {
+                    File file = new File(tempDir, "File" + i + "_" + j + ".java");
+                    specify(file.createNewFile());
+                    files.add(file);
+                }
+                new Thread(new Runnable() {
+                    public void run() {
+                        for (File file : files) {
+                            queue.reformatOne(file);
+                        }
+                        producersDone.countDown();
+                    }
+                }).start();
+            }
+            while (producersDone.getCount() > 0) {
+                queue.flush();
+            }
+            queue.flush();
+            specify(queue.isEmpty());
+            specify(formatter.reformatted.size(), should.equal(PRODUCERS * FILES_PER_PRODUCER));
+            specify(new HashSet<File>(formatter.reformatted).size(), should.equal(PRODUCERS * FILES_PER_PRODUCER));
+        }
+    }
+
     @SuppressWarnings({"FieldCanBeLocal"})
     public class WhenQueueIsEmpty {
 
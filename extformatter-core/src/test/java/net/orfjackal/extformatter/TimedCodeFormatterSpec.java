@@ -0,0 +1,122 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter;
+
+import jdave.Specification;
+import jdave.junit4.JDaveRunner;
+import static net.orfjackal.extformatter.ReformatMethod.*;
+import static net.orfjackal.extformatter.TestResources.*;
+import static net.orfjackal.extformatter.TestUtil.supportsReformatting;
+import org.jmock.Expectations;
+import org.junit.runner.RunWith;
+
+/**
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+@RunWith(JDaveRunner.class)
+public class TimedCodeFormatterSpec extends Specification<CodeFormatter> {
+
+    private static final double SLOW = 1000 * 1000;
+
+    public class ATimedCodeFormatter {
+
+        private CodeFormatter target;
+        private TimedCodeFormatter formatter;
+
+        public CodeFormatter create() {
+            target = mock(CodeFormatter.class);
+            checking(supportsReformatting(target, true, true, true, true));
+            formatter = new TimedCodeFormatter(target, new LearningCostModel(new LinearCostModel(SLOW, 0, 0)));
+            return formatter;
+        }
+
+        public void shouldForwardTheCallsToTheFormatter() {
+            checking(new Expectations() {{
+                one (target).reformatOne(FOO_FILE);
+                one (target).reformatMany(FOO_FILE, BAR_FILE);
+                one (target).reformatDirectory(TESTFILES_DIR);
+                one (target).reformatRecursively(TESTFILES_DIR);
+            }});
+            formatter.reformatOne(FOO_FILE);
+            formatter.reformatMany(FOO_FILE, BAR_FILE);
+            formatter.reformatDirectory(TESTFILES_DIR);
+            formatter.reformatRecursively(TESTFILES_DIR);
+        }
+
+        public void shouldLearnHowLongTheCallsTake() {
+            checking(new Expectations() {{
+                exactly(10).of (target).reformatOne(FOO_FILE);
+            }});
+            for (int i = 0; i < 10; i++) {
+                formatter.reformatOne(FOO_FILE);
+            }
+            specify(formatter.costOf(ONE, 1, 0) < SLOW / 2);
+            specify(formatter.costOf(MANY, 1, 0) >= SLOW);
+        }
+
+        public void shouldNotLearnTheCostOfDirectoriesWithoutKnowingTheNumberOfFiles() {
+            checking(new Expectations() {{
+                exactly(10).of (target).reformatDirectory(TESTFILES_DIR);
+            }});
+            for (int i = 0; i < 10; i++) {
+                formatter.reformatDirectory(TESTFILES_DIR);
+            }
+            specify(formatter.costOf(DIRECTORY, 2, 0) >= SLOW);
+        }
+    }
+
+    public class WhenTheFormatterIsUsedThroughAReformatQueue {
+
+        private CodeFormatter target;
+        private TimedCodeFormatter formatter;
+
+        public CodeFormatter create() {
+            target = mock(CodeFormatter.class);
+            checking(supportsReformatting(target, false, false, true, false));
+            formatter = new TimedCodeFormatter(target, new LearningCostModel(new LinearCostModel(SLOW, 0, 0)));
+            return formatter;
+        }
+
+        public void shouldLearnTheCostOfDirectoriesFromTheFileCountsOfTheQueuedCalls() {
+            checking(new Expectations() {{
+                exactly(10).of (target).reformatDirectory(TESTFILES_DIR);
+            }});
+            OptimizingReformatQueue queue = new OptimizingReformatQueue(formatter);
+            for (int i = 0; i < 10; i++) {
+                queue.reformatOne(FOO_FILE);
+                queue.reformatOne(BAR_FILE);
+                queue.flush();
+            }
+            specify(formatter.costOf(DIRECTORY, 2, 0) < SLOW / 2);
+        }
+
+        public void shouldLearnTheFileCountsAlsoThroughOtherFormattersWhichWrapIt() {
+            checking(new Expectations() {{
+                exactly(10).of (target).reformatDirectory(TESTFILES_DIR);
+            }});
+            OptimizingReformatQueue queue = new OptimizingReformatQueue(new AdaptiveCodeFormatter(formatter), formatter);
+            for (int i = 0; i < 10; i++) {
+                queue.reformatOne(FOO_FILE);
+                queue.reformatOne(BAR_FILE);
+                queue.flush();
+            }
+            specify(formatter.costOf(DIRECTORY, 2, 0) < SLOW / 2);
+        }
+    }
+}
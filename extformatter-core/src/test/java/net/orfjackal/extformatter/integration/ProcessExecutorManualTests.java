@@ -19,11 +19,13 @@ package net.orfjackal.extformatter.integration;
 
 import net.orfjackal.extformatter.util.*;
 
+import java.util.Arrays;
+
 /**
  * @author Esko Luontola
  * @since 1.12.2007
  */
-public class ProcessExecutor1ManualTests {
+public class ProcessExecutorManualTests {
 
     public static class ExecuteCommandTest {
 
@@ -32,9 +34,9 @@ public class ProcessExecutor1ManualTests {
          * which should be the help message of ping.
          */
         public static void main(String[] args) {
-            ProcessExecutor1 executor = new ProcessExecutor1Impl();
+            ProcessExecutor executor = new ProcessExecutorImpl();
             System.out.println("--- BEGIN ---");
-            executor.executeAndWait("ping");
+            executor.executeAndWait(Arrays.asList("ping"));
             System.out.println("--- END ---");
         }
     }
@@ -21,9 +21,10 @@ import jdave.*;
 import jdave.junit4.JDaveRunner;
 import net.orfjackal.extformatter.*;
 import static net.orfjackal.extformatter.settings.Settings.Formatter.*;
+import net.orfjackal.extformatter.util.*;
 import org.junit.runner.RunWith;
 
-import java.io.IOException;
+import java.io.*;
 
 /**
  * @author Esko Luontola
@@ -213,6 +214,27 @@ public class SettingsManagerSpec extends Specification<Settings> {
             }, should.raise(IllegalSettingsException.class));
         }
 
+        public void shouldNotAllowEnablingAnEmptyCommandForDaemon() {
+            settings.setCliDaemonEnabled(true);
+            settings.setCliDaemon("");
+            specify(new Block() {
+                public void run() throws Throwable {
+                    SettingsManager.newFormatter(settings);
+                }
+            }, should.raise(IllegalSettingsException.class));
+        }
+
+        public void formatterShouldSupportReformatOneAndManyInDaemonMode() throws IllegalSettingsException {
+            settings.setCliReformatOneEnabled(false);
+            settings.setCliReformatManyEnabled(false);
+            settings.setCliDaemonEnabled(true);
+            settings.setCliDaemon("formatter-server");
+            CodeFormatter formatter = SettingsManager.newFormatter(settings);
+            assert formatter != null;
+            specify(formatter.supportsReformatOne());
+            specify(formatter.supportsReformatMany());
+        }
+
         public void shouldNotAllowAnEmptyListOfSupportedFiles() {
             settings.setCliSupportedFileTypes("");
             specify(new Block() {
@@ -240,6 +262,13 @@ public class SettingsManagerSpec extends Specification<Settings> {
             }, should.raise(IllegalSettingsException.class));
         }
 
+        public void shouldAcceptAListFileOrStdinInsteadOfTheFilesTagInReformatManyCommand() throws IllegalSettingsException {
+            settings.setCliReformatMany("reformat @%FILES_LISTFILE%");
+            specify(SettingsManager.newFormatter(settings) != null);
+            settings.setCliReformatMany("reformat %FILES_STDIN%");
+            specify(SettingsManager.newFormatter(settings) != null);
+        }
+
         public void shouldRequireDirectoryTagInReformatDirectoryCommand() {
             settings.setCliReformatDirectory("%FILE% %FILES% DIRECTORY");
             specify(new Block() {
@@ -258,4 +287,96 @@ public class SettingsManagerSpec extends Specification<Settings> {
             }, should.raise(IllegalSettingsException.class));
         }
     }
+
+    public class WhenTheFormatterHasLearnedItsCosts {
+
+        private Settings settings;
+        private TimedCodeFormatter formatter;
+
+        public Settings create() throws IllegalSettingsException {
+            settings = new Settings();
+            settings.setFormatter(COMMAND_LINE);
+            settings.setCliReformatOne("reformat %FILE%");
+            settings.setCliReformatOneEnabled(true);
+            CodeFormatter original = SettingsManager.newFormatter(settings);
+            assert original != null;
+            formatter = SettingsManager.withLearnedCosts(original, settings);
+            for (int i = 0; i < 20; i++) {
+                formatter.getCosts().record(ReformatMethod.ONE, 1, 42);
+            }
+            SettingsManager.saveLearnedCosts(formatter, settings);
+            return settings;
+        }
+
+        public void theCostsShouldBeRestoredFromTheSettings() throws IllegalSettingsException {
+            CodeFormatter original = SettingsManager.newFormatter(settings);
+            assert original != null;
+            TimedCodeFormatter restored = SettingsManager.withLearnedCosts(original, settings);
+            specify(restored.costOf(ReformatMethod.ONE, 1, 0), should.equal(formatter.costOf(ReformatMethod.ONE, 1, 0)));
+        }
+
+        public void theCostsShouldNotBeUsedForADifferentFormatter() throws IllegalSettingsException {
+            settings.setCliReformatOne("another %FILE%");
+            CodeFormatter original = SettingsManager.newFormatter(settings);
+            assert original != null;
+            TimedCodeFormatter restored = SettingsManager.withLearnedCosts(original, settings);
+            specify(restored.costOf(ReformatMethod.ONE, 1, 0), should.equal(
+                    OptimizingReformatQueue.defaultCostsOf(original).costOf(ReformatMethod.ONE, 1, 0)));
+        }
+    }
+
+    public class WhenFilesAreExcluded {
+
+        private Settings settings;
+
+        public Settings create() {
+            settings = new Settings();
+            return settings;
+        }
+
+        public void nothingShouldBeExcludedByDefault() {
+            specify(SettingsManager.excludedFilesOf(settings).isEmpty());
+        }
+
+        public void theExcludedFilesShouldBeSeparatedByWhitespace() {
+            settings.setExcludedFiles(" target/  *.min.js ");
+            ExcludedFiles excluded = SettingsManager.excludedFilesOf(settings);
+            specify(excluded.accept(new File("/project/web/jquery.min.js")));
+            specify(!excluded.accept(new File("/project/web/jquery.js")));
+        }
+
+        public void gitIgnoredFilesMayBeExcluded() {
+            settings.setExcludeGitIgnoredFiles(true);
+            specify(!SettingsManager.excludedFilesOf(settings).isEmpty());
+        }
+    }
+
+    public class WhenTheProcessesAreLimited {
+
+        private Settings settings;
+
+        public Settings create() {
+            settings = new Settings();
+            return settings;
+        }
+
+        public void theProcessesShouldBeLimitedButNotTimedOutByDefault() {
+            ProcessPool pool = SettingsManager.newProcessPool(settings);
+            specify(pool.getMaxConcurrency(), should.equal(4));
+            specify(pool.getTimeoutMillis(), should.equal(ProcessPool.NO_TIMEOUT));
+        }
+
+        public void theLimitsShouldBeTakenFromTheSettings() {
+            settings.setMaxProcesses(2);
+            settings.setProcessTimeoutSeconds(10);
+            ProcessPool pool = SettingsManager.newProcessPool(settings);
+            specify(pool.getMaxConcurrency(), should.equal(2));
+            specify(pool.getTimeoutMillis(), should.equal(10 * 1000L));
+        }
+
+        public void aTimeoutOfZeroShouldMeanNoTimeout() {
+            settings.setProcessTimeoutSeconds(0);
+            specify(SettingsManager.newProcessPool(settings).getTimeoutMillis(), should.equal(ProcessPool.NO_TIMEOUT));
+        }
+    }
 }
@@ -0,0 +1,131 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter.util;
+
+import jdave.Specification;
+import jdave.junit4.JDaveRunner;
+import org.junit.runner.RunWith;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+@RunWith(JDaveRunner.class)
+public class BlockingExecutorsSpec extends Specification<Object> {
+
+    public class AnUnboundedExecutor {
+
+        private ExecutorService executor;
+
+        public Object create() {
+            executor = BlockingExecutors.newUnboundedExecutor("test");
+            return null;
+        }
+
+        public void destroy() {
+            executor.shutdownNow();
+        }
+
+        public void shouldRunAllTasksAtTheSameTime() throws Exception {
+            int tasks = 100;
+            final CountDownLatch allStarted = new CountDownLatch(tasks);
+            List<Future<?>> results = new ArrayList<Future<?>>();
+            for (int i = 0; i < tasks; i++) {
+                results.add(executor.submit(new Callable<Object>() {
+                    public Object call() throws Exception {
+                        allStarted.countDown();
+                        allStarted.await();
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get(10, TimeUnit.SECONDS);
+            }
+        }
+
+        public void shouldRunTheTasksOnDaemonThreads() throws Exception {
+            Future<Boolean> daemon = executor.submit(new Callable<Boolean>() {
+                public Boolean call() {
+                    return Thread.currentThread().isDaemon();
+                }
+            });
+            specify(daemon.get(), should.equal(true));
+        }
+    }
+
+    public class ABoundedExecutor {
+
+        private ExecutorService executor;
+
+        public Object create() {
+            executor = BlockingExecutors.newBoundedExecutor(2, "test");
+            return null;
+        }
+
+        public void destroy() {
+            executor.shutdownNow();
+        }
+
+        public void shouldRunAtMostTheGivenNumberOfTasksAtTheSameTime() throws Exception {
+            final Semaphore running = new Semaphore(2);
+            final List<Boolean> overLimit = Collections.synchronizedList(new ArrayList<Boolean>());
+            List<Future<?>> results = new ArrayList<Future<?>>();
+            for (int i = 0; i < 10; i++) {
+                results.add(executor.submit(new Callable<Object>() {
+                    public Object call() throws Exception {
+                        boolean acquired = running.tryAcquire();
+                        overLimit.add(!acquired);
+                        Thread.sleep(10);
+                        if (acquired) {
+                            running.release();
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+            specify(!overLimit.contains(true));
+        }
+    }
+
+    public class AThreadFactory {
+
+        private final Runnable task = new Runnable() {
+            public void run() {
+            }
+        };
+
+        public Object create() {
+            return null;
+        }
+
+        public void shouldNameTheThreadsOfEachFactoryIndependently() {
+            ThreadFactory first = BlockingExecutors.threadFactory("first");
+            ThreadFactory second = BlockingExecutors.threadFactory("second");
+            specify(first.newThread(task).getName(), should.equal("first-1"));
+            specify(second.newThread(task).getName(), should.equal("second-1"));
+            specify(first.newThread(task).getName(), should.equal("first-2"));
+        }
+    }
+}
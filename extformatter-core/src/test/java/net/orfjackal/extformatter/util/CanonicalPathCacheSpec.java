@@ -0,0 +1,75 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter.util;
+
+import jdave.Specification;
+import jdave.junit4.JDaveRunner;
+import static net.orfjackal.extformatter.TestResources.*;
+import org.junit.runner.RunWith;
+
+import java.io.*;
+
+/**
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+@RunWith(JDaveRunner.class)
+public class CanonicalPathCacheSpec extends Specification<CanonicalPathCache> {
+
+    public class ACanonicalPathCache {
+
+        private CanonicalPathCache cache;
+
+        public CanonicalPathCache create() {
+            cache = new CanonicalPathCache();
+            return cache;
+        }
+
+        public void shouldReturnTheCanonicalFile() throws IOException {
+            specify(cache.canonicalFile(FOO_FILE), should.equal(FOO_FILE.getCanonicalFile()));
+        }
+
+        public void shouldResolveDifferentPathsToTheSameFile() throws IOException {
+            File viaParent = new File(TESTFILES_SUBDIR, "../" + FOO_FILE.getName());
+            specify(cache.canonicalFile(viaParent), should.equal(cache.canonicalFile(FOO_FILE)));
+        }
+
+        public void shouldRememberTheCanonicalFile() throws IOException {
+            File first = cache.canonicalFile(FOO_FILE);
+            File second = cache.canonicalFile(new File(FOO_FILE.getPath()));
+            specify(second == first);
+        }
+    }
+
+    public class WhenTheCacheIsFull {
+
+        private CanonicalPathCache cache;
+
+        public CanonicalPathCache create() {
+            cache = new CanonicalPathCache(60 * 1000, 1);
+            return cache;
+        }
+
+        public void shouldForgetTheOldEntries() throws IOException {
+            File foo = cache.canonicalFile(FOO_FILE);
+            cache.canonicalFile(BAR_FILE);
+            specify(cache.canonicalFile(FOO_FILE) != foo);
+            specify(cache.canonicalFile(FOO_FILE), should.equal(foo));
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter.util;
+
+import jdave.Specification;
+import jdave.junit4.JDaveRunner;
+import org.junit.runner.RunWith;
+
+import java.util.*;
+
+/**
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+@RunWith(JDaveRunner.class)
+public class CommandLineSplitterSpec extends Specification<CommandLineSplitter> {
+
+    private static final int MAX_LENGTH = 32000;
+    private static final int OVERHEAD = 1;
+    private static final int FIXED_LENGTH = 100;
+
+    private static List<String> manyPaths(int count) {
+        List<String> paths = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            paths.add(String.format("\"/home/user/project/src/main/java/File%06d.java\"", i));
+        }
+        return paths;
+    }
+
+    private static long lengthOf(CommandLineSplitter splitter, List<String> arguments) {
+        long length = FIXED_LENGTH;
+        for (String argument : arguments) {
+            length += splitter.lengthOf(argument);
+        }
+        return length;
+    }
+
+    public class WhenTheArgumentsFitInOneCommandLine {
+
+        private CommandLineSplitter splitter;
+
+        public CommandLineSplitter create() {
+            splitter = new CommandLineSplitter(MAX_LENGTH, OVERHEAD);
+            return splitter;
+        }
+
+        public void shouldNotSplitThem() {
+            List<String> args = Arrays.asList("a", "b", "c");
+            List<List<String>> commandLines = splitter.split(FIXED_LENGTH, args);
+            specify(commandLines.size(), should.equal(1));
+            specify(commandLines.get(0), should.equal(args));
+        }
+
+        public void shouldEstimateThatOneCommandLineIsEnough() {
+            specify(splitter.minimumCommandLines(FIXED_LENGTH, 6), should.equal(1));
+        }
+    }
+
+    public class WhenThereAreVeryManyArguments {
+
+        private static final int ARGUMENTS = 100000;
+
+        private CommandLineSplitter splitter;
+        private List<String> args;
+        private List<List<String>> commandLines;
+
+        public CommandLineSplitter create() {
+            splitter = new CommandLineSplitter(MAX_LENGTH, OVERHEAD);
+            args = manyPaths(ARGUMENTS);
+            commandLines = splitter.split(FIXED_LENGTH, args);
+            return splitter;
+        }
+
+        public void everyCommandLineShouldFitTheMaximumLength() {
+            for (List<String> commandLine : commandLines) {
+                specify(lengthOf(splitter, commandLine) <= MAX_LENGTH);
+            }
+        }
+
+        public void allArgumentsShouldBeIncludedInTheOriginalOrder() {
+            List<String> joined = new ArrayList<String>();
+            for (List<String> commandLine : commandLines) {
+                joined.addAll(commandLine);
+            }
+            specify(joined, should.equal(args));
+        }
+
+        public void shouldUseTheLeastNumberOfCommandLines() {
+            long argumentsLength = lengthOf(splitter, args) - FIXED_LENGTH;
+            int argumentLength = (int) splitter.lengthOf(args.get(0));
+            int argumentsPerCommandLine = (MAX_LENGTH - FIXED_LENGTH) / argumentLength;
+            int expected = (ARGUMENTS + argumentsPerCommandLine - 1) / argumentsPerCommandLine;
+            specify(commandLines.size(), should.equal(expected));
+            specify(splitter.minimumCommandLines(FIXED_LENGTH, argumentsLength) <= expected);
+        }
+    }
+
+    public class WhenAnArgumentIsLongerThanTheMaximumLength {
+
+        private CommandLineSplitter splitter;
+
+        public CommandLineSplitter create() {
+            splitter = new CommandLineSplitter(10, OVERHEAD);
+            return splitter;
+        }
+
+        public void itShouldBeInACommandLineOfItsOwn() {
+            List<String> args = Arrays.asList("a", "much too long", "b");
+            List<List<String>> commandLines = splitter.split(0, args);
+            specify(commandLines.size(), should.equal(3));
+            specify(commandLines.get(1), should.equal(Arrays.asList("much too long")));
+        }
+    }
+
+    public class TheDefaultMaximumLength {
+
+        public CommandLineSplitter create() {
+            return new CommandLineSplitter();
+        }
+
+        public void shouldLeaveRoomForArguments() {
+            specify(CommandLineSplitter.defaultMaxLength() > 0);
+        }
+    }
+}
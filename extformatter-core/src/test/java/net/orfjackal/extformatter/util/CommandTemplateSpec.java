@@ -0,0 +1,97 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter.util;
+
+import jdave.*;
+import jdave.junit4.JDaveRunner;
+import org.junit.runner.RunWith;
+
+import java.util.*;
+
+/**
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+@RunWith(JDaveRunner.class)
+public class CommandTemplateSpec extends Specification<CommandTemplate> {
+
+    public class ACommandTemplate {
+
+        public CommandTemplate create() {
+            return null;
+        }
+
+        public void shouldSplitTheArgumentsAtWhitespace() {
+            CommandTemplate template = new CommandTemplate("  format\t-q  %FILE% ");
+            specify(template.tokens(), should.equal(Arrays.asList("format", "-q", "%FILE%")));
+        }
+
+        public void shouldKeepWhitespaceInsideQuotes() {
+            CommandTemplate template = new CommandTemplate("\"C:\\Program Files\\format.exe\" -config=\"my prefs\" \"\"");
+            specify(template.tokens(), should.equal(Arrays.asList("C:\\Program Files\\format.exe", "-config=my prefs", "")));
+        }
+
+        public void shouldNotAllowUnbalancedQuotes() {
+            specify(new Block() {
+                public void run() throws Throwable {
+                    new CommandTemplate("format \"%FILE%");
+                }
+            }, should.raise(IllegalArgumentException.class));
+        }
+
+        public void shouldReplaceATagWithOneArgument() {
+            CommandTemplate template = new CommandTemplate("format %FILE% -q");
+            specify(template.with("%FILE%", "my file").tokens(), should.equal(Arrays.asList("format", "my file", "-q")));
+        }
+
+        public void shouldReplaceATagWithAnArgumentForEachValue() {
+            CommandTemplate template = new CommandTemplate("format %FILES% -q");
+            specify(template.with("%FILES%", Arrays.asList("a", "b")).tokens(),
+                    should.equal(Arrays.asList("format", "a", "b", "-q")));
+        }
+
+        public void shouldRepeatAnArgumentWhichContainsATagForEachValue() {
+            CommandTemplate template = new CommandTemplate("format --file=%FILES%");
+            specify(template.argumentsFor("%FILES%", Arrays.asList("a", "b")), should.equal(Arrays.asList("--file=a", "--file=b")));
+            specify(template.argumentsWithout("%FILES%"), should.equal(Arrays.asList("format")));
+        }
+
+        public void shouldReplaceATagWhichIsInManyArgumentsInTheirOwnPositions() {
+            CommandTemplate template = new CommandTemplate("uncrustify -c cfg -f %FILE% -o %FILE%");
+            specify(template.with("%FILE%", "/x/A.java").tokens(),
+                    should.equal(Arrays.asList("uncrustify", "-c", "cfg", "-f", "/x/A.java", "-o", "/x/A.java")));
+        }
+
+        public void shouldRemoveTheArgumentsWhichContainATag() {
+            CommandTemplate template = new CommandTemplate("format --stdin=%STDIN% %FILE%");
+            specify(template.without("%STDIN%").tokens(), should.equal(Arrays.asList("format", "%FILE%")));
+        }
+
+        public void shouldBeImmutable() {
+            CommandTemplate template = new CommandTemplate("format %FILE%");
+            template.with("%FILE%", "a");
+            specify(template.tokens(), should.equal(Arrays.asList("format", "%FILE%")));
+        }
+
+        public void shouldQuoteArgumentsWithWhitespaceWhenPrinted() {
+            CommandTemplate template = new CommandTemplate("\"C:\\Program Files\\format.exe\" %FILE%");
+            specify(template.toString(), should.equal("\"C:\\Program Files\\format.exe\" %FILE%"));
+            specify(new CommandTemplate(template.toString()).tokens(), should.equal(template.tokens()));
+        }
+    }
+}
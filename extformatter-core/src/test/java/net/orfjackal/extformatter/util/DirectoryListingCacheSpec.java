@@ -0,0 +1,92 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter.util;
+
+import jdave.Specification;
+import jdave.junit4.JDaveRunner;
+import net.orfjackal.extformatter.*;
+import static net.orfjackal.extformatter.TestResources.*;
+import org.junit.runner.RunWith;
+
+import java.io.*;
+
+/**
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+@RunWith(JDaveRunner.class)
+public class DirectoryListingCacheSpec extends Specification<DirectoryListingCache> {
+
+    public class ADirectoryListingCache {
+
+        private CodeFormatter formatter;
+        private DirectoryListingCache cache;
+
+        public DirectoryListingCache create() {
+            formatter = new CommandLineCodeFormatter(SUPPORTS_TXT, "formatOne %FILE%", null, null, null);
+            cache = new DirectoryListingCache(formatter);
+            return cache;
+        }
+
+        public void shouldListTheSupportedFiles() {
+            specify(cache.supportedFilesIn(TESTFILES_DIR),
+                    should.containExactly(TESTFILES_DIR.listFiles(new FilesSupportedBy(formatter))));
+        }
+
+        public void shouldListTheDirectories() {
+            specify(cache.directoriesIn(TESTFILES_DIR), should.containExactly(TESTFILES_SUBDIR));
+        }
+
+        public void shouldListEachDirectoryOnlyOnce() {
+            File[] files = cache.supportedFilesIn(TESTFILES_DIR);
+            specify(cache.supportedFilesIn(TESTFILES_DIR) == files);
+        }
+
+        public void shouldListNothingInAFile() {
+            specify(cache.supportedFilesIn(FOO_FILE), should.equal(null));
+            specify(cache.directoriesIn(FOO_FILE), should.equal(null));
+        }
+    }
+
+    public class WhenTheDirectoryChangesAfterItWasListed {
+
+        private DirectoryListingCache cache;
+        private File dir;
+
+        public DirectoryListingCache create() throws IOException {
+            cache = new DirectoryListingCache(new CommandLineCodeFormatter(SUPPORTS_TXT, "formatOne %FILE%", null, null, null));
+            dir = new File(System.getProperty("java.io.tmpdir"), DirectoryListingCacheSpec.class.getName());
+            FileUtil.deleteRecursively(dir);
+            specify(dir.mkdirs());
+            specify(new File(dir, "a.txt").createNewFile());
+            return cache;
+        }
+
+        public void destroy() {
+            FileUtil.deleteRecursively(dir);
+        }
+
+        public void shouldStillReturnTheOldListing() throws IOException {
+            specify(cache.supportedFilesIn(dir).length, should.equal(1));
+            specify(new File(dir, "b.txt").createNewFile());
+            specify(cache.supportedFilesIn(dir).length, should.equal(1));
+            specify(new DirectoryListingCache(new CommandLineCodeFormatter(SUPPORTS_TXT, "formatOne %FILE%", null, null, null))
+                    .supportedFilesIn(dir).length, should.equal(2));
+        }
+    }
+}
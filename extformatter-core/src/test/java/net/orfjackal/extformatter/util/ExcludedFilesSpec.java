@@ -0,0 +1,146 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter.util;
+
+import jdave.Specification;
+import jdave.junit4.JDaveRunner;
+import static net.orfjackal.extformatter.TestResources.*;
+import org.junit.runner.RunWith;
+
+import java.io.*;
+
+/**
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+@RunWith(JDaveRunner.class)
+public class ExcludedFilesSpec extends Specification<ExcludedFiles> {
+
+    public class WhenNothingIsExcluded {
+
+        public ExcludedFiles create() {
+            return ExcludedFiles.NONE;
+        }
+
+        public void shouldAcceptNoFiles() {
+            specify(ExcludedFiles.NONE.isEmpty());
+            specify(!ExcludedFiles.NONE.accept(FOO_FILE));
+            specify(!ExcludedFiles.NONE.accept(TESTFILES_DIR));
+        }
+    }
+
+    public class WhenFilesAreExcludedByPatterns {
+
+        private ExcludedFiles excluded;
+
+        public ExcludedFiles create() {
+            excluded = new ExcludedFiles(false, "target", "*.min.js", "src/generated/**", "testfiles/", "Foo.java.txt/");
+            return excluded;
+        }
+
+        public void shouldMatchANameInAnyDirectory() {
+            specify(excluded.accept(new File("/project/target")));
+            specify(excluded.accept(new File("/project/module/target")));
+            specify(excluded.accept(new File("/project/web/jquery.min.js")));
+            specify(!excluded.accept(new File("/project/targets")));
+            specify(!excluded.accept(new File("/project/web/jquery.js")));
+        }
+
+        public void shouldMatchAPathAgainstTheEndOfThePath() {
+            specify(excluded.accept(new File("/project/src/generated")));
+            specify(excluded.accept(new File("/project/src/generated/foo/Bar.java")));
+            specify(!excluded.accept(new File("/project/src/generatedSources")));
+            specify(!excluded.accept(new File("/project/mysrc/generated")));
+        }
+
+        public void shouldMatchOnlyDirectoriesWhenThePatternEndsWithASlash() {
+            specify(excluded.accept(TESTFILES_DIR));
+            specify(!excluded.accept(FOO_FILE));
+        }
+
+        public void shouldMatchTheParentDirectoriesOfAFileWhenAsked() {
+            File file = new File("/project/module/target/classes/Foo.class");
+            specify(!excluded.accept(file));
+            specify(excluded.acceptWithParents(file, new File("/project")));
+            specify(!excluded.acceptWithParents(new File("/project/module/src/Foo.java"), new File("/project")));
+        }
+
+        public void shouldNotMatchTheParentDirectoriesAboveTheRoot() {
+            File file = new File("/target/project/src/Foo.java");
+            specify(!excluded.acceptWithParents(file, new File("/target/project")));
+            specify(excluded.acceptWithParents(file, new File("/elsewhere")));
+        }
+    }
+
+    public class WhenFilesAreExcludedByGitIgnore {
+
+        private ExcludedFiles excluded;
+        private File repository;
+
+        public ExcludedFiles create() throws IOException {
+            repository = new File(System.getProperty("java.io.tmpdir"), ExcludedFilesSpec.class.getName());
+            FileUtil.deleteRecursively(repository);
+            specify(new File(repository, ".git").mkdirs());
+            specify(new File(repository, "build").mkdirs());
+            specify(new File(repository, "sub/build").mkdirs());
+            write(new File(repository, ".gitignore"), "# comment\n*.log\n!keep.log\n/build/\n");
+            write(new File(repository, "sub/.gitignore"), "local.txt\n");
+            excluded = new ExcludedFiles(true);
+            return excluded;
+        }
+
+        public void destroy() {
+            FileUtil.deleteRecursively(repository);
+        }
+
+        public void shouldExcludeTheIgnoredFiles() {
+            specify(excluded.accept(new File(repository, "a.log")));
+            specify(excluded.accept(new File(repository, "sub/a.log")));
+            specify(excluded.accept(new File(repository, "sub/local.txt")));
+            specify(!excluded.accept(new File(repository, "local.txt")));
+        }
+
+        public void shouldNotExcludeNegatedFiles() {
+            specify(!excluded.accept(new File(repository, "keep.log")));
+        }
+
+        public void shouldAnchorPatternsWithASlashToTheDirectoryOfTheGitIgnore() {
+            specify(excluded.accept(new File(repository, "build")));
+            specify(!excluded.accept(new File(repository, "sub/build")));
+        }
+
+        public void shouldExcludeTheFilesInsideIgnoredDirectories() {
+            File file = new File(repository, "build/classes/Foo.class");
+            specify(!excluded.accept(file));
+            specify(excluded.acceptWithParents(file, repository));
+        }
+
+        public void shouldExcludeTheGitDirectory() {
+            specify(excluded.accept(new File(repository, ".git")));
+        }
+
+        private void write(File file, String contents) throws IOException {
+            Writer out = new FileWriter(file);
+            try {
+                out.write(contents);
+            } finally {
+                out.close();
+            }
+        }
+    }
+}
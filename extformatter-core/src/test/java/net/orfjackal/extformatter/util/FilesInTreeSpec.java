@@ -0,0 +1,58 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter.util;
+
+import jdave.Specification;
+import jdave.junit4.JDaveRunner;
+import net.orfjackal.extformatter.CommandLineCodeFormatter;
+import static net.orfjackal.extformatter.TestResources.*;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+@RunWith(JDaveRunner.class)
+public class FilesInTreeSpec extends Specification<FilesInTree> {
+
+    public class AFilesInTree {
+
+        private FilesInTree files;
+
+        public FilesInTree create() {
+            files = new FilesInTree(TESTFILES_DIR, new FilesSupportedBy(
+                    new CommandLineCodeFormatter(SUPPORTS_TXT, "formatOne %FILE%", null, null, null)));
+            return files;
+        }
+
+        public void shouldFindTheFilesInAllSubdirectories() {
+            List<File> found = new ArrayList<File>();
+            for (File file : files) {
+                found.add(file);
+            }
+            specify(found, should.containExactly(FOO_FILE, BAR_FILE, GAZONK_FILE));
+        }
+
+        public void shouldFindNothingInAFile() {
+            specify(new FilesInTree(FOO_FILE, new Directories()).iterator().hasNext(), should.equal(false));
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter.util;
+
+import jdave.*;
+import jdave.junit4.JDaveRunner;
+import org.junit.runner.RunWith;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+@RunWith(JDaveRunner.class)
+public class FormatterDaemonSpec extends Specification<FormatterDaemon> {
+
+    private File dir;
+    private File file;
+
+    private void createFiles() throws IOException {
+        dir = new File(System.getProperty("java.io.tmpdir"), FormatterDaemonSpec.class.getName());
+        FileUtil.deleteRecursively(dir);
+        specify(dir.mkdirs());
+        file = new File(dir, "A.java");
+        Writer out = new FileWriter(file);
+        out.write("a  \nb\t\n");
+        out.close();
+    }
+
+    public class AFormatterDaemon {
+
+        private FormatterDaemon daemon;
+
+        public FormatterDaemon create() throws IOException {
+            createFiles();
+            daemon = new FormatterDaemon(StandInFormatterServer.command());
+            return daemon;
+        }
+
+        public void destroy() {
+            daemon.close();
+            FileUtil.deleteRecursively(dir);
+        }
+
+        public void shouldReformatTheFilesWithTheServer() throws IOException {
+            daemon.format(Arrays.asList(file));
+            specify(FileUtil.contentsOf(file), should.equal("a\nb\n"));
+        }
+
+        public void shouldKeepTheServerRunningBetweenRequests() {
+            daemon.format(Arrays.asList(file));
+            daemon.format(Arrays.asList(file));
+            specify(daemon.getStarts(), should.equal(1));
+            specify(daemon.isHealthy());
+        }
+
+        public void shouldRestartTheServerIfItHasDied() throws Exception {
+            daemon.format(Arrays.asList(file));
+            Process process = daemon.getProcess();
+            assert process != null;
+            process.destroy();
+            process.waitFor();
+
+            daemon.format(Arrays.asList(file));
+            specify(daemon.getStarts(), should.equal(2));
+        }
+
+        public void shouldReportTheErrorsOfTheServer() {
+            specify(new Block() {
+                public void run() throws Throwable {
+                    daemon.format(Arrays.asList(new File(dir, "doesNotExist")));
+                }
+            }, should.raise(RuntimeException.class));
+        }
+
+        public void shouldNotBeHealthyAfterItHasBeenClosed() {
+            daemon.format(Arrays.asList(file));
+            daemon.close();
+            specify(!daemon.isHealthy());
+        }
+    }
+
+    public class WhenTheServerDoesNotAnswer {
+
+        private ProcessPool pool;
+        private FormatterDaemon daemon;
+
+        public FormatterDaemon create() throws IOException {
+            createFiles();
+            pool = new ProcessPool(1, 2000);
+            daemon = new FormatterDaemon(StandInFormatterServer.command() + " " + StandInFormatterServer.HANG, pool);
+            return daemon;
+        }
+
+        public void destroy() {
+            daemon.close();
+            FileUtil.deleteRecursively(dir);
+        }
+
+        public void shouldKillTheServerWithoutRetrying() {
+            specify(new Block() {
+                public void run() throws Throwable {
+                    daemon.format(Arrays.asList(file));
+                }
+            }, should.raise(RuntimeException.class));
+            specify(daemon.getStarts(), should.equal(1));
+            specify(daemon.getProcess(), should.equal(null));
+            specify(pool.getRunningCount(), should.equal(0));
+        }
+
+        public void shouldStartANewServerForTheNextRequest() {
+            for (int i = 0; i < 2; i++) {
+                try {
+                    daemon.format(Arrays.asList(file));
+                    specify(false);
+                } catch (RuntimeException e) {
+                    // did not answer
+                }
+            }
+            specify(daemon.getStarts(), should.equal(2));
+            specify(pool.getRunningCount(), should.equal(0));
+        }
+    }
+}
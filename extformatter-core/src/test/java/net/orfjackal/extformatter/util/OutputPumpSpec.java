@@ -0,0 +1,110 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter.util;
+
+import jdave.*;
+import jdave.junit4.JDaveRunner;
+import org.junit.runner.RunWith;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.Future;
+
+/**
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+@RunWith(JDaveRunner.class)
+public class OutputPumpSpec extends Specification<OutputPump> {
+
+    private static byte[] bytes(int count) {
+        byte[] bytes = new byte[count];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        return bytes;
+    }
+
+    public class AnOutputPump {
+
+        private OutputPump pump;
+
+        public OutputPump create() {
+            pump = new OutputPump();
+            return pump;
+        }
+
+        public void shouldCopyTheWholeStream() throws Exception {
+            byte[] data = bytes(200000);
+            ByteArrayOutputStream to = new ByteArrayOutputStream();
+            long copied = OutputPump.await(pump.copy(new ByteArrayInputStream(data), to));
+            specify(copied, should.equal(200000L));
+            specify(Arrays.equals(to.toByteArray(), data));
+        }
+
+        public void shouldCaptureOnlyUpToTheLimitButReadTheWholeStream() throws Exception {
+            byte[] data = bytes(200000);
+            ByteArrayInputStream from = new ByteArrayInputStream(data);
+            ByteArrayOutputStream to = new ByteArrayOutputStream();
+            long copied = OutputPump.await(pump.copy(from, to, 1000));
+            specify(copied, should.equal(200000L));
+            byte[] captured = new byte[1000];
+            System.arraycopy(data, 0, captured, 0, captured.length);
+            specify(Arrays.equals(to.toByteArray(), captured));
+            specify(from.available(), should.equal(0));
+        }
+
+        public void shouldReuseTheBuffersOfFinishedWork() throws Exception {
+            for (int i = 0; i < 20; i++) {
+                OutputPump.await(pump.copy(new ByteArrayInputStream(bytes(10)), new ByteArrayOutputStream()));
+            }
+            specify(pump.getBufferCount(), should.equal(1));
+        }
+
+        public void shouldDrainManyStreamsConcurrently() throws Exception {
+            List<PipedOutputStream> writers = new ArrayList<PipedOutputStream>();
+            List<Future<Long>> copies = new ArrayList<Future<Long>>();
+            for (int i = 0; i < 10; i++) {
+                PipedOutputStream writer = new PipedOutputStream();
+                writers.add(writer);
+                copies.add(pump.copy(new PipedInputStream(writer), new ByteArrayOutputStream()));
+            }
+            // the streams end in the opposite order in which they were started, so all must be read at the same time
+            for (int i = writers.size() - 1; i >= 0; i--) {
+                writers.get(i).write(bytes(5000));
+                writers.get(i).close();
+            }
+            for (Future<Long> copy : copies) {
+                specify(OutputPump.await(copy), should.equal(5000L));
+            }
+        }
+
+        public void shouldReportTheFailuresOfTheCopying() {
+            final InputStream broken = new InputStream() {
+                public int read() throws IOException {
+                    throw new IOException("broken");
+                }
+            };
+            specify(new Block() {
+                public void run() throws Throwable {
+                    OutputPump.await(pump.copy(broken, new ByteArrayOutputStream()));
+                }
+            }, should.raise(RuntimeException.class));
+        }
+    }
+}
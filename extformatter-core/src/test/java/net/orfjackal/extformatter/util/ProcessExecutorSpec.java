@@ -0,0 +1,102 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter.util;
+
+import jdave.Block;
+import jdave.Specification;
+import jdave.junit4.JDaveRunner;
+import static net.orfjackal.extformatter.util.StandInFormatterServer.*;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * @author Esko Luontola
+ * @since 6.12.2007
+ */
+@RunWith(JDaveRunner.class)
+public class ProcessExecutorSpec extends Specification<ProcessExecutor> {
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    public class AnExecutor {
+
+        private ProcessExecutor executor;
+        private ByteArrayOutputStream stdout;
+        private ByteArrayOutputStream stderr;
+
+        public ProcessExecutor create() {
+            stdout = new ByteArrayOutputStream();
+            stderr = new ByteArrayOutputStream();
+            executor = new ProcessExecutorImpl(stdout, stderr);
+            return executor;
+        }
+
+        public void shouldExecuteTheSystemCommand() {
+            // tested with the following tests and net.orfjackal.extformatter.integration.ProcessExecutorManualTests
+        }
+
+        public void shouldRedirectStdout() {
+            executor.executeAndWait(commandLine(ECHO, "foo"));
+            specify(stdout.toString(), should.equal("foo" + LINE_SEPARATOR));
+            specify(stderr.toString(), should.equal(""));
+        }
+
+        public void shouldRedirectStderr() {
+            try {
+                executor.executeAndWait(commandLine(FAIL));
+                specify(false);
+            } catch (RuntimeException e) {
+                // failed as requested
+            }
+            specify(stdout.toString(), should.equal(""));
+            specify(stderr.toString(), should.equal("Failed as requested" + LINE_SEPARATOR));
+        }
+
+        public void shouldFailIfTheCommandExitsWithANonZeroExitValue() {
+            specify(new Block() {
+                public void run() throws Throwable {
+                    executor.executeAndWait(commandLine(FAIL));
+                }
+            }, should.raise(RuntimeException.class));
+            specify(new Block() {
+                public void run() throws Throwable {
+                    executor.executeAndWait(commandLine(FAIL), Arrays.asList("foo"));
+                }
+            }, should.raise(RuntimeException.class));
+        }
+
+        public void shouldPassEachArgumentAsItIs() {
+            executor.executeAndWait(commandLine(ECHO, "with space", "%FILE%"));
+            specify(stdout.toString(), should.equal("with space" + LINE_SEPARATOR + "%FILE%" + LINE_SEPARATOR));
+        }
+
+        public void shouldWriteTheLinesToStdin() {
+            executor.executeAndWait(commandLine(PIPE), Arrays.asList("foo  ", "bar"));
+            specify(stdout.toString(), should.equal("foo\nbar\n"));
+        }
+
+        public void shouldReturnTheExitValue() throws InterruptedException {
+            int ok = executor.exec(commandLine(ECHO, "foo")).waitFor();
+            int fail = executor.exec(commandLine(FAIL)).waitFor();
+            specify(ok, should.equal(0));
+            specify(fail, should.equal(FAILURE_EXIT_VALUE));
+        }
+    }
+}
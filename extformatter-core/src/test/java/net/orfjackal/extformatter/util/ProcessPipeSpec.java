@@ -0,0 +1,77 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter.util;
+
+import jdave.*;
+import jdave.junit4.JDaveRunner;
+import static net.orfjackal.extformatter.util.StandInFormatterServer.*;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+/**
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+@RunWith(JDaveRunner.class)
+public class ProcessPipeSpec extends Specification<ProcessPipe> {
+
+    public class AProcessPipe {
+
+        private ProcessPipe pipe;
+
+        public ProcessPipe create() {
+            pipe = new ProcessPipe();
+            return pipe;
+        }
+
+        public void shouldReturnWhatTheCommandWritesToStdout() {
+            specify(pipe.pipe(commandLine(PIPE), "a  \nb\t\n"), should.equal("a\nb\n"));
+        }
+
+        public void shouldPipeTextsWhichDoNotFitInThePipeBuffers() {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < 100000; i++) {
+                text.append("line ").append(i).append("  \n");
+            }
+            specify(pipe.pipe(commandLine(PIPE), text.toString()), should.equal(formatted(text.toString())));
+        }
+
+        public void shouldFailWithTheErrorMessageIfTheCommandFails() {
+            specify(new Block() {
+                public void run() throws Throwable {
+                    try {
+                        pipe.pipe(commandLine(PIPE, FAIL), "a");
+                    } catch (RuntimeException e) {
+                        specify(e.getMessage().contains("Exit value " + FAILURE_EXIT_VALUE));
+                        specify(e.getMessage().contains("Failed as requested"));
+                        throw e;
+                    }
+                }
+            }, should.raise(RuntimeException.class));
+        }
+
+        public void shouldFailIfTheCommandCanNotBeExecuted() {
+            specify(new Block() {
+                public void run() throws Throwable {
+                    pipe.pipe(Arrays.asList("doesNotExist"), "a");
+                }
+            }, should.raise(RuntimeException.class));
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter.util;
+
+import jdave.*;
+import jdave.junit4.JDaveRunner;
+import static net.orfjackal.extformatter.util.StandInFormatterServer.*;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+@RunWith(JDaveRunner.class)
+public class ProcessPoolSpec extends Specification<ProcessPool> {
+
+    /**
+     * Waits for stdin until it is closed, so it will not exit by itself.
+     */
+    private static ProcessBuilder hangingProcess() {
+        return new ProcessBuilder(commandLine(PIPE));
+    }
+
+    private static boolean hasExited(Process process) {
+        try {
+            process.exitValue();
+            return true;
+        } catch (IllegalThreadStateException e) {
+            return false;
+        }
+    }
+
+    public class WhenAProcessRunsLongerThanTheTimeout {
+
+        private ProcessPool pool;
+
+        public ProcessPool create() {
+            pool = new ProcessPool(2, 200);
+            return pool;
+        }
+
+        public void shouldKillTheProcessAndFail() throws Exception {
+            final Process process = pool.start(hangingProcess());
+            specify(new Block() {
+                public void run() throws Throwable {
+                    pool.waitFor(process);
+                }
+            }, should.raise(ProcessTimeoutException.class));
+            process.waitFor();
+            specify(hasExited(process));
+            specify(pool.getTimeoutCount(), should.equal(1L));
+            specify(pool.getRunningCount(), should.equal(0));
+            specify(pool.getMaxRunMillis() >= 200);
+        }
+
+        public void shouldReturnTheExitValueIfTheProcessExitsInTime() throws Exception {
+            Process process = pool.start(new ProcessBuilder(commandLine(FAIL)));
+            specify(pool.waitFor(process), should.equal(FAILURE_EXIT_VALUE));
+            specify(pool.getTimeoutCount(), should.equal(0L));
+            specify(pool.getProcessCount(), should.equal(1L));
+        }
+    }
+
+    public class WhenTheMaximumNumberOfProcessesAreRunning {
+
+        private ProcessPool pool;
+        private Process first;
+
+        public ProcessPool create() throws Exception {
+            pool = new ProcessPool(1, ProcessPool.NO_TIMEOUT);
+            first = pool.start(hangingProcess());
+            return pool;
+        }
+
+        public void destroy() throws Exception {
+            pool.cancelAll();
+        }
+
+        public void shouldStartTheNextProcessOnlyAfterTheRunningOneHasExited() throws Exception {
+            final AtomicReference<Process> second = new AtomicReference<Process>();
+            Thread t = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        second.set(pool.start(new ProcessBuilder(commandLine(ECHO))));
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            });
+            t.start();
+            t.join(200);
+            specify(second.get(), should.equal(null));
+
+            first.getOutputStream().close();
+            pool.waitFor(first);
+            t.join();
+            specify(second.get() != null);
+            pool.waitFor(second.get());
+            specify(pool.getProcessCount(), should.equal(2L));
+            specify(pool.getMaxQueueWaitMillis() >= 200);
+        }
+
+        public void shouldKillTheRunningProcessesWhenCancelled() throws Exception {
+            pool.cancelAll();
+            pool.waitFor(first);
+            specify(hasExited(first));
+            specify(pool.getRunningCount(), should.equal(0));
+        }
+
+        public void shouldKillTheProcessIfTheWaitingThreadIsInterrupted() throws Exception {
+            final AtomicReference<Throwable> thrown = new AtomicReference<Throwable>();
+            Thread t = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        pool.waitFor(first);
+                    } catch (Throwable e) {
+                        thrown.set(e);
+                    }
+                }
+            });
+            t.start();
+            t.interrupt();
+            t.join();
+            first.waitFor();
+            specify(thrown.get() instanceof InterruptedException);
+            specify(hasExited(first));
+            specify(pool.getRunningCount(), should.equal(0));
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * External Code Formatter
+ * Copyright (c) 2007-2009  Esko Luontola, www.orfjackal.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.orfjackal.extformatter.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * A reference implementation of the {@link FormatterDaemon} protocol, for testing. Its "formatting"
+ * removes the trailing whitespace from every line.
+ * <p/>
+ * With the {@link #PIPE} argument it instead reformats the text from its stdin to its stdout, like the
+ * commands used with {@link net.orfjackal.extformatter.CommandLineCodeFormatter#STDIN_TAG}, and with
+ * the {@link #FAIL} argument it writes an error to its stderr and exits with a non-zero exit value.
+ * With the {@link #ECHO} argument it writes each of the following arguments on a line of its own,
+ * and with the {@link #HANG} argument it reads the requests but never answers them.
+ *
+ * @author Esko Luontola
+ * @since 18.10.2026
+ */
+public class StandInFormatterServer {
+
+    public static final String PIPE = "--pipe";
+    public static final String FAIL = "--fail";
+    public static final String ECHO = "--echo";
+    public static final String HANG = "--hang";
+    public static final int FAILURE_EXIT_VALUE = 3;
+
+    /**
+     * The command for starting this server in a new JVM.
+     */
+    @NotNull
+    public static String command() {
+        File java = new File(new File(System.getProperty("java.home"), "bin"), "java");
+        return java.getPath() + " -cp " + System.getProperty("java.class.path") + " " + StandInFormatterServer.class.getName();
+    }
+
+    /**
+     * The arguments for starting this server in a new JVM with the options.
+     */
+    @NotNull
+    public static List<String> commandLine(@NotNull String... options) {
+        List<String> command = new ArrayList<String>(new CommandTemplate(command()).tokens());
+        command.addAll(Arrays.asList(options));
+        return command;
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<String> options = Arrays.asList(args);
+        if (options.contains(FAIL)) {
+            System.err.println("Failed as requested");
+            System.exit(FAILURE_EXIT_VALUE);
+        }
+        if (options.contains(ECHO)) {
+            for (String arg : options.subList(options.indexOf(ECHO) + 1, options.size())) {
+                System.out.println(arg);
+            }
+            return;
+        }
+        if (options.contains(PIPE)) {
+            pipe();
+            return;
+        }
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, "UTF-8"));
+        if (options.contains(HANG)) {
+            while (in.readLine() != null) {
+            }
+            return;
+        }
+        PrintStream out = new PrintStream(System.out, true, "UTF-8");
+        String request;
+        while ((request = in.readLine()) != null) {
+            if (request.equals(FormatterDaemon.PING)) {
+                out.println(FormatterDaemon.PONG);
+            } else if (request.startsWith(FormatterDaemon.FORMAT + " ")) {
+                int count = Integer.parseInt(request.substring(FormatterDaemon.FORMAT.length() + 1));
+                String error = null;
+                for (int i = 0; i < count; i++) {
+                    File file = new File(in.readLine());
+                    try {
+                        format(file);
+                    } catch (IOException e) {
+                        error = e.toString();
+                    }
+                }
+                out.println(error == null ? FormatterDaemon.OK : FormatterDaemon.ERROR + " " + error);
+            } else if (request.equals(FormatterDaemon.QUIT)) {
+                break;
+            } else {
+                out.println(FormatterDaemon.ERROR + " Unknown request: " + request);
+            }
+        }
+    }
+
+    private static void pipe() throws IOException {
+        Reader in = new InputStreamReader(System.in);
+        StringBuilder text = new StringBuilder();
+        char[] buf = new char[1024];
+        int len;
+        while ((len = in.read(buf)) >= 0) {
+            text.append(buf, 0, len);
+        }
+        Writer out = new OutputStreamWriter(System.out);
+        out.write(formatted(text.toString()));
+        out.flush();
+    }
+
+    private static void format(@NotNull File file) throws IOException {
+        String formatted = formatted(FileUtil.contentsOf(file));
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(formatted);
+        } finally {
+            writer.close();
+        }
+    }
+
+    @NotNull
+    public static String formatted(@NotNull String text) {
+        StringBuilder formatted = new StringBuilder();
+        for (String line : text.split("\n", -1)) {
+            if (formatted.length() > 0) {
+                formatted.append('\n');
+            }
+            formatted.append(line.replaceAll("\\s+$", ""));
+        }
+        return formatted.toString();
+    }
+}
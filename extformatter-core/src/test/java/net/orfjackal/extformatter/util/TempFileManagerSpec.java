@@ -146,6 +146,35 @@ public class TempFileManagerSpec extends Specification<TempFileManager> {
         }
     }
 
+    public class WhenManyFilesAreAddedAtOnce {
+
+        private TempFileManager manager;
+
+        public TempFileManager create() {
+            manager = new TempFileManager();
+            manager.addAll(FOO_FILE, BAR_FILE, FOO_FILE);
+            return manager;
+        }
+
+        public void destroy() {
+            manager.dispose();
+        }
+
+        public void shouldContainAddedFiles() {
+            specify(manager.originalFiles(), should.containExactly(FOO_FILE, BAR_FILE, FOO_FILE));
+        }
+
+        public void filesWithTheSameNameShouldBeCopiedToDifferentDirectories() throws IOException {
+            File tmpFoo1 = new File(manager.tempDirectory(1), FOO_FILE.getName());
+            File tmpFoo2 = new File(manager.tempDirectory(2), FOO_FILE.getName());
+            File tmpBar = new File(manager.tempDirectory(1), BAR_FILE.getName());
+            specify(manager.tempFiles(), should.containExactly(tmpFoo1, tmpFoo2, tmpBar));
+            specify(contentsOf(tmpFoo1), should.equal(contentsOf(FOO_FILE)));
+            specify(contentsOf(tmpFoo2), should.equal(contentsOf(FOO_FILE)));
+            specify(contentsOf(tmpBar), should.equal(contentsOf(BAR_FILE)));
+        }
+    }
+
     public class WhenThereAreManyManagers {
 
         private TempFileManager managerA;
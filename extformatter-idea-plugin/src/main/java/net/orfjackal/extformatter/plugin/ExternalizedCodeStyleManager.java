@@ -23,17 +23,19 @@ import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.*;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.codeStyle.CodeStyleManager;
 import com.intellij.util.IncorrectOperationException;
 import net.orfjackal.extformatter.*;
 import net.orfjackal.extformatter.plugin.util.*;
-import net.orfjackal.extformatter.util.TempFileManager;
-import org.jetbrains.annotations.NotNull;
+import net.orfjackal.extformatter.util.*;
+import org.jetbrains.annotations.*;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Intercepts the calls to {@link CodeStyleManager#reformatText} and redirects them
@@ -48,11 +50,20 @@ public class ExternalizedCodeStyleManager extends DelegatingCodeStyleManager {
     private static final Logger LOG = Logger.getInstance(ExternalizedCodeStyleManager.class.getName());
 
     @NotNull private final CodeFormatter replacement;
-    @NotNull private final List<VirtualFile> toBeReformatted = new ArrayList<VirtualFile>();
+    @NotNull private final ExcludedFiles excluded;
+    @Nullable private final FormattedContentCache formattedFiles;
+    @NotNull private final Queue<VirtualFile> toBeReformatted = new ConcurrentLinkedQueue<VirtualFile>();
 
     public ExternalizedCodeStyleManager(@NotNull CodeStyleManager original, @NotNull CodeFormatter replacement) {
+        this(original, replacement, ExcludedFiles.NONE, null);
+    }
+
+    public ExternalizedCodeStyleManager(@NotNull CodeStyleManager original, @NotNull CodeFormatter replacement,
+                                        @NotNull ExcludedFiles excluded, @Nullable FormattedContentCache formattedFiles) {
         super(original);
         this.replacement = replacement;
+        this.excluded = excluded;
+        this.formattedFiles = formattedFiles;
     }
 
     public void reformatText(@NotNull PsiFile psiFile, int startOffset, int endOffset) throws IncorrectOperationException {
@@ -80,14 +91,13 @@ public class ExternalizedCodeStyleManager extends DelegatingCodeStyleManager {
     }
 
     @NotNull
-    private Runnable reformatQueuedFiles(@NotNull Project project) {
+    private Runnable reformatQueuedFiles(@NotNull final Project project) {
         Runnable reformatAll = new Runnable() {
             public void run() {
-                LOG.info("Reformatting files: " + toBeReformatted);
-                try {
-                    reformatWithUndoSupport(toBeReformatted);
-                } finally {
-                    toBeReformatted.clear();
+                List<VirtualFile> files = takeQueuedFiles();
+                if (!files.isEmpty()) {
+                    LOG.info("Reformatting files: " + files);
+                    reformatWithUndoSupport(notExcluded(files, project.getBaseDir()));
                 }
             }
         };
@@ -103,6 +113,37 @@ public class ExternalizedCodeStyleManager extends DelegatingCodeStyleManager {
         };
     }
 
+    /**
+     * Files may be queued from other threads while the previous ones are being reformatted,
+     * so only the files which are in the queue right now are taken.
+     */
+    @NotNull
+    private List<VirtualFile> takeQueuedFiles() {
+        List<VirtualFile> files = new ArrayList<VirtualFile>();
+        VirtualFile file;
+        while ((file = toBeReformatted.poll()) != null) {
+            files.add(file);
+        }
+        return files;
+    }
+
+    /**
+     * The exclusions are matched against the original paths, because the temporary copies are not
+     * in the same directories. IDEA queues the files one by one, so also the parent directories
+     * up to the project's base directory are checked.
+     */
+    @NotNull
+    private List<VirtualFile> notExcluded(@NotNull List<VirtualFile> files, @Nullable VirtualFile baseDir) {
+        File root = baseDir == null ? null : ioFile(baseDir);
+        List<VirtualFile> result = new ArrayList<VirtualFile>();
+        for (VirtualFile file : files) {
+            if (!excluded.acceptWithParents(ioFile(file), root)) {
+                result.add(file);
+            }
+        }
+        return result;
+    }
+
     /**
      * HACK: We can't reformat the original files and then use {@link VirtualFile#refresh}
      * so that IDEA would load the changes, because then it would not be possible to
@@ -110,32 +151,88 @@ public class ExternalizedCodeStyleManager extends DelegatingCodeStyleManager {
      * temporary copies of all files, reformat them, and finally copy the text contents
      * from the temporary files to the original files using the Document interface.
      * (<a href="http://www.intellij.net/forums/thread.jspa?threadID=271800&tstart=0">See also</a>)
+     * If the formatter can reformat texts in memory, no files are needed at all.
      */
     private void reformatWithUndoSupport(@NotNull List<VirtualFile> files) {
-        TempFileManager manager = tempFileManagerFor(files);
-        reformatOptimally(manager.tempFiles());
-        copyTextFromTempFiles(manager);
-        manager.dispose();
+        if (files.isEmpty()) {
+            LOG.info("All files are excluded");
+            return;
+        }
+        if (replacement instanceof TextFormatter && ((TextFormatter) replacement).supportsReformatText()) {
+            reformatInMemory(files);
+            return;
+        }
+        List<VirtualFile> notFormatted = notFormatted(files);
+        if (notFormatted.isEmpty()) {
+            LOG.info("All files are already formatted");
+            return;
+        }
+        TempFileManager manager = tempFileManagerFor(notFormatted);
+        try {
+            OptimizingReformatQueue optimizer = new OptimizingReformatQueue(replacement,
+                    OptimizingReformatQueue.defaultCostsOf(replacement));
+            RuntimeException failure = null;
+            try {
+                reformatOptimally(manager.tempFiles(), optimizer);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            Map<File, File> reformatted = reformattedFiles(manager, optimizer.getQueuedFiles());
+            copyTextFromTempFiles(reformatted);
+            markFormatted(notFormatted, reformatted.values());
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            manager.dispose();
+        }
     }
 
+    /**
+     * The files which are already formatted would not change, so they are not even copied.
+     */
     @NotNull
-    private static TempFileManager tempFileManagerFor(@NotNull List<VirtualFile> files) {
-        TempFileManager manager = new TempFileManager();
+    private List<VirtualFile> notFormatted(@NotNull List<VirtualFile> files) {
+        List<VirtualFile> result = new ArrayList<VirtualFile>();
         for (VirtualFile file : files) {
             save(file);
-            manager.add(ioFile(file));
+            if (formattedFiles == null || !formattedFiles.isFormatted(ioFile(file))) {
+                result.add(file);
+            }
         }
+        return result;
+    }
+
+    @NotNull
+    private static TempFileManager tempFileManagerFor(@NotNull List<VirtualFile> files) {
+        File[] ioFiles = new File[files.size()];
+        for (int i = 0; i < ioFiles.length; i++) {
+            ioFiles[i] = ioFile(files.get(i));
+        }
+        TempFileManager manager = new TempFileManager();
+        manager.addAll(ioFiles);
         return manager;
     }
 
-    private void reformatOptimally(@NotNull File[] files) {
-        OptimizingReformatQueue optimizer = new OptimizingReformatQueue(replacement);
-        new AdaptiveCodeFormatter(optimizer).reformatMany(files);
+    private static void reformatOptimally(@NotNull File[] files, @NotNull OptimizingReformatQueue optimizer) {
+        AdaptiveCodeFormatter adapter = new AdaptiveCodeFormatter(optimizer);
+        adapter.reformatMany(files);
         optimizer.flush();
     }
 
-    private static void copyTextFromTempFiles(@NotNull TempFileManager manager) {
-        for (Map.Entry<File, File> entry : manager.tempsToOriginals().entrySet()) {
+    /**
+     * A failed flush leaves the files which it did not reformat in the queue. The text of those files
+     * is not copied, because the formatter may have left them half written.
+     */
+    @NotNull
+    private static Map<File, File> reformattedFiles(@NotNull TempFileManager manager, @NotNull List<File> notReformatted) {
+        Map<File, File> result = new HashMap<File, File>(manager.tempsToOriginals());
+        result.keySet().removeAll(notReformatted);
+        return result;
+    }
+
+    private static void copyTextFromTempFiles(@NotNull Map<File, File> tempsToOriginals) {
+        for (Map.Entry<File, File> entry : tempsToOriginals.entrySet()) {
             File temp = entry.getKey();
             File original = entry.getValue();
             copyText(temp, original);
@@ -158,6 +255,50 @@ public class ExternalizedCodeStyleManager extends DelegatingCodeStyleManager {
         }
     }
 
+    /**
+     * Only the files which were reformatted are marked, so that a file which the formatter failed to
+     * reformat is tried again next time. The originals are saved first, so that their modification times
+     * are those of the formatted text.
+     */
+    private void markFormatted(@NotNull List<VirtualFile> files, @NotNull Collection<File> reformatted) {
+        if (formattedFiles == null) {
+            return;
+        }
+        Set<File> succeeded = new HashSet<File>(reformatted);
+        for (VirtualFile file : files) {
+            if (succeeded.contains(ioFile(file))) {
+                save(file);
+                formattedFiles.markFormatted(ioFile(file));
+            }
+        }
+    }
+
+    private void reformatInMemory(@NotNull List<VirtualFile> files) {
+        List<Document> documents = new ArrayList<Document>();
+        List<File> ioFiles = new ArrayList<File>();
+        for (VirtualFile file : files) {
+            Document document = FileDocumentManager.getInstance().getDocument(file);
+            if (document != null) {
+                documents.add(document);
+                ioFiles.add(ioFile(file));
+            }
+        }
+        String[] texts = new String[documents.size()];
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = documents.get(i).getText();
+        }
+        AdaptiveCodeFormatter adapter = new AdaptiveCodeFormatter(replacement);
+        adapter.setParallelism(Runtime.getRuntime().availableProcessors());
+        String[] formatted = adapter.reformatTexts(ioFiles.toArray(new File[ioFiles.size()]), texts);
+        for (int i = 0; i < formatted.length; i++) {
+            // the documents may contain only '\n' line separators
+            String text = StringUtil.convertLineSeparators(formatted[i]);
+            if (!text.equals(texts[i])) {
+                documents.get(i).setText(text);
+            }
+        }
+    }
+
     private boolean canReformat(@NotNull VirtualFile file, @NotNull Project project) {
         return file.isInLocalFileSystem()
                 && isWritable(file, project)
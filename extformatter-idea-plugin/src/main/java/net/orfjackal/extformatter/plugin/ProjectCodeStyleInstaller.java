@@ -20,7 +20,8 @@ package net.orfjackal.extformatter.plugin;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.codeStyle.CodeStyleManager;
-import net.orfjackal.extformatter.CodeFormatter;
+import net.orfjackal.extformatter.*;
+import net.orfjackal.extformatter.util.ExcludedFiles;
 import org.jetbrains.annotations.*;
 import org.picocontainer.MutablePicoContainer;
 
@@ -47,16 +48,22 @@ public class ProjectCodeStyleInstaller {
     }
 
     public void changeFormatterTo(@Nullable CodeFormatter formatter) {
+        changeFormatterTo(formatter, ExcludedFiles.NONE, null);
+    }
+
+    public void changeFormatterTo(@Nullable CodeFormatter formatter, @NotNull ExcludedFiles excluded,
+                                  @Nullable FormattedContentCache formattedFiles) {
         uninstallCodeFormatter();
         if (formatter != null) {
-            installCodeFormatter(formatter);
+            installCodeFormatter(formatter, excluded, formattedFiles);
         }
     }
 
-    private void installCodeFormatter(@NotNull CodeFormatter formatter) {
+    private void installCodeFormatter(@NotNull CodeFormatter formatter, @NotNull ExcludedFiles excluded,
+                                      @Nullable FormattedContentCache formattedFiles) {
         CodeStyleManager manager = CodeStyleManager.getInstance(project);
         if (!(manager instanceof ExternalizedCodeStyleManager)) {
-            registerCodeStyleManager(project, new ExternalizedCodeStyleManager(manager, formatter));
+            registerCodeStyleManager(project, new ExternalizedCodeStyleManager(manager, formatter, excluded, formattedFiles));
         }
     }
 
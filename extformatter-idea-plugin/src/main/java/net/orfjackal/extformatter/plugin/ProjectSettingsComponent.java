@@ -17,6 +17,7 @@
 
 package net.orfjackal.extformatter.plugin;
 
+import com.intellij.openapi.application.PathManager;
 import com.intellij.openapi.components.*;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.options.*;
@@ -24,9 +25,11 @@ import com.intellij.openapi.project.Project;
 import com.intellij.util.xmlb.XmlSerializerUtil;
 import net.orfjackal.extformatter.*;
 import net.orfjackal.extformatter.settings.*;
+import net.orfjackal.extformatter.util.ProcessPool;
 import org.jetbrains.annotations.*;
 
 import javax.swing.*;
+import java.io.*;
 
 /**
  * Takes care of initializing a project's {@link CodeFormatter} and disposing of it when the project is closed.
@@ -48,25 +51,103 @@ public class ProjectSettingsComponent implements ProjectComponent, Configurable,
 
     @NotNull private final ProjectCodeStyleInstaller projectCodeStyle;
     @NotNull private final Settings settings = new Settings();
+    @NotNull private final File formattedFilesCache;
+    @Nullable private ProcessPool processPool;
+    @Nullable private TimedCodeFormatter formatter;
+    @Nullable private FormattedContentCache formattedFiles;
+    @Nullable private FormatStateIndex formatState;
     @Nullable private ProjectSettingsForm form;
     @Nullable private ImageIcon icon;
 
     public ProjectSettingsComponent(@NotNull Project project) {
         this.projectCodeStyle = new ProjectCodeStyleInstaller(project);
+        this.formattedFilesCache = new File(PathManager.getSystemPath(), "extformatter" + File.separator
+                + project.getName() + "." + Integer.toHexString(String.valueOf(project.getProjectFilePath()).hashCode()));
     }
 
     private void install(@NotNull Settings settings) {
         try {
-            projectCodeStyle.changeFormatterTo(SettingsManager.newFormatter(settings));
+            disposeFormatter();
+            processPool = SettingsManager.newProcessPool(settings);
+            CodeFormatter newFormatter = SettingsManager.newFormatter(settings, processPool);
+            formatter = newFormatter == null ? null : SettingsManager.withLearnedCosts(newFormatter, settings);
+            formattedFiles = newFormatter == null ? null : loadFormattedFiles(settings);
+            projectCodeStyle.changeFormatterTo(formatter, SettingsManager.excludedFilesOf(settings), formattedFiles);
         } catch (IllegalSettingsException e) {
             LOG.error(e);
         }
     }
 
     private void uninstall() {
+        saveLearnedCosts();
+        saveFormattedFiles();
+        closeFormatState();
+        disposeFormatter();
+        formatter = null;
+        formattedFiles = null;
         projectCodeStyle.changeFormatterTo(null);
     }
 
+    private void disposeFormatter() {
+        if (formatter != null && formatter.getFormatter() instanceof CommandLineCodeFormatter) {
+            ((CommandLineCodeFormatter) formatter.getFormatter()).dispose();
+        }
+        if (processPool != null) {
+            LOG.info("Formatter processes: " + processPool);
+            processPool.cancelAll();
+            processPool = null;
+        }
+    }
+
+    private void saveLearnedCosts() {
+        if (formatter != null) {
+            SettingsManager.saveLearnedCosts(formatter, settings);
+        }
+    }
+
+    @NotNull
+    private FormattedContentCache loadFormattedFiles(@NotNull Settings settings) {
+        FormattedContentCache cache = SettingsManager.newFormattedContentCache(settings);
+        try {
+            cache.load(formattedFilesCache);
+            closeFormatState();
+            formatState = SettingsManager.openFormatStateIndex(formatStateIndex(), settings);
+            cache.setIndex(formatState);
+        } catch (IOException e) {
+            LOG.warn(e);
+        }
+        return cache;
+    }
+
+    private void saveFormattedFiles() {
+        try {
+            if (formattedFiles != null) {
+                formattedFiles.save(formattedFilesCache);
+            }
+            if (formatState != null) {
+                formatState.force();
+            }
+        } catch (IOException e) {
+            LOG.warn(e);
+        }
+    }
+
+    private void closeFormatState() {
+        try {
+            if (formatState != null) {
+                formatState.close();
+            }
+        } catch (IOException e) {
+            LOG.warn(e);
+        }
+        formatState = null;
+    }
+
+    @NotNull
+    private File formatStateIndex() {
+        return new File(formattedFilesCache.getPath() + ".index");
+    }
+
     private void verifySettingsOf(@Nullable ProjectSettingsForm form) throws ConfigurationException {
         try {
             if (form != null) {
@@ -137,6 +218,8 @@ public class ProjectSettingsComponent implements ProjectComponent, Configurable,
     public void apply() throws ConfigurationException {
         verifySettingsOf(form);
         if (form != null) {
+            saveLearnedCosts();
+            saveFormattedFiles();
             form.exportTo(settings);
             install(settings);
         }
@@ -156,6 +239,8 @@ public class ProjectSettingsComponent implements ProjectComponent, Configurable,
 
     @NotNull
     public Settings getState() {
+        saveLearnedCosts();
+        saveFormattedFiles();
         return settings.clone();
     }
 
@@ -76,6 +76,20 @@ public class ProjectSettingsForm {
     private JTextField  cliReformatRecursively;
     private JCheckBox   cliReformatRecursivelyEnabled;
     private JTextPane   cliReformatRecursivelyExample;
+    private JTextField  cliDaemon;
+    private JCheckBox   cliDaemonEnabled;
+    private JTextPane   cliDaemonExample;
+
+    private JTextField  excludedFiles;
+    private JLabel      excludedFilesLabel;
+    private JTextPane   excludedFilesExample;
+    private JCheckBox   excludeGitIgnoredFiles;
+
+    private JTextField  maxProcesses;
+    private JLabel      maxProcessesLabel;
+    private JTextField  processTimeoutSeconds;
+    private JLabel      processTimeoutSecondsLabel;
+    private JTextPane   processTimeoutSecondsExample;
 
     private final List<Popup> visiblePopups = new ArrayList<Popup>();
     @Nullable private File lastDirectory;
@@ -89,6 +103,7 @@ public class ProjectSettingsForm {
                 cliReformatManyEnabled,
                 cliReformatDirectoryEnabled,
                 cliReformatRecursivelyEnabled,
+                cliDaemonEnabled,
         };
         for (JToggleButton button : modifyableButtons) {
             button.addActionListener(new ActionListener() {
@@ -106,6 +121,9 @@ public class ProjectSettingsForm {
                 cliReformatMany,
                 cliReformatDirectory,
                 cliReformatRecursively,
+                cliDaemon,
+                maxProcesses,
+                processTimeoutSeconds,
         };
         for (JTextField field : modifyableFields) {
             field.getDocument().addDocumentListener(new DocumentAdapter() {
@@ -192,6 +210,7 @@ public class ProjectSettingsForm {
                 cliReformatManyEnabled,
                 cliReformatDirectoryEnabled,
                 cliReformatRecursivelyEnabled,
+                cliDaemonEnabled,
         });
         enabledBy(cliReformatOneEnabled, new JComponent[]{
                 cliReformatOne,
@@ -209,20 +228,29 @@ public class ProjectSettingsForm {
                 cliReformatRecursively,
                 cliReformatRecursivelyExample
         });
+        enabledBy(cliDaemonEnabled, new JComponent[]{
+                cliDaemon,
+                cliDaemonExample
+        });
         if (useCliFormatter.isSelected()) {
             atLeastOneSelected(
                     cliReformatOneEnabled,
                     cliReformatManyEnabled,
                     cliReformatDirectoryEnabled,
-                    cliReformatRecursivelyEnabled);
+                    cliReformatRecursivelyEnabled,
+                    cliDaemonEnabled);
         }
         if (notEmpty(cliSupportedFileTypes)) {
             ok(cliSupportedFileTypes);
         }
-        if (notEmpty(cliReformatOne) && containsText(FILE_TAG, cliReformatOne)) {
+        if (notEmpty(cliReformatOne)
+                && (cliReformatOne.getText().contains(STDIN_TAG) || containsText(FILE_TAG, cliReformatOne))) {
             ok(cliReformatOne);
         }
-        if (notEmpty(cliReformatMany) && containsText(FILES_TAG, cliReformatMany)) {
+        if (notEmpty(cliReformatMany)
+                && (cliReformatMany.getText().contains(FILES_LISTFILE_TAG)
+                || cliReformatMany.getText().contains(FILES_STDIN_TAG)
+                || containsText(FILES_TAG, cliReformatMany))) {
             ok(cliReformatMany);
         }
         if (notEmpty(cliReformatDirectory) && containsText(DIRECTORY_TAG, cliReformatDirectory)) {
@@ -231,6 +259,16 @@ public class ProjectSettingsForm {
         if (notEmpty(cliReformatRecursively) && containsText(DIRECTORY_TAG, cliReformatRecursively)) {
             ok(cliReformatRecursively);
         }
+        if (notEmpty(cliDaemon)) {
+            ok(cliDaemon);
+        }
+
+        if (numberAtLeast(1, maxProcesses)) {
+            ok(maxProcesses);
+        }
+        if (numberAtLeast(0, processTimeoutSeconds)) {
+            ok(processTimeoutSeconds);
+        }
     }
 
     private void enabledBy(@NotNull JToggleButton control, @NotNull JComponent[] targets) {
@@ -257,6 +295,23 @@ public class ProjectSettingsForm {
         return true;
     }
 
+    private boolean numberAtLeast(int min, @NotNull JTextField field) {
+        if (numberIn(field, min - 1) < min) {
+            field.setBackground(ERROR);
+            showPopup(field, Messages.message("warning.numberAtLeast", min));
+            return false;
+        }
+        return true;
+    }
+
+    private static int numberIn(@NotNull JTextField field, int defaultValue) {
+        try {
+            return Integer.parseInt(field.getText().trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
     private boolean fileExists(@NotNull JTextField field) {
         if (!new File(field.getText()).isFile()) {
             field.setBackground(ERROR);
@@ -326,6 +381,14 @@ public class ProjectSettingsForm {
         cliReformatDirectoryEnabled.setSelected(in.isCliReformatDirectoryEnabled());
         cliReformatRecursively.setText(in.getCliReformatRecursively());
         cliReformatRecursivelyEnabled.setSelected(in.isCliReformatRecursivelyEnabled());
+        cliDaemon.setText(in.getCliDaemon());
+        cliDaemonEnabled.setSelected(in.isCliDaemonEnabled());
+
+        excludedFiles.setText(in.getExcludedFiles());
+        excludeGitIgnoredFiles.setSelected(in.isExcludeGitIgnoredFiles());
+
+        maxProcesses.setText(String.valueOf(in.getMaxProcesses()));
+        processTimeoutSeconds.setText(String.valueOf(in.getProcessTimeoutSeconds()));
 
         updateComponents();
     }
@@ -351,6 +414,14 @@ public class ProjectSettingsForm {
         out.setCliReformatDirectoryEnabled(cliReformatDirectoryEnabled.isSelected());
         out.setCliReformatRecursively(cliReformatRecursively.getText());
         out.setCliReformatRecursivelyEnabled(cliReformatRecursivelyEnabled.isSelected());
+        out.setCliDaemon(cliDaemon.getText());
+        out.setCliDaemonEnabled(cliDaemonEnabled.isSelected());
+
+        out.setExcludedFiles(excludedFiles.getText());
+        out.setExcludeGitIgnoredFiles(excludeGitIgnoredFiles.isSelected());
+
+        out.setMaxProcesses(numberIn(maxProcesses, out.getMaxProcesses()));
+        out.setProcessTimeoutSeconds(numberIn(processTimeoutSeconds, out.getProcessTimeoutSeconds()));
     }
 
     @SuppressWarnings({"RedundantIfStatement", "ConstantConditions"})
@@ -399,6 +470,26 @@ public class ProjectSettingsForm {
         if (cliReformatRecursivelyEnabled.isSelected() != data.isCliReformatRecursivelyEnabled()) {
             return true;
         }
+        if (cliDaemon.getText() != null ? !cliDaemon.getText().equals(data.getCliDaemon()) : data.getCliDaemon() != null) {
+            return true;
+        }
+        if (cliDaemonEnabled.isSelected() != data.isCliDaemonEnabled()) {
+            return true;
+        }
+
+        if (excludedFiles.getText() != null ? !excludedFiles.getText().equals(data.getExcludedFiles()) : data.getExcludedFiles() != null) {
+            return true;
+        }
+        if (excludeGitIgnoredFiles.isSelected() != data.isExcludeGitIgnoredFiles()) {
+            return true;
+        }
+
+        if (numberIn(maxProcesses, data.getMaxProcesses()) != data.getMaxProcesses()) {
+            return true;
+        }
+        if (numberIn(processTimeoutSeconds, data.getProcessTimeoutSeconds()) != data.getProcessTimeoutSeconds()) {
+            return true;
+        }
         return false;
     }
 }